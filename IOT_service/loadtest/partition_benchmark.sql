@@ -0,0 +1,143 @@
+-- Per-patient query latency on sensor_data: the monthly range-partitioned layout of
+-- V2__partition_sensor_data.sql against a plain table, on the same generated rows.
+--
+--   psql -h localhost -U postgres -d iot_db -f loadtest/partition_benchmark.sql
+--   psql ... -v rows=1000000 -v patients=200 -f loadtest/partition_benchmark.sql   (smaller run)
+--
+-- Everything lives in the sensor_bench schema, which is dropped and rebuilt on each run, so the
+-- application's tables are never touched. Three tables get identical rows (default 10M readings
+-- from 1000 patients spread evenly over 12 months of 2024):
+--   plain          the pre-V2 table: primary key on id only
+--   plain_indexed  the same plus V2's (user_id, received_at DESC) index, to separate the index
+--                  from the partitioning
+--   partitioned    V2's layout: monthly partitions, PK (id, received_at), the composite index
+-- Each query runs once to warm the cache and once under EXPLAIN (ANALYZE, BUFFERS); compare the
+-- "Execution Time" lines and how many partitions the plans touch. Seeding 10M rows three times
+-- takes a few minutes and about 4 GB of disk.
+
+\set ON_ERROR_STOP on
+\if :{?rows}
+\else
+\set rows 10000000
+\endif
+\if :{?patients}
+\else
+\set patients 1000
+\endif
+
+DROP SCHEMA IF EXISTS sensor_bench CASCADE;
+CREATE SCHEMA sensor_bench;
+SET search_path = sensor_bench;
+
+CREATE TABLE plain (
+    id           BIGINT PRIMARY KEY,
+    user_id      BIGINT,
+    device_id    VARCHAR(255),
+    room_temp    DOUBLE PRECISION,
+    humidity     DOUBLE PRECISION,
+    water_temp_c DOUBLE PRECISION,
+    water_temp_f DOUBLE PRECISION,
+    ir_value     BIGINT,
+    bpm          DOUBLE PRECISION,
+    avg_bpm      INTEGER,
+    spo2         INTEGER,
+    received_at  TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE partitioned (LIKE plain INCLUDING DEFAULTS, PRIMARY KEY (id, received_at))
+    PARTITION BY RANGE (received_at);
+
+DO $$
+DECLARE
+    month_start TIMESTAMP := TIMESTAMP '2024-01-01';
+BEGIN
+    WHILE month_start < TIMESTAMP '2025-01-01' LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF partitioned FOR VALUES FROM (%L) TO (%L)',
+                       'partitioned_' || to_char(month_start, 'YYYY_MM'),
+                       month_start,
+                       month_start + INTERVAL '1 month');
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+CREATE TABLE partitioned_default PARTITION OF partitioned DEFAULT;
+
+-- Row n belongs to patient n % patients; each patient's readings are evenly spaced over the year
+\timing on
+INSERT INTO plain
+SELECT n,
+       n % :patients + 1,
+       'dev-' || (n % :patients + 1),
+       20 + random() * 5,
+       40 + random() * 20,
+       36 + random(),
+       96.8 + random() * 1.8,
+       50000 + (random() * 100000)::BIGINT,
+       55 + random() * 50,
+       60 + (random() * 40)::INTEGER,
+       94 + (random() * 5)::INTEGER,
+       TIMESTAMP '2024-01-01'
+           + (n / :patients) * (INTERVAL '366 days' / ceil(:rows::NUMERIC / :patients)::DOUBLE PRECISION)
+FROM generate_series(0, :rows - 1) AS n;
+
+INSERT INTO partitioned SELECT * FROM plain;
+CREATE TABLE plain_indexed AS SELECT * FROM plain;
+ALTER TABLE plain_indexed ADD PRIMARY KEY (id);
+
+CREATE INDEX ON plain_indexed (user_id, received_at DESC);
+CREATE INDEX ON partitioned (user_id, received_at DESC);
+VACUUM ANALYZE plain;
+VACUUM ANALYZE plain_indexed;
+VACUUM ANALYZE partitioned;
+\timing off
+
+SELECT relname, pg_size_pretty(pg_total_relation_size(oid)) AS total_size
+FROM pg_class
+WHERE relnamespace = 'sensor_bench'::regnamespace AND relname IN ('plain', 'plain_indexed')
+UNION ALL
+SELECT 'partitioned', pg_size_pretty(sum(pg_total_relation_size(inhrelid)))
+FROM pg_inherits WHERE inhparent = 'sensor_bench.partitioned'::regclass;
+
+-- The per-patient queries of SensorDataRepository and the /history and /series fallbacks:
+--   latest  the 50 newest readings of one patient
+--   day     one patient's readings over one day
+--   week    one patient's readings over a week crossing a month boundary
+\set patient 42
+
+\echo '=== latest 50 ==='
+\echo '--- plain'
+SELECT * FROM plain WHERE user_id = :patient ORDER BY received_at DESC LIMIT 50 \g /dev/null
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain WHERE user_id = :patient ORDER BY received_at DESC LIMIT 50;
+\echo '--- plain_indexed'
+SELECT * FROM plain_indexed WHERE user_id = :patient ORDER BY received_at DESC LIMIT 50 \g /dev/null
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain_indexed WHERE user_id = :patient ORDER BY received_at DESC LIMIT 50;
+\echo '--- partitioned'
+SELECT * FROM partitioned WHERE user_id = :patient ORDER BY received_at DESC LIMIT 50 \g /dev/null
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM partitioned WHERE user_id = :patient ORDER BY received_at DESC LIMIT 50;
+
+\echo '=== one day ==='
+\set from '''2024-06-15 00:00'''
+\set to '''2024-06-16 00:00'''
+\echo '--- plain'
+SELECT * FROM plain WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at \g /dev/null
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at;
+\echo '--- plain_indexed'
+SELECT * FROM plain_indexed WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at \g /dev/null
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain_indexed WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at;
+\echo '--- partitioned'
+SELECT * FROM partitioned WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at \g /dev/null
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM partitioned WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at;
+
+\echo '=== one week across a month boundary ==='
+\set from '''2024-06-27 00:00'''
+\set to '''2024-07-04 00:00'''
+\echo '--- plain'
+SELECT * FROM plain WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at \g /dev/null
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at;
+\echo '--- plain_indexed'
+SELECT * FROM plain_indexed WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at \g /dev/null
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain_indexed WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at;
+\echo '--- partitioned'
+SELECT * FROM partitioned WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at \g /dev/null
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM partitioned WHERE user_id = :patient AND received_at >= :from AND received_at < :to ORDER BY received_at;
+
+\echo 'Drop the benchmark tables with: DROP SCHEMA sensor_bench CASCADE;'
@@ -0,0 +1,102 @@
+// k6 load test for /api/sensordata/device/upload and /api/sensordata/device/upload/batch.
+//
+// Runs a constant arrival rate so the two threading modes are compared at the same offered load:
+//
+//   k6 run -e BASE_URL=http://localhost:8082 -e RATE=2000 -e DEVICES=dev-1:token1,dev-2:token2 loadtest/upload.js
+//
+// Start the service once with the default profile and once with SPRING_PROFILES_ACTIVE=virtual (on a
+// Java 21 image), raising RATE until the run fails its thresholds; the last passing RATE is the
+// sustainable uploads/sec and the summary's p(99) is the latency at that load. Set
+// iot.ingest.rate-limit.enabled=false (or use enough devices) so the per-device limiter does not
+// reject the traffic first.
+//
+// MODE=batch posts BATCH readings (default 60, a minute at 1 Hz) per request to the batch endpoint
+// instead of one reading per request; RATE is then requests/sec. To compare the two paths, run
+//
+//   k6 run -e MODE=single -e RATE=2000 ... loadtest/upload.js
+//   k6 run -e MODE=batch -e RATE=50 -e BATCH=60 ... loadtest/upload.js
+//
+// raising RATE in each mode until the thresholds fail, and compare the "readings" rate (stored
+// readings/sec) of the last passing runs. Batch readings carry unique timestamps so the ingest
+// deduplicator does not drop them.
+import http from 'k6/http';
+import exec from 'k6/execution';
+import { check } from 'k6';
+import { Counter } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8082';
+const MODE = __ENV.MODE || 'single';
+const RATE = parseInt(__ENV.RATE || '500');
+const BATCH = parseInt(__ENV.BATCH || '60');
+const DURATION = __ENV.DURATION || '2m';
+const DEVICES = (__ENV.DEVICES || '').split(',').filter(Boolean).map((d) => d.split(':'));
+// Batch timestamps count up from here, one millisecond per reading across the whole run
+const START = Date.now() - 24 * 3600 * 1000;
+
+if (MODE !== 'single' && MODE !== 'batch') {
+    throw new Error('MODE must be single or batch');
+}
+
+const readings = new Counter('readings');
+
+export const options = {
+    scenarios: {
+        [MODE]: {
+            executor: 'constant-arrival-rate',
+            rate: RATE,
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: Math.max(50, RATE),
+            maxVUs: Math.max(200, RATE * 4),
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        http_req_duration: [MODE === 'batch' ? 'p(99)<2000' : 'p(99)<500'],
+        dropped_iterations: ['count<' + Math.ceil(RATE * 0.01 * 120)],
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+function reading() {
+    return {
+        roomTemp: 24 + Math.random() * 2,
+        humidity: 55 + Math.random() * 5,
+        waterTempC: 36.5 + Math.random(),
+        irValue: 50000 + Math.floor(Math.random() * 10000),
+        bpm: 60 + Math.random() * 30,
+        avgBpm: 75,
+        spo2: 96 + Math.floor(Math.random() * 4),
+    };
+}
+
+export default function () {
+    if (DEVICES.length === 0) {
+        throw new Error('Set DEVICES=deviceId:token[,deviceId:token...]');
+    }
+    const [deviceId, token] = DEVICES[Math.floor(Math.random() * DEVICES.length)];
+    const headers = {
+        'Content-Type': 'application/json',
+        'X-Device-Id': deviceId,
+        'X-Device-Token': token,
+    };
+
+    if (MODE === 'batch') {
+        const first = START + exec.scenario.iterationInTest * BATCH;
+        const body = [];
+        for (let i = 0; i < BATCH; i++) {
+            // LocalDateTime on the server: ISO without the zone designator
+            body.push({ ...reading(), receivedAt: new Date(first + i).toISOString().slice(0, -1) });
+        }
+        const res = http.post(`${BASE_URL}/api/sensordata/device/upload/batch`, JSON.stringify(body), { headers });
+        if (check(res, { 'accepted': (r) => r.status === 200 })) {
+            readings.add(res.json('count'));
+        }
+        return;
+    }
+
+    const res = http.post(`${BASE_URL}/api/sensordata/device/upload`, JSON.stringify(reading()), { headers });
+    if (check(res, { 'accepted': (r) => r.status === 200 || r.status === 202 })) {
+        readings.add(1);
+    }
+}
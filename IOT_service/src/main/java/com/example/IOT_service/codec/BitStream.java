@@ -0,0 +1,99 @@
+package com.example.IOT_service.codec;
+
+import java.util.Arrays;
+
+/** Append-only bit buffer backed by a long[]; bits are written and read most significant first. */
+public final class BitStream {
+
+    private long[] words;
+    private int bitLength;
+
+    public BitStream(int initialWords) {
+        this.words = new long[Math.max(1, initialWords)];
+    }
+
+    public int bitLength() {
+        return bitLength;
+    }
+
+    /** Bytes held by the backing array. */
+    public long sizeInBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    public void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    /** Writes the low {@code n} bits of {@code value} (0 <= n <= 64). */
+    public void write(long value, int n) {
+        if (n == 0) {
+            return;
+        }
+        ensure(bitLength + n);
+        int idx = bitLength >>> 6;
+        int free = 64 - (bitLength & 63);
+        long v = value & mask(n);
+        if (n <= free) {
+            words[idx] |= v << (free - n);
+        } else {
+            int rest = n - free;
+            words[idx] |= v >>> rest;
+            words[idx + 1] |= v << (64 - rest);
+        }
+        bitLength += n;
+    }
+
+    public long read(int pos, int n) {
+        if (n == 0) {
+            return 0;
+        }
+        int idx = pos >>> 6;
+        int free = 64 - (pos & 63);
+        if (n <= free) {
+            return (words[idx] >>> (free - n)) & mask(n);
+        }
+        int rest = n - free;
+        return ((words[idx] & mask(free)) << rest) | (words[idx + 1] >>> (64 - rest));
+    }
+
+    /** Drops unused capacity once the stream will not grow any more. */
+    public void trim() {
+        int used = (bitLength + 63) >>> 6;
+        if (used < words.length) {
+            words = Arrays.copyOf(words, Math.max(1, used));
+        }
+    }
+
+    private void ensure(int bits) {
+        // One spare word so a write straddling a word boundary never needs a second check
+        int needed = ((bits + 63) >>> 6) + 1;
+        if (needed > words.length) {
+            words = Arrays.copyOf(words, Math.max(needed, words.length * 2));
+        }
+    }
+
+    private static long mask(int n) {
+        return n == 64 ? -1L : (1L << n) - 1;
+    }
+
+    /** Sequential reader over the first {@code limit} bits of a stream. */
+    public static final class Reader {
+        private final BitStream stream;
+        private int pos;
+
+        public Reader(BitStream stream) {
+            this.stream = stream;
+        }
+
+        public boolean readBit() {
+            return read(1) != 0;
+        }
+
+        public long read(int n) {
+            long v = stream.read(pos, n);
+            pos += n;
+            return v;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.IOT_service.codec;
+
+/**
+ * Gorilla-style compression (Pelkonen et al., VLDB 2015) for one time-series column:
+ * timestamps as bucketed delta-of-deltas, doubles as the XOR with the previous value with
+ * the leading/trailing zero window reused when it still fits. A steady 1 Hz series costs
+ * about one bit per timestamp and unchanged values one bit each.
+ */
+public final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    public static final class TimestampEncoder {
+        private long prev;
+        private long prevDelta;
+        private boolean started;
+
+        public void append(BitStream out, long ts) {
+            if (!started) {
+                out.write(ts, 64);
+                prev = ts;
+                started = true;
+                return;
+            }
+            long delta = ts - prev;
+            long dod = delta - prevDelta;
+            if (dod == 0) {
+                out.write(0b0, 1);
+            } else if (dod >= -63 && dod <= 64) {
+                out.write(0b10, 2);
+                out.write(dod + 63, 7);
+            } else if (dod >= -255 && dod <= 256) {
+                out.write(0b110, 3);
+                out.write(dod + 255, 9);
+            } else if (dod >= -2047 && dod <= 2048) {
+                out.write(0b1110, 4);
+                out.write(dod + 2047, 12);
+            } else {
+                out.write(0b1111, 4);
+                out.write(dod, 64);
+            }
+            prev = ts;
+            prevDelta = delta;
+        }
+    }
+
+    public static final class TimestampDecoder {
+        private final BitStream.Reader in;
+        private long prev;
+        private long prevDelta;
+        private boolean started;
+
+        public TimestampDecoder(BitStream stream) {
+            this.in = new BitStream.Reader(stream);
+        }
+
+        public long next() {
+            if (!started) {
+                started = true;
+                prev = in.read(64);
+                return prev;
+            }
+            long dod;
+            if (!in.readBit()) {
+                dod = 0;
+            } else if (!in.readBit()) {
+                dod = in.read(7) - 63;
+            } else if (!in.readBit()) {
+                dod = in.read(9) - 255;
+            } else if (!in.readBit()) {
+                dod = in.read(12) - 2047;
+            } else {
+                dod = in.read(64);
+            }
+            prevDelta += dod;
+            prev += prevDelta;
+            return prev;
+        }
+    }
+
+    public static final class ValueEncoder {
+        private long prevBits;
+        private int prevLeading = -1;
+        private int prevTrailing;
+
+        public void append(BitStream out, double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            long xor = bits ^ prevBits;
+            prevBits = bits;
+            if (xor == 0) {
+                out.write(0b0, 1);
+                return;
+            }
+            out.write(0b1, 1);
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+                out.write(0b0, 1);
+                out.write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                out.write(0b1, 1);
+                out.write(leading, 5);
+                out.write(significant - 1, 6);
+                out.write(xor >>> trailing, significant);
+                prevLeading = leading;
+                prevTrailing = trailing;
+            }
+        }
+    }
+
+    public static final class ValueDecoder {
+        private final BitStream.Reader in;
+        private long prevBits;
+        private int prevLeading;
+        private int prevTrailing;
+
+        public ValueDecoder(BitStream stream) {
+            this.in = new BitStream.Reader(stream);
+        }
+
+        public double next() {
+            if (in.readBit()) {
+                if (in.readBit()) {
+                    prevLeading = (int) in.read(5);
+                    int significant = (int) in.read(6) + 1;
+                    prevTrailing = 64 - prevLeading - significant;
+                }
+                int significant = 64 - prevLeading - prevTrailing;
+                prevBits ^= in.read(significant) << prevTrailing;
+            }
+            return Double.longBitsToDouble(prevBits);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.IOT_service.codec;
+
+import com.example.IOT_service.model.SensorData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Columnar, gzip-compressed segment format for archived sensor_data rows (one segment per
+ * patient and day, rows sorted by receivedAt).
+ *
+ * Each column is stored contiguously: ids as zigzag varint deltas, timestamps as
+ * delta-of-deltas, deviceIds through a per-segment dictionary, and nullable columns as a
+ * presence bitmap followed by the present values - doubles XORed with the previous value
+ * (trailing zeros stripped, Gorilla style), integers as varint deltas. Lossless.
+ */
+public final class SensorArchiveCodec {
+
+    private static final int MAGIC_V1 = 0x53444131; // "SDA1"
+    // SDA2 appends the signal-quality column; SDA1 segments are still read
+    private static final int MAGIC = 0x53444132;    // "SDA2"
+
+    private SensorArchiveCodec() {
+    }
+
+    /** Writes the rows as one segment. The stream is finished but not closed. */
+    public static void write(List<SensorData> rows, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, 8192);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip, 65536));
+        int n = rows.size();
+        data.writeInt(MAGIC);
+        data.writeInt(n);
+
+        List<String> devices = new ArrayList<>();
+        Map<String, Integer> deviceIndex = new HashMap<>();
+        for (SensorData row : rows) {
+            deviceIndex.computeIfAbsent(row.getDeviceId() == null ? "" : row.getDeviceId(), d -> {
+                devices.add(d);
+                return devices.size() - 1;
+            });
+        }
+        writeVarLong(data, devices.size());
+        for (String device : devices) {
+            data.writeUTF(device);
+        }
+
+        long prevId = 0;
+        for (SensorData row : rows) {
+            writeVarLong(data, zigzag(row.getId() - prevId));
+            prevId = row.getId();
+        }
+        long prevTs = 0;
+        long prevDelta = 0;
+        for (SensorData row : rows) {
+            long ts = row.getReceivedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+            long delta = ts - prevTs;
+            writeVarLong(data, zigzag(delta - prevDelta));
+            prevTs = ts;
+            prevDelta = delta;
+        }
+        if (devices.size() > 1) {
+            for (SensorData row : rows) {
+                writeVarLong(data, deviceIndex.get(row.getDeviceId() == null ? "" : row.getDeviceId()));
+            }
+        }
+
+        writeDoubles(data, rows, SensorData::getRoomTemp);
+        writeDoubles(data, rows, SensorData::getHumidity);
+        writeDoubles(data, rows, SensorData::getWaterTempC);
+        writeDoubles(data, rows, SensorData::getWaterTempF);
+        writeDoubles(data, rows, SensorData::getBpm);
+        writeLongs(data, rows, SensorData::getIrValue);
+        writeLongs(data, rows, r -> r.getAvgBpm() == null ? null : r.getAvgBpm().longValue());
+        writeLongs(data, rows, r -> r.getSpo2() == null ? null : r.getSpo2().longValue());
+        writeLongs(data, rows, r -> r.getSignalQuality() == null ? null : r.getSignalQuality().longValue());
+
+        data.flush();
+        gzip.finish();
+    }
+
+    /** Reads a segment written by {@link #write}; userId is not stored and must be supplied. */
+    public static List<SensorData> read(InputStream in, Long userId) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in, 8192), 65536));
+        int magic = data.readInt();
+        if (magic != MAGIC && magic != MAGIC_V1) {
+            throw new IOException("Not a sensor archive segment");
+        }
+        int n = data.readInt();
+
+        int deviceCount = (int) readVarLong(data);
+        String[] devices = new String[deviceCount];
+        for (int i = 0; i < deviceCount; i++) {
+            devices[i] = data.readUTF();
+        }
+
+        List<SensorData> rows = new ArrayList<>(n);
+        long id = 0;
+        for (int i = 0; i < n; i++) {
+            id += unzigzag(readVarLong(data));
+            SensorData row = new SensorData();
+            row.setId(id);
+            row.setUserId(userId);
+            rows.add(row);
+        }
+        long ts = 0;
+        long delta = 0;
+        for (SensorData row : rows) {
+            delta += unzigzag(readVarLong(data));
+            ts += delta;
+            row.setReceivedAt(LocalDateTime.ofEpochSecond(Math.floorDiv(ts, 1000),
+                    (int) Math.floorMod(ts, 1000) * 1_000_000, ZoneOffset.UTC));
+        }
+        for (SensorData row : rows) {
+            String device = deviceCount == 1 ? devices[0] : devices[(int) readVarLong(data)];
+            row.setDeviceId(device.isEmpty() ? null : device);
+        }
+
+        readDoubles(data, rows, SensorData::setRoomTemp);
+        readDoubles(data, rows, SensorData::setHumidity);
+        readDoubles(data, rows, SensorData::setWaterTempC);
+        readDoubles(data, rows, SensorData::setWaterTempF);
+        readDoubles(data, rows, SensorData::setBpm);
+        readLongs(data, rows, SensorData::setIrValue);
+        readLongs(data, rows, (r, v) -> r.setAvgBpm(v.intValue()));
+        readLongs(data, rows, (r, v) -> r.setSpo2(v.intValue()));
+        if (magic == MAGIC) {
+            readLongs(data, rows, (r, v) -> r.setSignalQuality(v.intValue()));
+        }
+        return rows;
+    }
+
+    private static void writeDoubles(DataOutputStream out, List<SensorData> rows,
+                                     Function<SensorData, Double> column) throws IOException {
+        writePresence(out, rows, column);
+        long prev = 0;
+        for (SensorData row : rows) {
+            Double value = column.apply(row);
+            if (value == null) {
+                continue;
+            }
+            long bits = Double.doubleToRawLongBits(value);
+            long xor = bits ^ prev;
+            if (xor == 0) {
+                out.writeByte(0);
+            } else {
+                int trailing = Long.numberOfTrailingZeros(xor);
+                out.writeByte(trailing + 1);
+                writeVarLong(out, xor >>> trailing);
+            }
+            prev = bits;
+        }
+    }
+
+    private static void readDoubles(DataInputStream in, List<SensorData> rows,
+                                    BiConsumer<SensorData, Double> column) throws IOException {
+        byte[] presence = readPresence(in, rows.size());
+        long prev = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            if ((presence[i >> 3] & (1 << (i & 7))) == 0) {
+                continue;
+            }
+            int header = in.readUnsignedByte();
+            if (header != 0) {
+                prev ^= readVarLong(in) << (header - 1);
+            }
+            column.accept(rows.get(i), Double.longBitsToDouble(prev));
+        }
+    }
+
+    private static void writeLongs(DataOutputStream out, List<SensorData> rows,
+                                   Function<SensorData, Long> column) throws IOException {
+        writePresence(out, rows, column);
+        long prev = 0;
+        for (SensorData row : rows) {
+            Long value = column.apply(row);
+            if (value != null) {
+                writeVarLong(out, zigzag(value - prev));
+                prev = value;
+            }
+        }
+    }
+
+    private static void readLongs(DataInputStream in, List<SensorData> rows,
+                                  BiConsumer<SensorData, Long> column) throws IOException {
+        byte[] presence = readPresence(in, rows.size());
+        long prev = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            if ((presence[i >> 3] & (1 << (i & 7))) != 0) {
+                prev += unzigzag(readVarLong(in));
+                column.accept(rows.get(i), prev);
+            }
+        }
+    }
+
+    private static void writePresence(DataOutputStream out, List<SensorData> rows,
+                                      Function<SensorData, ?> column) throws IOException {
+        byte[] presence = new byte[(rows.size() + 7) >> 3];
+        for (int i = 0; i < rows.size(); i++) {
+            if (column.apply(rows.get(i)) != null) {
+                presence[i >> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        out.write(presence);
+    }
+
+    private static byte[] readPresence(DataInputStream in, int n) throws IOException {
+        byte[] presence = new byte[(n + 7) >> 3];
+        in.readFully(presence);
+        return presence;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.IOT_service.codec;
+
+import com.example.IOT_service.model.ExportFormat;
+import com.example.IOT_service.model.SensorData;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes sensor readings one at a time to an export stream. Output is buffered and only
+ * flushed by {@link #finish()}, so the caller never holds more than the current row.
+ */
+public abstract class SensorExportWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static SensorExportWriter open(ExportFormat format, OutputStream out, ObjectMapper objectMapper)
+            throws IOException {
+        return switch (format) {
+            case CSV -> new Csv(out);
+            case NDJSON -> new NdJson(out, objectMapper);
+        };
+    }
+
+    public abstract void write(SensorData row) throws IOException;
+
+    public abstract void finish() throws IOException;
+
+    static final class Csv extends SensorExportWriter {
+
+        static final String HEADER =
+                "id,user_id,device_id,received_at,bpm,avg_bpm,spo2,room_temp,humidity,water_temp_c,water_temp_f,ir_value,signal_quality";
+
+        private final Writer writer;
+
+        Csv(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writer.write(HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(SensorData row) throws IOException {
+            value(row.getId());
+            writer.write(',');
+            value(row.getUserId());
+            writer.write(',');
+            text(row.getDeviceId());
+            writer.write(',');
+            value(row.getReceivedAt());
+            writer.write(',');
+            value(row.getBpm());
+            writer.write(',');
+            value(row.getAvgBpm());
+            writer.write(',');
+            value(row.getSpo2());
+            writer.write(',');
+            value(row.getRoomTemp());
+            writer.write(',');
+            value(row.getHumidity());
+            writer.write(',');
+            value(row.getWaterTempC());
+            writer.write(',');
+            value(row.getWaterTempF());
+            writer.write(',');
+            value(row.getIrValue());
+            writer.write(',');
+            value(row.getSignalQuality());
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private void value(Object value) throws IOException {
+            if (value != null) {
+                writer.write(value.toString());
+            }
+        }
+
+        // RFC 4180 quoting, only when the value needs it
+        private void text(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    // One JSON object per line, with the same field names and date format as the JSON API
+    static final class NdJson extends SensorExportWriter {
+
+        private final JsonGenerator generator;
+        private final ObjectWriter rowWriter;
+
+        NdJson(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Rows are separated by the newline written after each one, not the default space
+            this.generator.setRootValueSeparator(null);
+            this.rowWriter = objectMapper.writerFor(SensorData.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .without(SerializationFeature.CLOSE_CLOSEABLE);
+        }
+
+        @Override
+        public void write(SensorData row) throws IOException {
+            rowWriter.writeValue(generator, row);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.IOT_service.codec;
+
+import com.example.IOT_service.model.SensorData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-layout binary encoding of one sensor sample (40 bytes, little-endian), used by devices
+ * instead of JSON. Batches are frames concatenated back to back.
+ *
+ * <pre>
+ * offset size  field
+ *  0     u8    version (1)
+ *  1     u8    reserved
+ *  2     u16   presence bits (see FIELD_* constants); absent fields decode to null
+ *  4     i64   sample time, epoch millis (absent = server receive time)
+ * 12     f32   roomTemp
+ * 16     f32   humidity
+ * 20     f32   waterTempC
+ * 24     f32   waterTempF
+ * 28     f32   bpm
+ * 32     u32   irValue
+ * 36     u16   avgBpm
+ * 38     u8    spo2
+ * 39     u8    reserved
+ * </pre>
+ */
+public final class SensorFrameCodec {
+
+    public static final String MEDIA_TYPE = "application/vnd.smartcare.sensor-frame";
+    public static final int FRAME_SIZE = 40;
+    public static final int VERSION = 1;
+
+    public static final int FIELD_TIMESTAMP = 1;
+    public static final int FIELD_ROOM_TEMP = 1 << 1;
+    public static final int FIELD_HUMIDITY = 1 << 2;
+    public static final int FIELD_WATER_TEMP_C = 1 << 3;
+    public static final int FIELD_WATER_TEMP_F = 1 << 4;
+    public static final int FIELD_BPM = 1 << 5;
+    public static final int FIELD_IR_VALUE = 1 << 6;
+    public static final int FIELD_AVG_BPM = 1 << 7;
+    public static final int FIELD_SPO2 = 1 << 8;
+
+    private SensorFrameCodec() {
+    }
+
+    public static SensorData decode(byte[] bytes) {
+        if (bytes.length != FRAME_SIZE) {
+            throw new IllegalArgumentException("Expected a single " + FRAME_SIZE + "-byte frame, got " + bytes.length + " bytes");
+        }
+        return decode(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), 0);
+    }
+
+    public static List<SensorData> decodeAll(byte[] bytes) {
+        if (bytes.length == 0 || bytes.length % FRAME_SIZE != 0) {
+            throw new IllegalArgumentException("Body length " + bytes.length + " is not a multiple of " + FRAME_SIZE);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        List<SensorData> readings = new ArrayList<>(bytes.length / FRAME_SIZE);
+        for (int off = 0; off < bytes.length; off += FRAME_SIZE) {
+            readings.add(decode(buf, off));
+        }
+        return readings;
+    }
+
+    // Absolute reads only, so one buffer is shared by every frame of a batch
+    private static SensorData decode(ByteBuffer buf, int off) {
+        int version = buf.get(off) & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported frame version " + version);
+        }
+        int present = buf.getShort(off + 2) & 0xFFFF;
+
+        SensorData data = new SensorData();
+        if ((present & FIELD_TIMESTAMP) != 0) {
+            data.setReceivedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(buf.getLong(off + 4)), ZoneId.systemDefault()));
+        }
+        if ((present & FIELD_ROOM_TEMP) != 0) data.setRoomTemp(toDouble(buf.getFloat(off + 12)));
+        if ((present & FIELD_HUMIDITY) != 0) data.setHumidity(toDouble(buf.getFloat(off + 16)));
+        if ((present & FIELD_WATER_TEMP_C) != 0) data.setWaterTempC(toDouble(buf.getFloat(off + 20)));
+        if ((present & FIELD_WATER_TEMP_F) != 0) data.setWaterTempF(toDouble(buf.getFloat(off + 24)));
+        if ((present & FIELD_BPM) != 0) data.setBpm(toDouble(buf.getFloat(off + 28)));
+        if ((present & FIELD_IR_VALUE) != 0) data.setIrValue(buf.getInt(off + 32) & 0xFFFFFFFFL);
+        if ((present & FIELD_AVG_BPM) != 0) data.setAvgBpm(buf.getShort(off + 36) & 0xFFFF);
+        if ((present & FIELD_SPO2) != 0) data.setSpo2(buf.get(off + 38) & 0xFF);
+        return data;
+    }
+
+    /** Encodes a reading; used by device simulators and tooling. */
+    public static void encode(SensorData data, ByteBuffer out) {
+        ByteBuffer buf = out.order(ByteOrder.LITTLE_ENDIAN);
+        int off = buf.position();
+        int present = 0;
+        buf.put(off, (byte) VERSION);
+        buf.put(off + 1, (byte) 0);
+        if (data.getReceivedAt() != null) {
+            present |= FIELD_TIMESTAMP;
+            buf.putLong(off + 4, data.getReceivedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        } else {
+            buf.putLong(off + 4, 0L);
+        }
+        present |= putFloat(buf, off + 12, data.getRoomTemp(), FIELD_ROOM_TEMP);
+        present |= putFloat(buf, off + 16, data.getHumidity(), FIELD_HUMIDITY);
+        present |= putFloat(buf, off + 20, data.getWaterTempC(), FIELD_WATER_TEMP_C);
+        present |= putFloat(buf, off + 24, data.getWaterTempF(), FIELD_WATER_TEMP_F);
+        present |= putFloat(buf, off + 28, data.getBpm(), FIELD_BPM);
+        buf.putInt(off + 32, data.getIrValue() != null ? (int) data.getIrValue().longValue() : 0);
+        if (data.getIrValue() != null) present |= FIELD_IR_VALUE;
+        buf.putShort(off + 36, data.getAvgBpm() != null ? (short) data.getAvgBpm().intValue() : 0);
+        if (data.getAvgBpm() != null) present |= FIELD_AVG_BPM;
+        buf.put(off + 38, data.getSpo2() != null ? (byte) data.getSpo2().intValue() : 0);
+        if (data.getSpo2() != null) present |= FIELD_SPO2;
+        buf.put(off + 39, (byte) 0);
+        buf.putShort(off + 2, (short) present);
+        buf.position(off + FRAME_SIZE);
+    }
+
+    private static int putFloat(ByteBuffer buf, int index, Double value, int bit) {
+        buf.putFloat(index, value != null ? value.floatValue() : 0f);
+        return value != null ? bit : 0;
+    }
+
+    // float32 carries ~7 significant digits; round to the 2 decimals the sensors report
+    private static double toDouble(float value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
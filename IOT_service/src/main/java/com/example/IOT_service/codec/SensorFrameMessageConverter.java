@@ -0,0 +1,73 @@
+package com.example.IOT_service.codec;
+
+import com.example.IOT_service.model.SensorData;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Reads {@link SensorFrameCodec} bodies into {@code SensorData} or {@code List<SensorData>},
+ * so the existing upload endpoints accept the binary format through content negotiation.
+ */
+public class SensorFrameMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private final int maxFrames;
+
+    public SensorFrameMessageConverter(int maxFrames) {
+        super(MediaType.parseMediaType(SensorFrameCodec.MEDIA_TYPE));
+        this.maxFrames = maxFrames;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SensorData.class == clazz || List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (type == SensorData.class || isSensorDataList(type)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        boolean list = isSensorDataList(type);
+        int limit = (list ? maxFrames : 1) * SensorFrameCodec.FRAME_SIZE;
+        byte[] body = inputMessage.getBody().readNBytes(limit + 1);
+        if (body.length > limit) {
+            throw new HttpMessageNotReadableException("Frame body exceeds " + limit + " bytes", inputMessage);
+        }
+        try {
+            return list ? SensorFrameCodec.decodeAll(body) : SensorFrameCodec.decode(body);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object o, Type type, HttpOutputMessage outputMessage) {
+        throw new UnsupportedOperationException("Sensor frames are request-only");
+    }
+
+    private static boolean isSensorDataList(Type type) {
+        return type instanceof ParameterizedType p
+                && p.getRawType() == List.class
+                && p.getActualTypeArguments()[0] == SensorData.class;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.IOT_service.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+@Profile("kafka")
+public class KafkaTopicConfig {
+
+    @Bean
+    public NewTopic sensorReadingsTopic(@Value("${iot.kafka.topic.sensor-readings:sensor-readings}") String topic,
+                                        @Value("${iot.kafka.topic.partitions:6}") int partitions) {
+        return TopicBuilder.name(topic)
+                .partitions(partitions)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic sensorAlertsTopic(@Value("${iot.kafka.topic.sensor-alerts:sensor-alerts}") String topic,
+                                      @Value("${iot.kafka.topic.partitions:6}") int partitions) {
+        return TopicBuilder.name(topic)
+                .partitions(partitions)
+                .replicas(1)
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.IOT_service.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+// Logs which threading model request handling ended up on, since virtual threads need Java 21+
+@Component
+@Slf4j
+public class ThreadingModeReporter {
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report(ApplicationReadyEvent event) {
+        Environment env = event.getApplicationContext().getEnvironment();
+        boolean requested = env.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        // Same rule Boot applies: the property only takes effect on Java 21+
+        boolean virtual = requested && Runtime.version().feature() >= 21;
+
+        if (virtual) {
+            log.info("Request handling runs on virtual threads (Java {})", Runtime.version().feature());
+        } else if (requested) {
+            log.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; using platform threads",
+                    Runtime.version().feature());
+        } else {
+            log.info("Request handling runs on platform threads (max {})",
+                    env.getProperty("server.tomcat.threads.max", "200"));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.IOT_service.config;
+
+import com.example.IOT_service.codec.SensorFrameMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Value("${iot.ingest.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    // Binary device frames (application/vnd.smartcare.sensor-frame) alongside JSON
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new SensorFrameMessageConverter(maxBatchSize));
+    }
+}
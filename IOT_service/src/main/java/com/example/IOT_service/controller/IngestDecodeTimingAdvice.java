@@ -0,0 +1,50 @@
+package com.example.IOT_service.controller;
+
+import com.example.IOT_service.service.IngestMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+// Times request body decoding (JSON or binary frame) for the device upload endpoints
+@ControllerAdvice(assignableTypes = SensorDataController.class)
+@RequiredArgsConstructor
+public class IngestDecodeTimingAdvice extends RequestBodyAdviceAdapter {
+
+    static final String DECODE_START = IngestDecodeTimingAdvice.class.getName() + ".start";
+
+    private final IngestMetrics ingestMetrics;
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return methodParameter.getMethod() != null
+                && methodParameter.getMethod().getName().startsWith("receive")
+                && methodParameter.getMethod().getName().endsWith("FromDevice");
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                           Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestContextHolder.currentRequestAttributes()
+                .setAttribute(DECODE_START, System.nanoTime(), RequestAttributes.SCOPE_REQUEST);
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        Object start = RequestContextHolder.currentRequestAttributes()
+                .getAttribute(DECODE_START, RequestAttributes.SCOPE_REQUEST);
+        if (start instanceof Long startNanos) {
+            ingestMetrics.record(IngestMetrics.Stage.DECODE, startNanos);
+        }
+        return body;
+    }
+}
@@ -1,14 +1,42 @@
 package com.example.IOT_service.controller;
 
 import com.example.IOT_service.model.Device;
+import com.example.IOT_service.model.ExportFormat;
 import com.example.IOT_service.model.SensorData;
+import com.example.IOT_service.service.DeviceLivenessTracker;
+import com.example.IOT_service.service.DeviceRateLimiter;
 import com.example.IOT_service.service.DeviceService;
+import com.example.IOT_service.service.IngestDeduplicator;
+import com.example.IOT_service.service.IngestMetrics;
+import com.example.IOT_service.service.IngestMetrics.Stage;
+import com.example.IOT_service.service.RecentVitalsStore;
+import com.example.IOT_service.service.SensorDataExportService;
 import com.example.IOT_service.service.SensorDataService;
+import com.example.IOT_service.service.SensorIngestQueue;
+import com.example.IOT_service.service.SensorLiveStream;
+import com.example.IOT_service.service.SensorRollupService;
+import com.example.IOT_service.service.SignalQualityScorer;
+import com.example.IOT_service.dto.DeviceLivenessCounts;
+import com.example.IOT_service.dto.DevicePage;
+import com.example.IOT_service.dto.DeviceProvisionRequest;
+import com.example.IOT_service.dto.DeviceProvisionResult;
+import com.example.IOT_service.dto.DeviceStatus;
+import com.example.IOT_service.dto.RecentSeriesResponse;
+import com.example.IOT_service.dto.SensorHistoryResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.example.IOT_service.dto.DeviceAssignmentRequest;
+import com.example.IOT_service.util.LogRateLimiter;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,36 +50,180 @@ public class SensorDataController {
 
     private final SensorDataService sensorDataService;
     private final DeviceService deviceService;
+    private final SensorIngestQueue ingestQueue;
+    private final SensorLiveStream liveStream;
+    private final SensorRollupService rollupService;
+    private final RecentVitalsStore recentVitalsStore;
+    private final DeviceRateLimiter rateLimiter;
+    private final IngestDeduplicator deduplicator;
+    private final IngestMetrics ingestMetrics;
+    private final SensorDataExportService exportService;
+    private final SignalQualityScorer signalQuality;
+    private final DeviceLivenessTracker livenessTracker;
 
-    // Device upload endpoint for hosted use
+    // Tells the gateway which patient a device belongs to, so it can shard its uploads by patient
+    static final String USER_ID_HEADER = "X-User-Id";
+
+    // Per-request INFO lines are capped; at 1 Hz per device they used to dominate log volume
+    private final LogRateLimiter uploadLog = new LogRateLimiter(1);
+
+    @Value("${iot.ingest.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    // Device upload endpoint for hosted use; body is JSON or a 40-byte binary frame (SensorFrameCodec)
     @PostMapping("/device/upload")
     public ResponseEntity<?> receiveFromDevice(
             @RequestHeader("X-Device-Id") String deviceId,
             @RequestHeader("X-Device-Token") String deviceToken,
-            @RequestBody SensorData data) {
-
-        log.info("Incoming device upload: deviceId={} bpm={} spo2={}", deviceId, data.getBpm(), data.getSpo2());
+            @RequestBody SensorData data,
+            HttpServletResponse servletResponse) {
 
+        long t = System.nanoTime();
         Device device = deviceService.validateDevice(deviceId, deviceToken);
+        if (device.getUserId() != null) {
+            servletResponse.setHeader(USER_ID_HEADER, String.valueOf(device.getUserId()));
+        }
+        livenessTracker.heartbeat(device);
+        rateLimiter.acquire(device.getDeviceId());
+        ingestMetrics.countUpload(device.getDeviceId(), 1);
+
+        // Retried upload of a reading we already have: acknowledge it without storing it again
+        if (!deduplicator.firstSeen(device.getDeviceId(), data.getReceivedAt())) {
+            ingestMetrics.record(Stage.VALIDATE, t);
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "duplicate", true,
+                    "userId", device.getUserId(),
+                    "deviceId", device.getDeviceId()
+            ));
+        }
+        t = ingestMetrics.record(Stage.VALIDATE, t);
 
         data.setUserId(device.getUserId());
         data.setDeviceId(device.getDeviceId());
 
-        SensorData saved = sensorDataService.save(data);
+        // Finger off the sensor or motion artefact: in drop mode acknowledged but not stored
+        if (!signalQuality.admit(data)) {
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "dropped", true,
+                    "signalQuality", data.getSignalQuality(),
+                    "userId", device.getUserId(),
+                    "deviceId", device.getDeviceId()
+            ));
+        }
 
-        log.info("Saved: id={} userId={} deviceId={} bpm={} spo2={}",
-                saved.getId(),
-                saved.getUserId(),
-                saved.getDeviceId(),
-                saved.getBpm(),
-                saved.getSpo2());
+        // Write-behind: hand the reading to the ingest writer and release the request thread
+        if (ingestQueue.isEnabled()) {
+            try {
+                ingestQueue.enqueue(data);
+            } catch (RuntimeException e) {
+                // 503: the device retries, which must not look like a duplicate
+                deduplicator.forget(device.getDeviceId(), data.getReceivedAt());
+                throw e;
+            }
+            t = ingestMetrics.record(Stage.ENQUEUE, t);
+            ResponseEntity<?> response = ResponseEntity.accepted().body(Map.of(
+                    "success", true,
+                    "queued", true,
+                    "userId", device.getUserId(),
+                    "deviceId", device.getDeviceId()
+            ));
+            ingestMetrics.record(Stage.RESPONSE, t);
+            return response;
+        }
 
-        return ResponseEntity.ok(Map.of(
+        SensorData saved;
+        try {
+            saved = sensorDataService.save(data);
+        } catch (RuntimeException e) {
+            deduplicator.forget(device.getDeviceId(), data.getReceivedAt());
+            throw e;
+        }
+        t = ingestMetrics.record(Stage.SAVE, t);
+
+        long skipped = uploadLog.acquire();
+        if (skipped >= 0) {
+            log.info("Saved: id={} userId={} deviceId={} bpm={} spo2={} (+{} uploads not logged)",
+                    saved.getId(), saved.getUserId(), saved.getDeviceId(), saved.getBpm(), saved.getSpo2(), skipped);
+        }
+
+        ResponseEntity<?> response = ResponseEntity.ok(Map.of(
                 "success", true,
                 "id", saved.getId(),
                 "userId", saved.getUserId(),
                 "deviceId", saved.getDeviceId()
         ));
+        ingestMetrics.record(Stage.RESPONSE, t);
+        return response;
+    }
+
+    // Batched device upload: devices flush readings buffered during Wi-Fi drops in one request
+    // (JSON array or concatenated binary frames)
+    @PostMapping("/device/upload/batch")
+    public ResponseEntity<?> receiveBatchFromDevice(
+            @RequestHeader("X-Device-Id") String deviceId,
+            @RequestHeader("X-Device-Token") String deviceToken,
+            @RequestBody List<SensorData> readings,
+            HttpServletResponse servletResponse) {
+
+        if (readings == null || readings.isEmpty()) {
+            throw new RuntimeException("Batch must contain at least one reading");
+        }
+        if (readings.size() > maxBatchSize) {
+            throw new RuntimeException("Batch exceeds maximum of " + maxBatchSize + " readings");
+        }
+
+        long t = System.nanoTime();
+        Device device = deviceService.validateDevice(deviceId, deviceToken);
+        if (device.getUserId() != null) {
+            servletResponse.setHeader(USER_ID_HEADER, String.valueOf(device.getUserId()));
+        }
+        livenessTracker.heartbeat(device);
+        rateLimiter.acquire(device.getDeviceId());
+        ingestMetrics.countUpload(device.getDeviceId(), readings.size());
+
+        int before = readings.size();
+        readings.removeIf(data -> !deduplicator.firstSeen(device.getDeviceId(), data.getReceivedAt()));
+        int duplicates = before - readings.size();
+        List<SensorData> claimed = List.copyOf(readings);
+        t = ingestMetrics.record(Stage.VALIDATE, t);
+
+        for (SensorData data : readings) {
+            data.setId(null);
+            data.setUserId(device.getUserId());
+            data.setDeviceId(device.getDeviceId());
+        }
+        int scored = readings.size();
+        readings.removeIf(data -> !signalQuality.admit(data));
+        int dropped = scored - readings.size();
+
+        List<SensorData> saved;
+        try {
+            saved = readings.isEmpty() ? List.of() : sensorDataService.saveAll(readings);
+        } catch (RuntimeException e) {
+            // Nothing was stored; the device re-sends the whole batch
+            claimed.forEach(data -> deduplicator.forget(device.getDeviceId(), data.getReceivedAt()));
+            throw e;
+        }
+        t = ingestMetrics.record(Stage.SAVE, t);
+
+        long skipped = uploadLog.acquire();
+        if (skipped >= 0) {
+            log.info("Saved batch: count={} duplicates={} dropped={} userId={} deviceId={} (+{} uploads not logged)",
+                    saved.size(), duplicates, dropped, device.getUserId(), device.getDeviceId(), skipped);
+        }
+
+        ResponseEntity<?> response = ResponseEntity.ok(Map.of(
+                "success", true,
+                "count", saved.size(),
+                "duplicates", duplicates,
+                "dropped", dropped,
+                "userId", device.getUserId(),
+                "deviceId", device.getDeviceId()
+        ));
+        ingestMetrics.record(Stage.RESPONSE, t);
+        return response;
     }
 
     // Optional localhost test endpoint - keep only during testing
@@ -74,6 +246,57 @@ public class SensorDataController {
                 .orElse(ResponseEntity.ok(Map.of("message", "No data yet")));
     }
 
+    // Aggregated history (1m / 15m / 1h buckets, or raw readings including archived days);
+    // resolution defaults to the finest bucket size that fits maxPoints
+    @GetMapping("/patient/{userId}/history")
+    public ResponseEntity<SensorHistoryResponse> getHistory(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String resolution,
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        return ResponseEntity.ok(rollupService.getHistory(userId, from, to, resolution, maxPoints));
+    }
+
+    // Last-day chart series from the in-memory store as columnar arrays; defaults to the last hour
+    @GetMapping("/patient/{userId}/series")
+    public ResponseEntity<RecentSeriesResponse> getSeries(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) List<String> metrics) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(1);
+        return ResponseEntity.ok(recentVitalsStore.query(userId, start, end, metrics));
+    }
+
+    // Raw readings for a time range (archived days included) streamed as CSV or NDJSON
+    @GetMapping("/patient/{userId}/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "csv") String format) {
+        ExportFormat exportFormat = ExportFormat.fromLabel(format);
+        StreamingResponseBody body = exportService.export(userId, from, to, exportFormat);
+        String filename = "sensor-" + userId + "-" + from.toLocalDate() + "-" + to.toLocalDate()
+                + "." + exportFormat.getLabel();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    // Push stream of this patient's new readings (text/event-stream, event name "reading")
+    @GetMapping(value = "/patient/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@PathVariable Long userId) {
+        SseEmitter emitter = liveStream.subscribe(userId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     @GetMapping("/health")
     public ResponseEntity<?> health() {
         return ResponseEntity.ok(Map.of(
@@ -94,8 +317,33 @@ public class SensorDataController {
         ));
     }
 
+    // Bulk create / assign / activate; returns created and updated counts plus rejected entries
+    @PostMapping("/devices/bulk")
+    public ResponseEntity<DeviceProvisionResult> provisionDevices(@RequestBody List<DeviceProvisionRequest> requests) {
+        DeviceProvisionResult result = deviceService.provisionDevices(requests);
+        log.info("Bulk provisioning: created={} updated={} rejected={}",
+                result.getCreated(), result.getUpdated(), result.getRejected().size());
+        return ResponseEntity.ok(result);
+    }
+
+    // Keyset-paged device listing (tokens are never returned); continue with afterId=nextAfterId
     @GetMapping("/devices")
-    public ResponseEntity<?> getAllDevices() {
-        return ResponseEntity.ok(deviceService.getAllDevices());
+    public ResponseEntity<DevicePage> getDevices(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long userId) {
+        return ResponseEntity.ok(deviceService.listDevices(afterId, limit, status, userId));
+    }
+
+    // Online/offline counts of active devices, based on the periodically flushed last-seen times
+    @GetMapping("/devices/liveness")
+    public ResponseEntity<DeviceLivenessCounts> getDeviceLiveness() {
+        return ResponseEntity.ok(livenessTracker.counts());
+    }
+
+    @GetMapping("/devices/{deviceId}/status")
+    public ResponseEntity<DeviceStatus> getDeviceStatus(@PathVariable String deviceId) {
+        return ResponseEntity.ok(livenessTracker.status(deviceId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.example.IOT_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Active devices by liveness, from the flushed last_seen_at values (all replicas)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceLivenessCounts {
+    private long online;
+    private long offline;
+    private long neverSeen;
+    private long offlineAfterSeconds;
+}
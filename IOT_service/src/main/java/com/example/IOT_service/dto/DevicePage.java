@@ -0,0 +1,16 @@
+package com.example.IOT_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One keyset page; pass nextAfterId as afterId to get the next page (null on the last page)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DevicePage {
+    private List<DeviceSummary> items;
+    private Long nextAfterId;
+}
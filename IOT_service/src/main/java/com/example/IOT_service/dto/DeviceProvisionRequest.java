@@ -0,0 +1,12 @@
+package com.example.IOT_service.dto;
+
+import lombok.Data;
+
+// One entry of a bulk provisioning request; null fields leave an existing device's value unchanged
+@Data
+public class DeviceProvisionRequest {
+    private String deviceId;
+    private String deviceToken;
+    private Long userId;
+    private String status;
+}
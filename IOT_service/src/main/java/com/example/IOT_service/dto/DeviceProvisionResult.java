@@ -0,0 +1,23 @@
+package com.example.IOT_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceProvisionResult {
+    private int created;
+    private int updated;
+    private List<Rejected> rejected;
+
+    @Data
+    @AllArgsConstructor
+    public static class Rejected {
+        private String deviceId;
+        private String reason;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.IOT_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Liveness of one device; source is "memory" when this instance receives its uploads, else "database"
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceStatus {
+    private String deviceId;
+    private Long userId;
+    private boolean online;
+    private LocalDateTime lastSeenAt;
+    private Long silentForSeconds;
+    private String source;
+}
@@ -0,0 +1,26 @@
+package com.example.IOT_service.dto;
+
+import com.example.IOT_service.model.Device;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Device as returned by the listing API - never includes the token
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceSummary {
+    private Long id;
+    private String deviceId;
+    private Long userId;
+    private String status;
+    // As of the last liveness flush; GET /devices/{deviceId}/status has the live value
+    private LocalDateTime lastSeenAt;
+
+    public static DeviceSummary from(Device device) {
+        return new DeviceSummary(device.getId(), device.getDeviceId(), device.getUserId(), device.getStatus(),
+                device.getLastSeenAt());
+    }
+}
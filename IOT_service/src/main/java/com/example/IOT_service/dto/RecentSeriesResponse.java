@@ -0,0 +1,23 @@
+package com.example.IOT_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Columnar chart data: timestamps (epoch millis of receivedAt in the server zone) and one array per
+ * requested metric, index-aligned. Missing values are NaN (serialized as "NaN").
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecentSeriesResponse {
+    private Long userId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private long[] timestamps;
+    private Map<String, double[]> series;
+}
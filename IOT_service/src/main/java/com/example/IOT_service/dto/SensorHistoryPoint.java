@@ -0,0 +1,57 @@
+package com.example.IOT_service.dto;
+
+import com.example.IOT_service.model.SensorData;
+import com.example.IOT_service.model.SensorRollup;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorHistoryPoint {
+    private LocalDateTime bucketStart;
+    private long samples;
+    private Double bpmMin;
+    private Double bpmMax;
+    private Double bpmAvg;
+    private Double spo2Min;
+    private Double spo2Max;
+    private Double spo2Avg;
+    private Double roomTempMin;
+    private Double roomTempMax;
+    private Double roomTempAvg;
+    private Double humidityMin;
+    private Double humidityMax;
+    private Double humidityAvg;
+
+    public static SensorHistoryPoint from(SensorRollup r) {
+        return new SensorHistoryPoint(
+                r.getBucketStart(),
+                r.getSampleCount(),
+                r.getBpmMin(), r.getBpmMax(), avg(r.getBpmSum(), r.getBpmCount()),
+                r.getSpo2Min(), r.getSpo2Max(), avg(r.getSpo2Sum(), r.getSpo2Count()),
+                r.getRoomTempMin(), r.getRoomTempMax(), avg(r.getRoomTempSum(), r.getRoomTempCount()),
+                r.getHumidityMin(), r.getHumidityMax(), avg(r.getHumiditySum(), r.getHumidityCount())
+        );
+    }
+
+    // Raw resolution: one point per reading
+    public static SensorHistoryPoint from(SensorData d) {
+        Double spo2 = d.getSpo2() == null ? null : d.getSpo2().doubleValue();
+        return new SensorHistoryPoint(
+                d.getReceivedAt(),
+                1,
+                d.getBpm(), d.getBpm(), d.getBpm(),
+                spo2, spo2, spo2,
+                d.getRoomTemp(), d.getRoomTemp(), d.getRoomTemp(),
+                d.getHumidity(), d.getHumidity(), d.getHumidity()
+        );
+    }
+
+    private static Double avg(Double sum, Long count) {
+        return sum == null || count == null || count == 0 ? null : sum / count;
+    }
+}
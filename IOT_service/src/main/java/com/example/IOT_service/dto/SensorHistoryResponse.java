@@ -0,0 +1,19 @@
+package com.example.IOT_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorHistoryResponse {
+    private Long userId;
+    private String resolution;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private List<SensorHistoryPoint> points;
+}
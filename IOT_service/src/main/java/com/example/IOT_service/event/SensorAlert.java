@@ -0,0 +1,24 @@
+package com.example.IOT_service.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Raised by the anomaly detector when a metric enters ({@code active = true}) or leaves an
+ * alarm state. Published as a Spring application event on the ingest thread.
+ */
+public record SensorAlert(
+        Long userId,
+        String deviceId,
+        Metric metric,
+        Type type,
+        boolean active,
+        double value,
+        double reference,
+        LocalDateTime at
+) {
+
+    public enum Metric { BPM, SPO2, AVG_BPM }
+
+    /** LOW/HIGH: absolute threshold crossed (reference = threshold); DEVIATION: far from the patient's baseline (reference = baseline mean). */
+    public enum Type { LOW, HIGH, DEVIATION }
+}
@@ -0,0 +1,30 @@
+package com.example.IOT_service.event;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Logs every alert transition and counts raised alerts per metric and type
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorAlertLogger {
+
+    private final MeterRegistry meterRegistry;
+
+    @EventListener
+    public void onAlert(SensorAlert alert) {
+        if (alert.active()) {
+            meterRegistry.counter("iot.anomaly.alerts",
+                    "metric", alert.metric().name(),
+                    "type", alert.type().name()).increment();
+            log.warn("Sensor alert raised: userId={} deviceId={} {} {} value={} reference={}",
+                    alert.userId(), alert.deviceId(), alert.metric(), alert.type(), alert.value(), alert.reference());
+        } else {
+            log.info("Sensor alert cleared: userId={} {} {} value={}",
+                    alert.userId(), alert.metric(), alert.type(), alert.value());
+        }
+    }
+}
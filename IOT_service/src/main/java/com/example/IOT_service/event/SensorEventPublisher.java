@@ -0,0 +1,66 @@
+package com.example.IOT_service.event;
+
+import com.example.IOT_service.model.SensorData;
+import com.example.IOT_service.service.SensorDataListener;
+import com.example.IOT_service.service.SignalQualityScorer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+// Publishes every committed reading, and every anomaly alert, to Kafka when the "kafka" profile is active
+@Component
+@Profile("kafka")
+@Slf4j
+public class SensorEventPublisher implements SensorDataListener {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final SignalQualityScorer signalQuality;
+    private final String topic;
+    private final String alertTopic;
+    private final Counter failures;
+
+    public SensorEventPublisher(KafkaTemplate<String, Object> kafkaTemplate,
+                                SignalQualityScorer signalQuality,
+                                MeterRegistry meterRegistry,
+                                @Value("${iot.kafka.topic.sensor-readings:sensor-readings}") String topic,
+                                @Value("${iot.kafka.topic.sensor-alerts:sensor-alerts}") String alertTopic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.signalQuality = signalQuality;
+        this.topic = topic;
+        this.alertTopic = alertTopic;
+        this.failures = Counter.builder("iot.kafka.publish.failures")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onSaved(SensorData data) {
+        // mainservice triages what it receives, so flagged low-quality readings are not sent
+        if (data.getUserId() == null || signalQuality.isLowQuality(data)) {
+            return;
+        }
+        // Asynchronous send; the producer batches records per partition
+        kafkaTemplate.send(topic, String.valueOf(data.getUserId()), SensorReadingEvent.from(data))
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        failures.increment();
+                        log.warn("Failed to publish reading id={}: {}", data.getId(), ex.getMessage());
+                    }
+                });
+    }
+
+    @EventListener
+    public void onAlert(SensorAlert alert) {
+        kafkaTemplate.send(alertTopic, String.valueOf(alert.userId()), alert)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        failures.increment();
+                        log.warn("Failed to publish {} alert for userId={}: {}", alert.metric(), alert.userId(), ex.getMessage());
+                    }
+                });
+    }
+}
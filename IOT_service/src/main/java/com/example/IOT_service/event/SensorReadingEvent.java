@@ -0,0 +1,40 @@
+package com.example.IOT_service.event;
+
+import com.example.IOT_service.model.SensorData;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.ZoneOffset;
+
+/**
+ * Compact form of a saved reading published to Kafka, keyed by userId so all readings of
+ * one patient land on the same partition in order. Null metrics are omitted from the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SensorReadingEvent(
+        Long id,
+        Long userId,
+        String deviceId,
+        long ts,
+        Double bpm,
+        Integer avgBpm,
+        Integer spo2,
+        Double roomTemp,
+        Double humidity,
+        Double waterTempC
+) {
+
+    public static SensorReadingEvent from(SensorData data) {
+        return new SensorReadingEvent(
+                data.getId(),
+                data.getUserId(),
+                data.getDeviceId(),
+                data.getReceivedAt().toInstant(ZoneOffset.UTC).toEpochMilli(),
+                data.getBpm(),
+                data.getAvgBpm(),
+                data.getSpo2(),
+                data.getRoomTemp(),
+                data.getHumidity(),
+                data.getWaterTempC()
+        );
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.IOT_service.exception;
+
+// Thrown when the write-behind queue cannot accept more readings; mapped to 503 + Retry-After
+public class IngestQueueFullException extends RuntimeException {
+
+    public IngestQueueFullException(String message) {
+        super(message);
+    }
+}
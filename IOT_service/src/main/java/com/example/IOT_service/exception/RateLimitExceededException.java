@@ -0,0 +1,16 @@
+package com.example.IOT_service.exception;
+
+// Thrown when a device uploads faster than its rate limit; mapped to 429 + Retry-After
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
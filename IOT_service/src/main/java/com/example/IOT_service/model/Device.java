@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Table(name = "devices")
 @Data
@@ -12,8 +14,10 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class Device {
 
+    // Pooled sequence (see V4__devices_sequence.sql) so bulk provisioning inserts are batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "devices_seq")
+    @SequenceGenerator(name = "devices_seq", sequenceName = "devices_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "device_id", unique = true, nullable = false)
@@ -27,4 +31,8 @@ public class Device {
 
     @Column(name = "status", nullable = false)
     private String status; // ACTIVE / INACTIVE
+
+    // Written only by DeviceLivenessTracker's batched flush, never through the entity
+    @Column(name = "last_seen_at", insertable = false, updatable = false)
+    private LocalDateTime lastSeenAt;
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.example.IOT_service.model;
+
+import java.util.Arrays;
+
+public enum ExportFormat {
+    CSV("csv", "text/csv"),
+    NDJSON("ndjson", "application/x-ndjson");
+
+    private final String label;
+    private final String mediaType;
+
+    ExportFormat(String label, String mediaType) {
+        this.label = label;
+        this.mediaType = mediaType;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public static ExportFormat fromLabel(String label) {
+        return Arrays.stream(values())
+                .filter(f -> f.label.equalsIgnoreCase(label))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Unknown export format: " + label));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.IOT_service.model;
+
+import java.util.Arrays;
+
+public enum RollupResolution {
+    MINUTE("1m", 60),
+    QUARTER_HOUR("15m", 900),
+    HOUR("1h", 3600);
+
+    private final String label;
+    private final int seconds;
+
+    RollupResolution(String label, int seconds) {
+        this.label = label;
+        this.seconds = seconds;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+
+    public static RollupResolution fromLabel(String label) {
+        return Arrays.stream(values())
+                .filter(r -> r.label.equalsIgnoreCase(label))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Unknown resolution: " + label));
+    }
+}
@@ -14,8 +14,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class SensorData {
 
+    // Sequence ids (pooled in blocks of 50) let Hibernate batch inserts; IDENTITY disables JDBC batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sensor_data_seq")
+    @SequenceGenerator(name = "sensor_data_seq", sequenceName = "sensor_data_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id")
@@ -51,6 +53,10 @@ public class SensorData {
     @Column(name = "received_at")
     private LocalDateTime receivedAt;
 
+    // 0-100, set by SignalQualityScorer at ingest; null for rows stored before scoring
+    @Column(name = "signal_quality")
+    private Integer signalQuality;
+
     @PrePersist
     protected void onCreate() {
         if (receivedAt == null) {
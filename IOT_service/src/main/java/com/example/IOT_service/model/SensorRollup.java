@@ -0,0 +1,81 @@
+package com.example.IOT_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Written only through the native upserts in SensorRollupRepository
+@Entity
+@Table(name = "sensor_rollup")
+@IdClass(SensorRollupId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorRollup {
+
+    @Id
+    @Column(name = "resolution_seconds")
+    private Integer resolutionSeconds;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Column(name = "sample_count")
+    private Long sampleCount;
+
+    @Column(name = "bpm_count")
+    private Long bpmCount;
+
+    @Column(name = "bpm_min")
+    private Double bpmMin;
+
+    @Column(name = "bpm_max")
+    private Double bpmMax;
+
+    @Column(name = "bpm_sum")
+    private Double bpmSum;
+
+    @Column(name = "spo2_count")
+    private Long spo2Count;
+
+    @Column(name = "spo2_min")
+    private Double spo2Min;
+
+    @Column(name = "spo2_max")
+    private Double spo2Max;
+
+    @Column(name = "spo2_sum")
+    private Double spo2Sum;
+
+    @Column(name = "room_temp_count")
+    private Long roomTempCount;
+
+    @Column(name = "room_temp_min")
+    private Double roomTempMin;
+
+    @Column(name = "room_temp_max")
+    private Double roomTempMax;
+
+    @Column(name = "room_temp_sum")
+    private Double roomTempSum;
+
+    @Column(name = "humidity_count")
+    private Long humidityCount;
+
+    @Column(name = "humidity_min")
+    private Double humidityMin;
+
+    @Column(name = "humidity_max")
+    private Double humidityMax;
+
+    @Column(name = "humidity_sum")
+    private Double humiditySum;
+}
@@ -0,0 +1,17 @@
+package com.example.IOT_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorRollupId implements Serializable {
+    private Integer resolutionSeconds;
+    private Long userId;
+    private LocalDateTime bucketStart;
+}
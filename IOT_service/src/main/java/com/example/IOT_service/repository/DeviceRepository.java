@@ -1,11 +1,28 @@
 package com.example.IOT_service.repository;
 
 import com.example.IOT_service.model.Device;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface DeviceRepository extends JpaRepository<Device, Long> {
     Optional<Device> findByDeviceIdAndDeviceTokenAndStatus(String deviceId, String deviceToken, String status);
     Optional<Device> findByDeviceId(String deviceId);
-}
\ No newline at end of file
+
+    List<Device> findByDeviceIdIn(Collection<String> deviceIds);
+
+    // Keyset page: devices with id > afterId, optionally filtered; the Pageable only carries the limit
+    @Query("SELECT d FROM Device d WHERE d.id > :afterId " +
+            "AND (:status IS NULL OR d.status = :status) " +
+            "AND (:userId IS NULL OR d.userId = :userId) " +
+            "ORDER BY d.id")
+    List<Device> findPage(@Param("afterId") long afterId,
+                          @Param("status") String status,
+                          @Param("userId") Long userId,
+                          Pageable pageable);
+}
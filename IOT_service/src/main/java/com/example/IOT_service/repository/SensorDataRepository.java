@@ -1,10 +1,13 @@
 package com.example.IOT_service.repository;
 
 import com.example.IOT_service.model.SensorData;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +19,14 @@ public interface SensorDataRepository extends JpaRepository<SensorData, Long> {
     List<SensorData> findLatestForUser(Long userId, int limit);
 
     Optional<SensorData> findTopByUserIdOrderByReceivedAtDesc(Long userId);
+
+    @Query("SELECT s FROM SensorData s WHERE s.userId = :userId AND s.receivedAt >= :from AND s.receivedAt < :to " +
+            "ORDER BY s.receivedAt, s.id")
+    List<SensorData> findRangeForUser(@Param("userId") Long userId,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to,
+                                      Pageable pageable);
+
+    @Query("SELECT MIN(s.receivedAt) FROM SensorData s")
+    LocalDateTime findOldestReceivedAt();
 }
\ No newline at end of file
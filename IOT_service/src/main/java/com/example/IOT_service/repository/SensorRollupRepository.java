@@ -0,0 +1,93 @@
+package com.example.IOT_service.repository;
+
+import com.example.IOT_service.model.SensorRollup;
+import com.example.IOT_service.model.SensorRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SensorRollupRepository extends JpaRepository<SensorRollup, SensorRollupId> {
+
+    // Rebuild the finest buckets from raw rows in [from, to); both bounds must be bucket-aligned.
+    // bpm and spo2 of readings below minQuality (see SignalQualityScorer) are left out
+    @Modifying
+    @Query(value = """
+            INSERT INTO sensor_rollup (resolution_seconds, user_id, bucket_start, sample_count,
+                bpm_count, bpm_min, bpm_max, bpm_sum,
+                spo2_count, spo2_min, spo2_max, spo2_sum,
+                room_temp_count, room_temp_min, room_temp_max, room_temp_sum,
+                humidity_count, humidity_min, humidity_max, humidity_sum)
+            SELECT :resolution, user_id, date_bin(make_interval(secs => :resolution), received_at, TIMESTAMP '2000-01-01'),
+                count(*),
+                count(bpm), min(bpm), max(bpm), sum(bpm),
+                count(spo2), min(spo2), max(spo2), sum(spo2),
+                count(room_temp), min(room_temp), max(room_temp), sum(room_temp),
+                count(humidity), min(humidity), max(humidity), sum(humidity)
+            FROM (SELECT user_id, received_at, room_temp, humidity,
+                    CASE WHEN signal_quality < :minQuality THEN NULL ELSE bpm END AS bpm,
+                    CASE WHEN signal_quality < :minQuality THEN NULL ELSE spo2 END AS spo2
+                FROM sensor_data
+                WHERE received_at >= :from AND received_at < :to AND user_id IS NOT NULL) raw
+            GROUP BY user_id, 3
+            ON CONFLICT (resolution_seconds, user_id, bucket_start) DO UPDATE SET
+                sample_count = EXCLUDED.sample_count,
+                bpm_count = EXCLUDED.bpm_count, bpm_min = EXCLUDED.bpm_min,
+                bpm_max = EXCLUDED.bpm_max, bpm_sum = EXCLUDED.bpm_sum,
+                spo2_count = EXCLUDED.spo2_count, spo2_min = EXCLUDED.spo2_min,
+                spo2_max = EXCLUDED.spo2_max, spo2_sum = EXCLUDED.spo2_sum,
+                room_temp_count = EXCLUDED.room_temp_count, room_temp_min = EXCLUDED.room_temp_min,
+                room_temp_max = EXCLUDED.room_temp_max, room_temp_sum = EXCLUDED.room_temp_sum,
+                humidity_count = EXCLUDED.humidity_count, humidity_min = EXCLUDED.humidity_min,
+                humidity_max = EXCLUDED.humidity_max, humidity_sum = EXCLUDED.humidity_sum
+            """, nativeQuery = true)
+    int rollupRaw(@Param("resolution") int resolutionSeconds,
+                  @Param("from") LocalDateTime from,
+                  @Param("to") LocalDateTime to,
+                  @Param("minQuality") int minQuality);
+
+    // Rebuild coarser buckets by merging finer ones in [from, to); both bounds must be aligned to the coarser resolution
+    @Modifying
+    @Query(value = """
+            INSERT INTO sensor_rollup (resolution_seconds, user_id, bucket_start, sample_count,
+                bpm_count, bpm_min, bpm_max, bpm_sum,
+                spo2_count, spo2_min, spo2_max, spo2_sum,
+                room_temp_count, room_temp_min, room_temp_max, room_temp_sum,
+                humidity_count, humidity_min, humidity_max, humidity_sum)
+            SELECT :resolution, user_id, date_bin(make_interval(secs => :resolution), bucket_start, TIMESTAMP '2000-01-01'),
+                sum(sample_count),
+                sum(bpm_count), min(bpm_min), max(bpm_max), sum(bpm_sum),
+                sum(spo2_count), min(spo2_min), max(spo2_max), sum(spo2_sum),
+                sum(room_temp_count), min(room_temp_min), max(room_temp_max), sum(room_temp_sum),
+                sum(humidity_count), min(humidity_min), max(humidity_max), sum(humidity_sum)
+            FROM sensor_rollup
+            WHERE resolution_seconds = :source AND bucket_start >= :from AND bucket_start < :to
+            GROUP BY user_id, 3
+            ON CONFLICT (resolution_seconds, user_id, bucket_start) DO UPDATE SET
+                sample_count = EXCLUDED.sample_count,
+                bpm_count = EXCLUDED.bpm_count, bpm_min = EXCLUDED.bpm_min,
+                bpm_max = EXCLUDED.bpm_max, bpm_sum = EXCLUDED.bpm_sum,
+                spo2_count = EXCLUDED.spo2_count, spo2_min = EXCLUDED.spo2_min,
+                spo2_max = EXCLUDED.spo2_max, spo2_sum = EXCLUDED.spo2_sum,
+                room_temp_count = EXCLUDED.room_temp_count, room_temp_min = EXCLUDED.room_temp_min,
+                room_temp_max = EXCLUDED.room_temp_max, room_temp_sum = EXCLUDED.room_temp_sum,
+                humidity_count = EXCLUDED.humidity_count, humidity_min = EXCLUDED.humidity_min,
+                humidity_max = EXCLUDED.humidity_max, humidity_sum = EXCLUDED.humidity_sum
+            """, nativeQuery = true)
+    int rollupFrom(@Param("source") int sourceResolutionSeconds,
+                   @Param("resolution") int resolutionSeconds,
+                   @Param("from") LocalDateTime from,
+                   @Param("to") LocalDateTime to);
+
+    @Query("SELECT r FROM SensorRollup r WHERE r.resolutionSeconds = :resolution AND r.userId = :userId " +
+            "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart")
+    List<SensorRollup> findRange(@Param("resolution") int resolutionSeconds,
+                                 @Param("userId") Long userId,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to);
+}
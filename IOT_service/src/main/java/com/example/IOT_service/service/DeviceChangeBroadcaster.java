@@ -0,0 +1,156 @@
+package com.example.IOT_service.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+
+/**
+ * Tells every IOT_service replica that devices changed, so each one drops them from its
+ * {@link DeviceCredentialCache} instead of accepting a reassigned, deactivated or re-tokened
+ * device for up to the cache TTL.
+ *
+ * Changes go out with Postgres NOTIFY on the writer's transaction, so they are delivered
+ * only when it commits (and not at all on rollback). Each replica LISTENs on a dedicated
+ * connection of its own, outside the Hikari pool; while that connection is down the whole
+ * cache is cleared on reconnect, since notifications sent in between are lost.
+ */
+@Component
+@Slf4j
+public class DeviceChangeBroadcaster {
+
+    static final String CHANNEL = "iot_device_changed";
+    // NOTIFY payloads must stay under 8000 bytes
+    private static final int MAX_PAYLOAD = 7000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeviceCredentialCache credentialCache;
+    private final boolean enabled;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final long reconnectDelayMs;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread listener;
+
+    public DeviceChangeBroadcaster(JdbcTemplate jdbcTemplate,
+                                   DeviceCredentialCache credentialCache,
+                                   @Value("${iot.device-cache.notify.enabled:true}") boolean enabled,
+                                   @Value("${iot.device-cache.notify.reconnect-delay-ms:5000}") long reconnectDelayMs,
+                                   @Value("${spring.datasource.url}") String url,
+                                   @Value("${spring.datasource.username:}") String username,
+                                   @Value("${spring.datasource.password:}") String password) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.credentialCache = credentialCache;
+        this.enabled = enabled;
+        this.reconnectDelayMs = reconnectDelayMs;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    /** Queues a notification for the given devices; call inside the transaction that changes them. */
+    public void publish(Collection<String> deviceIds) {
+        if (!enabled || deviceIds.isEmpty()) {
+            return;
+        }
+        StringBuilder payload = new StringBuilder();
+        for (String deviceId : deviceIds) {
+            if (payload.length() > 0 && payload.length() + deviceId.length() + 1 > MAX_PAYLOAD) {
+                notify(payload.toString());
+                payload.setLength(0);
+            }
+            if (payload.length() > 0) {
+                payload.append('\n');
+            }
+            payload.append(deviceId);
+        }
+        notify(payload.toString());
+    }
+
+    private void notify(String payload) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "device-change-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(url, username, password)) {
+                connection = conn;
+                try (Statement statement = conn.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // Anything changed while we were not listening is unknown
+                credentialCache.clear();
+                log.info("Listening for device changes on {}", CHANNEL);
+
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(10_000);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        for (String deviceId : notification.getParameter().split("\n")) {
+                            credentialCache.invalidate(deviceId);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Device change listener lost its connection, retrying in {} ms: {}",
+                        reconnectDelayMs, e.getMessage());
+                credentialCache.clear();
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Connection conn = connection;
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                log.debug("Closing device change listener: {}", e.getMessage());
+            }
+        }
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+}
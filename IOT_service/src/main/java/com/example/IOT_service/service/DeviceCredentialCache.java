@@ -0,0 +1,131 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.model.Device;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded cache of ACTIVE device credentials keyed by deviceId, so validateDevice does not
+ * query Postgres on every upload. Entries expire after a TTL and are dropped explicitly
+ * whenever a device is reassigned.
+ *
+ * A database read can race with a change: the reader loads the old row, the writer commits
+ * and invalidates, then the reader caches what it loaded. To rule that out, callers take a
+ * {@link #stamp} before reading and {@link #put} only caches when no invalidation of that
+ * device (or one sharing its stripe) happened since. Both run under the map's per-key lock.
+ */
+@Component
+public class DeviceCredentialCache {
+
+    private record Entry(Device device, byte[] token, long expiresAtNanos) {
+    }
+
+    private static final int STRIPES = 1024;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Invalidation counters; a collision only costs a skipped put
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public DeviceCredentialCache(MeterRegistry meterRegistry,
+                                 @Value("${iot.device-cache.max-entries:10000}") int maxEntries,
+                                 @Value("${iot.device-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+
+        this.hits = Counter.builder("iot.device.cache.requests")
+                .tag("result", "hit")
+                .description("Device credential lookups served from memory")
+                .register(meterRegistry);
+        this.misses = Counter.builder("iot.device.cache.requests")
+                .tag("result", "miss")
+                .description("Device credential lookups that went to the database")
+                .register(meterRegistry);
+        Gauge.builder("iot.device.cache.size", entries, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached device if the token matches, or null when the caller has to check
+     * the database (unknown, expired or mismatching token, e.g. after a token rotation).
+     */
+    public Device get(String deviceId, String deviceToken) {
+        Entry entry = entries.get(deviceId);
+        if (entry == null || entry.expiresAtNanos() - System.nanoTime() <= 0) {
+            misses.increment();
+            return null;
+        }
+        // Constant-time comparison so response timing does not leak token prefixes
+        if (!MessageDigest.isEqual(entry.token(), deviceToken.getBytes(StandardCharsets.UTF_8))) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.device();
+    }
+
+    /** Version to pass to {@link #put}; take it before reading the device from the database. */
+    public long stamp(String deviceId) {
+        return versions.get(stripe(deviceId));
+    }
+
+    public void put(Device device, long stamp) {
+        if (entries.size() >= maxEntries && !entries.containsKey(device.getDeviceId())) {
+            evict();
+        }
+        int stripe = stripe(device.getDeviceId());
+        Entry entry = new Entry(
+                device,
+                device.getDeviceToken().getBytes(StandardCharsets.UTF_8),
+                System.nanoTime() + ttlNanos);
+        // Skipped when the device was invalidated after the caller's read started
+        entries.compute(device.getDeviceId(), (id, current) -> versions.get(stripe) == stamp ? entry : current);
+    }
+
+    public void invalidate(String deviceId) {
+        int stripe = stripe(deviceId);
+        entries.compute(deviceId, (id, current) -> {
+            versions.incrementAndGet(stripe);
+            return null;
+        });
+    }
+
+    public void clear() {
+        for (int i = 0; i < STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        entries.clear();
+    }
+
+    private static int stripe(String deviceId) {
+        int h = deviceId.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    // Drop expired entries first; if the cache is still full, drop arbitrary ones to make room
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.expiresAtNanos() - now <= 0);
+
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
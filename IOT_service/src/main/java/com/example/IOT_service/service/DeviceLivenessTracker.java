@@ -0,0 +1,265 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.dto.DeviceLivenessCounts;
+import com.example.IOT_service.dto.DeviceStatus;
+import com.example.IOT_service.model.Device;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks when each device last uploaded and marks it offline after a configurable silence.
+ *
+ * An upload only stores the current time in the device's entry; nothing is written to the
+ * database per heartbeat. Online devices sit in a timer wheel with one bucket per tick,
+ * filed under the tick their silence would expire. Each tick the sweeper drains one
+ * bucket: devices heard from since they were filed are moved to their new deadline, the rest
+ * go offline. A device therefore costs one queue operation per offline-after period, not one
+ * per upload. Last-seen times are written to devices.last_seen_at in periodic batches.
+ */
+@Component
+@Slf4j
+public class DeviceLivenessTracker {
+
+    private static final class Entry {
+        final String deviceId;
+        volatile Long userId;
+        volatile long lastSeenMillis;
+        volatile long flushedMillis;
+        volatile boolean wentOffline;
+        final AtomicBoolean online = new AtomicBoolean();
+
+        Entry(String deviceId) {
+            this.deviceId = deviceId;
+        }
+    }
+
+    private final Map<String, Entry> devices = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long offlineAfterMillis;
+    private final long tickMillis;
+    private final long forgetAfterMillis;
+    private final int flushBatchSize;
+
+    private final Queue<Entry>[] wheel;
+    private volatile long sweptTick;
+
+    private final AtomicInteger online = new AtomicInteger();
+    private final Counter offlineTransitions;
+
+    @SuppressWarnings("unchecked")
+    public DeviceLivenessTracker(JdbcTemplate jdbcTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${iot.liveness.enabled:true}") boolean enabled,
+                                 @Value("${iot.liveness.offline-after-seconds:60}") long offlineAfterSeconds,
+                                 @Value("${iot.liveness.tick-ms:1000}") long tickMillis,
+                                 @Value("${iot.liveness.forget-after-hours:24}") long forgetAfterHours,
+                                 @Value("${iot.liveness.flush-batch-size:1000}") int flushBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.offlineAfterMillis = TimeUnit.SECONDS.toMillis(offlineAfterSeconds);
+        this.tickMillis = tickMillis;
+        this.forgetAfterMillis = TimeUnit.HOURS.toMillis(forgetAfterHours);
+        this.flushBatchSize = flushBatchSize;
+
+        // One lap of the wheel must be longer than the offline gap so deadlines never wrap onto a pending tick
+        int buckets = (int) (offlineAfterMillis / tickMillis) + 2;
+        this.wheel = new Queue[buckets];
+        for (int i = 0; i < buckets; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.sweptTick = System.currentTimeMillis() / tickMillis;
+
+        Gauge.builder("iot.devices.online", online, AtomicInteger::get)
+                .description("Devices that uploaded within the offline gap (this instance)")
+                .register(meterRegistry);
+        Gauge.builder("iot.devices.offline", this, t -> Math.max(0, t.devices.size() - t.online.get()))
+                .description("Devices seen by this instance that have since gone silent")
+                .register(meterRegistry);
+        this.offlineTransitions = Counter.builder("iot.devices.offline.transitions")
+                .register(meterRegistry);
+    }
+
+    /** Records an upload from the device. */
+    public void heartbeat(Device device) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = devices.computeIfAbsent(device.getDeviceId(), Entry::new);
+        entry.userId = device.getUserId();
+        entry.lastSeenMillis = now;
+
+        if (entry.online.compareAndSet(false, true)) {
+            online.incrementAndGet();
+            schedule(entry, now + offlineAfterMillis);
+            if (entry.wentOffline) {
+                entry.wentOffline = false;
+                log.info("Device {} (userId={}) is back online", entry.deviceId, entry.userId);
+            }
+        }
+    }
+
+    // Only called by the sweeper thread
+    @Scheduled(fixedRateString = "${iot.liveness.tick-ms:1000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long nowTick = now / tickMillis;
+        // After a long pause one lap covers every bucket
+        long from = Math.max(sweptTick + 1, nowTick - wheel.length + 1);
+        // Advanced first, so devices re-filed below land in a later tick, not a bucket being drained
+        sweptTick = nowTick;
+        for (long tick = from; tick <= nowTick; tick++) {
+            Queue<Entry> bucket = wheel[(int) (tick % wheel.length)];
+            int pending = bucket.size();
+            for (int i = 0; i < pending; i++) {
+                Entry entry = bucket.poll();
+                if (entry == null) {
+                    break;
+                }
+                expire(entry, now);
+            }
+        }
+    }
+
+    private void expire(Entry entry, long now) {
+        long deadline = entry.lastSeenMillis + offlineAfterMillis;
+        if (deadline > now) {
+            schedule(entry, deadline);
+            return;
+        }
+        if (!entry.online.compareAndSet(true, false)) {
+            return;
+        }
+        if (entry.lastSeenMillis + offlineAfterMillis > now) {
+            // An upload landed between the deadline check and the flip. Either put the device back,
+            // or, if that upload already did (and counted it again), just drop the extra count
+            if (entry.online.compareAndSet(false, true)) {
+                schedule(entry, entry.lastSeenMillis + offlineAfterMillis);
+            } else {
+                online.decrementAndGet();
+            }
+            return;
+        }
+        entry.wentOffline = true;
+        online.decrementAndGet();
+        offlineTransitions.increment();
+        log.info("Device {} (userId={}) went offline, silent for {} s",
+                entry.deviceId, entry.userId, (now - entry.lastSeenMillis) / 1000);
+    }
+
+    private void schedule(Entry entry, long deadlineMillis) {
+        long tick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, sweptTick + 1);
+        wheel[(int) (tick % wheel.length)].add(entry);
+    }
+
+    /** Live status when this instance receives the device's uploads, otherwise the flushed value. */
+    public DeviceStatus status(String deviceId) {
+        long now = System.currentTimeMillis();
+        Entry entry = devices.get(deviceId);
+        if (entry != null) {
+            long lastSeen = entry.lastSeenMillis;
+            return new DeviceStatus(deviceId, entry.userId, entry.online.get(), toLocal(lastSeen),
+                    (now - lastSeen) / 1000, "memory");
+        }
+
+        List<DeviceStatus> rows = jdbcTemplate.query(
+                "SELECT device_id, user_id, last_seen_at FROM devices WHERE device_id = ?",
+                (rs, rowNum) -> {
+                    Timestamp lastSeen = rs.getTimestamp("last_seen_at");
+                    Long silent = lastSeen == null ? null : (now - lastSeen.getTime()) / 1000;
+                    return new DeviceStatus(rs.getString("device_id"), rs.getObject("user_id", Long.class),
+                            lastSeen != null && now - lastSeen.getTime() < offlineAfterMillis,
+                            lastSeen == null ? null : lastSeen.toLocalDateTime(), silent, "database");
+                },
+                deviceId);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("Device not found");
+        }
+        return rows.get(0);
+    }
+
+    /** Counts over all active devices from last_seen_at, so they include every replica's devices. */
+    public DeviceLivenessCounts counts() {
+        Timestamp threshold = new Timestamp(System.currentTimeMillis() - offlineAfterMillis);
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FILTER (WHERE last_seen_at >= ?) AS online, " +
+                        "count(*) FILTER (WHERE last_seen_at < ?) AS offline, " +
+                        "count(*) FILTER (WHERE last_seen_at IS NULL) AS never_seen " +
+                        "FROM devices WHERE status = 'ACTIVE'",
+                (rs, rowNum) -> new DeviceLivenessCounts(rs.getLong("online"), rs.getLong("offline"),
+                        rs.getLong("never_seen"), offlineAfterMillis / 1000),
+                threshold, threshold);
+    }
+
+    // Writes last-seen times that changed since the previous flush; the column only moves forward
+    @Scheduled(fixedDelayString = "${iot.liveness.flush-interval-ms:30000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Object[]> batch = new ArrayList<>();
+        List<Entry> flushed = new ArrayList<>();
+        for (Entry entry : devices.values()) {
+            long lastSeen = entry.lastSeenMillis;
+            if (lastSeen != entry.flushedMillis) {
+                Timestamp ts = Timestamp.valueOf(toLocal(lastSeen));
+                batch.add(new Object[]{ts, entry.deviceId, ts});
+                flushed.add(entry);
+                entry.flushedMillis = lastSeen;
+            } else if (entry.wentOffline && now - lastSeen > forgetAfterMillis) {
+                // Long-gone devices fall back to the database value
+                devices.remove(entry.deviceId, entry);
+            }
+            if (batch.size() >= flushBatchSize) {
+                write(batch, flushed);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, flushed);
+        }
+    }
+
+    private void write(List<Object[]> batch, List<Entry> entries) {
+        try {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE devices SET last_seen_at = ? WHERE device_id = ? " +
+                            "AND (last_seen_at IS NULL OR last_seen_at < ?)",
+                    batch);
+        } catch (RuntimeException e) {
+            // Retry these on the next flush
+            entries.forEach(entry -> entry.flushedMillis = 0);
+            log.warn("Could not flush last-seen times of {} devices: {}", batch.size(), e.getMessage());
+        }
+        batch.clear();
+        entries.clear();
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-device token bucket for the upload endpoints, implemented as GCRA (one "theoretical
+ * arrival time" per device) in a fixed AtomicLongArray, so it is lock-free and its memory does
+ * not grow with the number of devices.
+ *
+ * Each slot packs a 16-bit deviceId fingerprint with a 48-bit arrival time in microseconds.
+ * A device looks for its fingerprint in a few neighbouring slots and otherwise takes over a slot
+ * whose bucket is already full again; if every probed slot is busy it shares the home slot.
+ */
+@Component
+public class DeviceRateLimiter {
+
+    private static final int PROBES = 4;
+    private static final int FP_SHIFT = 48;
+    private static final long TAT_MASK = (1L << FP_SHIFT) - 1;
+
+    private final boolean enabled;
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long intervalMicros;
+    private final long toleranceMicros;
+    private final long originNanos = System.nanoTime();
+
+    private final Counter limited;
+
+    public DeviceRateLimiter(MeterRegistry meterRegistry,
+                             @Value("${iot.ingest.rate-limit.enabled:true}") boolean enabled,
+                             @Value("${iot.ingest.rate-limit.per-second:5}") double perSecond,
+                             @Value("${iot.ingest.rate-limit.burst:20}") int burst,
+                             @Value("${iot.ingest.rate-limit.slots:16384}") int slots) {
+        this.enabled = enabled;
+        int size = Integer.highestOneBit(Math.max(slots - 1, 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.intervalMicros = Math.max(1L, (long) (1_000_000 / perSecond));
+        this.toleranceMicros = intervalMicros * Math.max(burst, 1);
+
+        this.limited = Counter.builder("iot.ingest.rate.limited")
+                .description("Device uploads rejected by the per-device rate limit")
+                .register(meterRegistry);
+    }
+
+    /** Takes one permit for the device or throws {@link RateLimitExceededException}. */
+    public void acquire(String deviceId) {
+        if (!enabled) {
+            return;
+        }
+        long waitMicros = tryAcquire(deviceId);
+        if (waitMicros > 0) {
+            limited.increment();
+            long retryAfter = Math.max(1, TimeUnit.MICROSECONDS.toSeconds(waitMicros + 999_999));
+            throw new RateLimitExceededException("Upload rate limit exceeded for device " + deviceId, retryAfter);
+        }
+    }
+
+    // Returns 0 when a permit was taken, otherwise the microseconds until one is available
+    long tryAcquire(String deviceId) {
+        int h = spread(deviceId.hashCode());
+        long fp = ((h >>> 16) & 0xFFFF) | 1; // never 0, so an empty slot never matches
+        long now = (System.nanoTime() - originNanos) / 1000 + 1;
+
+        while (true) {
+            int slot = -1;
+            long cur = 0;
+            boolean own = false;
+            for (int p = 0; p < PROBES; p++) {
+                int i = (h + p) & mask;
+                long v = slots.get(i);
+                if (v >>> FP_SHIFT == fp) {
+                    slot = i;
+                    cur = v;
+                    own = true;
+                    break;
+                }
+                if (slot < 0 && (v & TAT_MASK) <= now) {
+                    slot = i;
+                    cur = v;
+                }
+            }
+            if (slot < 0) {
+                // Busy neighbourhood: share the home slot rather than let the device through
+                slot = h & mask;
+                cur = slots.get(slot);
+                own = true;
+            }
+
+            long tat = own ? Math.max(cur & TAT_MASK, now) : now;
+            long next = tat + intervalMicros;
+            if (next - now > toleranceMicros) {
+                return next - now - toleranceMicros;
+            }
+            long owner = own && cur != 0 ? cur >>> FP_SHIFT : fp;
+            // CAS against the value seen while probing; any concurrent change means probe again
+            if (slots.compareAndSet(slot, cur, (owner << FP_SHIFT) | next)) {
+                return 0;
+            }
+        }
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,22 +1,56 @@
 package com.example.IOT_service.service;
 
+import com.example.IOT_service.dto.DevicePage;
+import com.example.IOT_service.dto.DeviceProvisionRequest;
+import com.example.IOT_service.dto.DeviceProvisionResult;
+import com.example.IOT_service.dto.DeviceSummary;
 import com.example.IOT_service.model.Device;
 import com.example.IOT_service.repository.DeviceRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class DeviceService {
 
+    private static final Set<String> STATUSES = Set.of("ACTIVE", "INACTIVE");
+    private static final int LOOKUP_CHUNK = 1000;
+
     private final DeviceRepository deviceRepository;
+    private final DeviceCredentialCache credentialCache;
+    private final DeviceChangeBroadcaster changeBroadcaster;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${iot.devices.bulk.max-size:10000}")
+    private int maxBulkSize;
+
+    @Value("${iot.devices.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${iot.devices.page.max-size:1000}")
+    private int maxPageSize;
 
     public Device validateDevice(String deviceId, String deviceToken) {
-        return deviceRepository
+        Device cached = credentialCache.get(deviceId, deviceToken);
+        if (cached != null) {
+            return cached;
+        }
+
+        long stamp = credentialCache.stamp(deviceId);
+        Device device = deviceRepository
                 .findByDeviceIdAndDeviceTokenAndStatus(deviceId, deviceToken, "ACTIVE")
                 .orElseThrow(() -> new RuntimeException("Invalid or inactive device"));
+        credentialCache.put(device, stamp);
+        return device;
     }
 
     public Device assignDeviceToUser(String deviceId, Long userId) {
@@ -25,10 +59,115 @@ public class DeviceService {
 
         device.setUserId(userId);
         device.setStatus("ACTIVE");
-        return deviceRepository.save(device);
+        Device saved = transactionTemplate.execute(status -> {
+            Device result = deviceRepository.save(device);
+            changeBroadcaster.publish(List.of(deviceId));
+            return result;
+        });
+        credentialCache.invalidate(deviceId);
+        return saved;
+    }
+
+    public DevicePage listDevices(Long afterId, Integer limit, String status, Long userId) {
+        int size = limit == null ? defaultPageSize : limit;
+        if (size < 1 || size > maxPageSize) {
+            throw new RuntimeException("limit must be between 1 and " + maxPageSize);
+        }
+        String statusFilter = status == null ? null : status.toUpperCase();
+        if (statusFilter != null && !STATUSES.contains(statusFilter)) {
+            throw new RuntimeException("Unknown status: " + status);
+        }
+
+        List<DeviceSummary> items = deviceRepository
+                .findPage(afterId == null ? 0L : afterId, statusFilter, userId, PageRequest.of(0, size))
+                .stream()
+                .map(DeviceSummary::from)
+                .toList();
+        Long next = items.size() == size ? items.get(items.size() - 1).getId() : null;
+        return new DevicePage(items, next);
+    }
+
+    /**
+     * Creates, assigns or (de)activates many devices in one transaction. Existing devices are
+     * looked up in chunks with one IN query each and all changes are written with batched
+     * statements. New devices need a token and a userId; entries that cannot be applied are
+     * reported back instead of failing the whole request.
+     */
+    public DeviceProvisionResult provisionDevices(List<DeviceProvisionRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RuntimeException("Request must contain at least one device");
+        }
+        if (requests.size() > maxBulkSize) {
+            throw new RuntimeException("Request exceeds maximum of " + maxBulkSize + " devices");
+        }
+
+        // The last entry wins when a deviceId is listed twice
+        Map<String, DeviceProvisionRequest> byDeviceId = new LinkedHashMap<>();
+        List<DeviceProvisionResult.Rejected> rejected = new ArrayList<>();
+        for (DeviceProvisionRequest request : requests) {
+            String reason = validate(request);
+            if (reason != null) {
+                rejected.add(new DeviceProvisionResult.Rejected(request.getDeviceId(), reason));
+            } else {
+                byDeviceId.put(request.getDeviceId(), request);
+            }
+        }
+
+        int[] counts = new int[2];
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> ids = new ArrayList<>(byDeviceId.keySet());
+            List<Device> toSave = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i += LOOKUP_CHUNK) {
+                List<String> chunk = ids.subList(i, Math.min(i + LOOKUP_CHUNK, ids.size()));
+                Map<String, Device> existing = new LinkedHashMap<>();
+                for (Device device : deviceRepository.findByDeviceIdIn(chunk)) {
+                    existing.put(device.getDeviceId(), device);
+                }
+
+                for (String deviceId : chunk) {
+                    DeviceProvisionRequest request = byDeviceId.get(deviceId);
+                    Device device = existing.get(deviceId);
+                    if (device == null) {
+                        if (request.getDeviceToken() == null || request.getUserId() == null) {
+                            rejected.add(new DeviceProvisionResult.Rejected(deviceId,
+                                    "New devices need deviceToken and userId"));
+                            continue;
+                        }
+                        device = new Device(null, deviceId, request.getDeviceToken(), request.getUserId(), "ACTIVE", null);
+                        counts[0]++;
+                    } else {
+                        counts[1]++;
+                    }
+                    if (request.getDeviceToken() != null) {
+                        device.setDeviceToken(request.getDeviceToken());
+                    }
+                    if (request.getUserId() != null) {
+                        device.setUserId(request.getUserId());
+                    }
+                    // New devices start ACTIVE; an existing device keeps its status unless one is given
+                    if (request.getStatus() != null) {
+                        device.setStatus(request.getStatus().toUpperCase());
+                    }
+                    toSave.add(device);
+                }
+            }
+            deviceRepository.saveAll(toSave);
+            // Other replicas drop these devices once the transaction commits
+            changeBroadcaster.publish(toSave.stream().map(Device::getDeviceId).toList());
+        });
+
+        // After commit; a concurrent upload that read the old row will not cache it (see DeviceCredentialCache)
+        byDeviceId.keySet().forEach(credentialCache::invalidate);
+        return new DeviceProvisionResult(counts[0], counts[1], rejected);
     }
 
-    public List<Device> getAllDevices() {
-        return deviceRepository.findAll();
+    private static String validate(DeviceProvisionRequest request) {
+        if (request.getDeviceId() == null || request.getDeviceId().isBlank()) {
+            return "deviceId is required";
+        }
+        if (request.getStatus() != null && !STATUSES.contains(request.getStatus().toUpperCase())) {
+            return "Unknown status: " + request.getStatus();
+        }
+        return null;
     }
-}
\ No newline at end of file
+}
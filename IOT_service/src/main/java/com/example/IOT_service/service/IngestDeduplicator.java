@@ -0,0 +1,95 @@
+package com.example.IOT_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short sliding-window memory of (deviceId, device timestamp) pairs, used to drop readings a
+ * device re-sends after a timed-out upload. Keys are spread over independently locked stripes,
+ * each an insertion-ordered map trimmed from the oldest end by age and by size.
+ *
+ * A key is claimed before the reading is stored, so two concurrent copies cannot both pass;
+ * callers release it with {@link #forget} when storing fails and the device will retry.
+ */
+@Component
+public class IngestDeduplicator {
+
+    private static final int STRIPES = 64;
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxPerStripe;
+    private final Map<String, Long>[] stripes;
+
+    private final Counter duplicates;
+
+    @SuppressWarnings("unchecked")
+    public IngestDeduplicator(MeterRegistry meterRegistry,
+                              @Value("${iot.ingest.dedupe.enabled:true}") boolean enabled,
+                              @Value("${iot.ingest.dedupe.window-seconds:300}") long windowSeconds,
+                              @Value("${iot.ingest.dedupe.max-entries:100000}") int maxEntries) {
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        this.maxPerStripe = Math.max(1, maxEntries / STRIPES);
+        this.stripes = new Map[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new LinkedHashMap<>();
+        }
+
+        this.duplicates = Counter.builder("iot.ingest.duplicates")
+                .description("Device readings dropped as re-sent duplicates")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns false when this device already sent a reading with the same timestamp inside the
+     * window. Readings without a device timestamp cannot be matched and always pass.
+     */
+    public boolean firstSeen(String deviceId, LocalDateTime deviceTime) {
+        if (!enabled || deviceTime == null) {
+            return true;
+        }
+        String key = deviceId + '|' + deviceTime;
+        Map<String, Long> stripe = stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+        long now = System.nanoTime();
+
+        synchronized (stripe) {
+            Iterator<Long> it = stripe.values().iterator();
+            while (it.hasNext()) {
+                long seenAt = it.next();
+                if (now - seenAt < windowNanos && stripe.size() < maxPerStripe) {
+                    break;
+                }
+                it.remove();
+            }
+            if (stripe.putIfAbsent(key, now) != null) {
+                duplicates.increment();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Releases a key claimed by {@link #firstSeen} whose reading was not stored after all (queue
+     * full, database error), so the device's retry is accepted instead of dropped as a duplicate.
+     */
+    public void forget(String deviceId, LocalDateTime deviceTime) {
+        if (!enabled || deviceTime == null) {
+            return;
+        }
+        String key = deviceId + '|' + deviceTime;
+        Map<String, Long> stripe = stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+        synchronized (stripe) {
+            stripe.remove(key);
+        }
+    }
+}
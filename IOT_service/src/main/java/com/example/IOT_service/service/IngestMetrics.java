@@ -0,0 +1,60 @@
+package com.example.IOT_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage latency of the device upload path (iot.ingest.stage{stage=...}, with percentile
+ * histograms) and upload counts per deviceId bucket. Devices are hashed into a fixed number
+ * of buckets so hot or misbehaving devices show up without a time series per device.
+ */
+@Component
+public class IngestMetrics {
+
+    public enum Stage {
+        DECODE, VALIDATE, ENQUEUE, SAVE, RESPONSE;
+
+        private final String tag = name().toLowerCase();
+    }
+
+    public static final int DEVICE_BUCKETS = 16;
+
+    private final Timer[] stages = new Timer[Stage.values().length];
+    private final Counter[] uploads = new Counter[DEVICE_BUCKETS];
+
+    public IngestMetrics(MeterRegistry meterRegistry) {
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()] = Timer.builder("iot.ingest.stage")
+                    .description("Time spent in one stage of a device upload")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+        for (int i = 0; i < DEVICE_BUCKETS; i++) {
+            uploads[i] = Counter.builder("iot.ingest.uploads")
+                    .description("Device uploads by deviceId hash bucket")
+                    .tag("device_bucket", Integer.toString(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    /** Records the time since {@code startNanos} for the stage and returns now, for chaining stages. */
+    public long record(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        stages[stage.ordinal()].record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public void countUpload(String deviceId, int readings) {
+        uploads[bucketOf(deviceId)].increment(readings);
+    }
+
+    // Same bucket as the device_bucket tag, e.g. to find a device from a dashboard spike
+    public static int bucketOf(String deviceId) {
+        return Math.floorMod(deviceId.hashCode(), DEVICE_BUCKETS);
+    }
+}
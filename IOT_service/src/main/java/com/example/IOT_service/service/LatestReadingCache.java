@@ -0,0 +1,157 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.model.SensorData;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last N readings per patient, newest first, kept up to date from the write path so
+ * dashboard polls of /current and /latest/{limit} do not have to query Postgres.
+ *
+ * A user's buffer only answers reads once it has been primed from the database; until then
+ * it just collects writes so that a prime racing with an insert cannot lose the insert.
+ */
+@Component
+public class LatestReadingCache {
+
+    private static final class UserReadings {
+        private final SensorData[] readings;
+        private int size;
+        private boolean primed;
+
+        private UserReadings(int capacity) {
+            this.readings = new SensorData[capacity];
+        }
+    }
+
+    private final Map<Long, UserReadings> users = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final int maxUsers;
+
+    public LatestReadingCache(MeterRegistry meterRegistry,
+                              @Value("${iot.latest-cache.readings-per-user:32}") int capacity,
+                              @Value("${iot.latest-cache.max-users:10000}") int maxUsers) {
+        this.capacity = capacity;
+        this.maxUsers = maxUsers;
+
+        Gauge.builder("iot.latest.cache.users", users, Map::size)
+                .register(meterRegistry);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Write path: called after the reading has been committed
+    public void record(SensorData data) {
+        if (data.getUserId() == null) {
+            return;
+        }
+        UserReadings entry = entryFor(data.getUserId());
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            insert(entry, data);
+        }
+    }
+
+    /**
+     * Newest {@code limit} readings for the user, or null when the buffer is cold and the
+     * caller has to go to the database. {@code limit} must not exceed {@link #getCapacity()}.
+     */
+    public List<SensorData> latest(Long userId, int limit) {
+        UserReadings entry = users.get(userId);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            if (!entry.primed) {
+                return null;
+            }
+            int count = Math.min(limit, entry.size);
+            List<SensorData> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(entry.readings[i]);
+            }
+            return result;
+        }
+    }
+
+    // Cold miss: seed the buffer with the newest rows from the database
+    public void prime(Long userId, List<SensorData> newestFirst) {
+        UserReadings entry = entryFor(userId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            for (SensorData data : newestFirst) {
+                insert(entry, data);
+            }
+            entry.primed = true;
+        }
+    }
+
+    public void evict(Long userId) {
+        users.remove(userId);
+    }
+
+    public void clear() {
+        users.clear();
+    }
+
+    private UserReadings entryFor(Long userId) {
+        UserReadings entry = users.get(userId);
+        if (entry != null) {
+            return entry;
+        }
+        if (users.size() >= maxUsers) {
+            Iterator<Long> keys = users.keySet().iterator();
+            if (!keys.hasNext()) {
+                return null;
+            }
+            keys.next();
+            keys.remove();
+        }
+        return users.computeIfAbsent(userId, id -> new UserReadings(capacity));
+    }
+
+    // Keep the buffer ordered by receivedAt desc (then id desc); backlog uploads may arrive out of order
+    private void insert(UserReadings entry, SensorData data) {
+        SensorData[] readings = entry.readings;
+        int pos = 0;
+        while (pos < entry.size && isNewer(readings[pos], data)) {
+            pos++;
+        }
+        if (pos < entry.size && Objects.equals(readings[pos].getId(), data.getId())) {
+            return;
+        }
+        if (pos >= readings.length) {
+            return;
+        }
+        int last = Math.min(entry.size, readings.length - 1);
+        System.arraycopy(readings, pos, readings, pos + 1, last - pos);
+        readings[pos] = data;
+        entry.size = Math.min(entry.size + 1, readings.length);
+    }
+
+    private static boolean isNewer(SensorData a, SensorData b) {
+        LocalDateTime ta = a.getReceivedAt();
+        LocalDateTime tb = b.getReceivedAt();
+        int cmp = ta == null || tb == null ? 0 : ta.compareTo(tb);
+        if (cmp != 0) {
+            return cmp > 0;
+        }
+        return a.getId() != null && b.getId() != null && a.getId() > b.getId();
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.codec.BitStream;
+import com.example.IOT_service.codec.GorillaCodec;
+import com.example.IOT_service.dto.RecentSeriesResponse;
+import com.example.IOT_service.model.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory store of the last day of readings per patient, compressed with {@link GorillaCodec}
+ * and served to charts as primitive arrays.
+ *
+ * Each patient's series is a list of blocks of up to {@code block-size} samples; every block
+ * keeps one bit stream for the timestamps and one per metric, so a query only decodes the
+ * columns it asks for. Full blocks are sealed and trimmed; blocks older than the retention
+ * window are dropped whole. The part of a query range from before this instance started
+ * collecting (e.g. after a restart), or up to the latest reading that arrived out of order, is
+ * read from Postgres straight into the arrays.
+ */
+@Component
+public class RecentVitalsStore implements SensorDataListener {
+
+    public static final List<String> METRICS = List.of("bpm", "spo2", "avgBpm", "roomTemp", "humidity", "waterTempC");
+
+    private static final class Block {
+        final long startTs;
+        long endTs;
+        int count;
+        final BitStream timestamps = new BitStream(64);
+        final BitStream[] values = new BitStream[METRICS.size()];
+        GorillaCodec.TimestampEncoder tsEncoder = new GorillaCodec.TimestampEncoder();
+        GorillaCodec.ValueEncoder[] encoders = new GorillaCodec.ValueEncoder[METRICS.size()];
+
+        Block(long startTs) {
+            this.startTs = startTs;
+            for (int m = 0; m < values.length; m++) {
+                values[m] = new BitStream(16);
+                encoders[m] = new GorillaCodec.ValueEncoder();
+            }
+        }
+
+        void seal() {
+            timestamps.trim();
+            for (BitStream v : values) {
+                v.trim();
+            }
+            tsEncoder = null;
+            encoders = null;
+        }
+
+        long sizeInBytes() {
+            long bytes = timestamps.sizeInBytes();
+            for (BitStream v : values) {
+                bytes += v.sizeInBytes();
+            }
+            return bytes;
+        }
+    }
+
+    private static final class Series {
+        final List<Block> blocks = new ArrayList<>();
+        boolean removed;
+        // Oldest timestamp this store can answer for; earlier ranges come from the database
+        long coveredFrom;
+        long bytes;
+    }
+
+    /** Growable column set the query result is decoded into. */
+    private static final class Columns {
+        long[] ts = new long[256];
+        final double[][] values;
+        final int[] metrics;
+        int size;
+
+        Columns(int[] metrics) {
+            this.metrics = metrics;
+            this.values = new double[metrics.length][256];
+        }
+
+        void add(long t, double[] row) {
+            if (size == ts.length) {
+                ts = Arrays.copyOf(ts, size * 2);
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = Arrays.copyOf(values[i], size * 2);
+                }
+            }
+            ts[size] = t;
+            for (int i = 0; i < values.length; i++) {
+                values[i][size] = row[i];
+            }
+            size++;
+        }
+    }
+
+    private final Map<Long, Series> series = new ConcurrentHashMap<>();
+    // Timestamps, retention horizon and database bounds all use this clock and its zone
+    private final Clock clock = Clock.systemDefaultZone();
+    private final JdbcTemplate jdbcTemplate;
+    private final SignalQualityScorer signalQuality;
+    private final boolean enabled;
+    private final long retentionMillis;
+    private final int blockSize;
+    private final int maxUsers;
+
+    private final Counter outOfOrder;
+    private final Timer queryTimer;
+
+    public RecentVitalsStore(JdbcTemplate jdbcTemplate,
+                             SignalQualityScorer signalQuality,
+                             MeterRegistry meterRegistry,
+                             @Value("${iot.recent-store.enabled:true}") boolean enabled,
+                             @Value("${iot.recent-store.retention-hours:24}") long retentionHours,
+                             @Value("${iot.recent-store.block-size:3600}") int blockSize,
+                             @Value("${iot.recent-store.max-users:2000}") int maxUsers) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.signalQuality = signalQuality;
+        this.enabled = enabled;
+        this.retentionMillis = TimeUnit.HOURS.toMillis(retentionHours);
+        this.blockSize = blockSize;
+        this.maxUsers = maxUsers;
+
+        this.outOfOrder = Counter.builder("iot.recent.store.out.of.order")
+                .description("Readings older than the newest stored one, served from Postgres")
+                .register(meterRegistry);
+        this.queryTimer = Timer.builder("iot.recent.store.query")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("iot.recent.store.bytes", this, RecentVitalsStore::sizeInBytes)
+                .description("Compressed bytes held by the recent vitals store")
+                .register(meterRegistry);
+        Gauge.builder("iot.recent.store.users", series, Map::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onSaved(SensorData data) {
+        if (!enabled || data.getUserId() == null || data.getReceivedAt() == null) {
+            return;
+        }
+        long ts = toMillis(data.getReceivedAt());
+        while (true) {
+            Series s = series.get(data.getUserId());
+            if (s == null) {
+                if (series.size() >= maxUsers) {
+                    return;
+                }
+                s = series.computeIfAbsent(data.getUserId(), id -> {
+                    Series created = new Series();
+                    created.coveredFrom = ts;
+                    return created;
+                });
+            }
+            synchronized (s) {
+                // Lost a race with the eviction sweep; start a fresh series
+                if (!s.removed) {
+                    append(s, ts, data);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void append(Series s, long ts, SensorData data) {
+        Block block = s.blocks.isEmpty() ? null : s.blocks.get(s.blocks.size() - 1);
+        if (block != null && ts < block.endTs) {
+            // Gorilla blocks are append-only, so backlog uploads stay in Postgres: queries read
+            // everything up to and including this reading from there from now on
+            outOfOrder.increment();
+            s.coveredFrom = Math.max(s.coveredFrom, ts + 1);
+            return;
+        }
+        if (block == null || block.count >= blockSize) {
+            if (block != null) {
+                long before = block.sizeInBytes();
+                block.seal();
+                s.bytes += block.sizeInBytes() - before;
+            }
+            block = new Block(ts);
+            s.blocks.add(block);
+            s.bytes += block.sizeInBytes();
+        }
+
+        long before = block.sizeInBytes();
+        block.tsEncoder.append(block.timestamps, ts);
+        // Low signal quality only invalidates the PPG metrics; the temperatures are still charted
+        boolean ppg = !signalQuality.isLowQuality(data);
+        append(block, 0, ppg ? data.getBpm() : null);
+        append(block, 1, ppg && data.getSpo2() != null ? data.getSpo2().doubleValue() : null);
+        append(block, 2, ppg && data.getAvgBpm() != null ? data.getAvgBpm().doubleValue() : null);
+        append(block, 3, data.getRoomTemp());
+        append(block, 4, data.getHumidity());
+        append(block, 5, data.getWaterTempC());
+        block.endTs = ts;
+        block.count++;
+        s.bytes += block.sizeInBytes() - before;
+    }
+
+    private static void append(Block block, int metric, Double value) {
+        block.encoders[metric].append(block.values[metric], value == null ? Double.NaN : value);
+    }
+
+    /**
+     * Readings of one user with {@code from <= receivedAt < to}, as index-aligned arrays for the
+     * requested metrics (all when {@code metrics} is empty).
+     */
+    public RecentSeriesResponse query(Long userId, LocalDateTime from, LocalDateTime to, List<String> metrics) {
+        if (!from.isBefore(to)) {
+            throw new RuntimeException("'from' must be before 'to'");
+        }
+        List<String> names = metrics == null || metrics.isEmpty() ? METRICS : metrics;
+        int[] selected = new int[names.size()];
+        for (int i = 0; i < selected.length; i++) {
+            selected[i] = METRICS.indexOf(names.get(i));
+            if (selected[i] < 0) {
+                throw new RuntimeException("Unknown metric: " + names.get(i));
+            }
+        }
+
+        return queryTimer.record(() -> {
+            long fromMs = toMillis(from);
+            long toMs = toMillis(to);
+            Columns out = new Columns(selected);
+
+            Series s = enabled ? series.get(userId) : null;
+            List<Block> sealed = List.of();
+            Columns tail = new Columns(selected);
+            long coveredFrom = toMs;
+            if (s != null) {
+                synchronized (s) {
+                    coveredFrom = Math.max(s.coveredFrom, clock.millis() - retentionMillis);
+                    if (!s.blocks.isEmpty()) {
+                        // Only the open block changes, so it is decoded under the lock and the rest after
+                        sealed = new ArrayList<>(s.blocks.subList(0, s.blocks.size() - 1));
+                        decode(s.blocks.get(s.blocks.size() - 1), fromMs, toMs, tail);
+                    }
+                }
+            }
+            for (Block block : sealed) {
+                decode(block, fromMs, toMs, out);
+            }
+            appendAll(tail, out, Long.MIN_VALUE);
+
+            Columns result = out;
+            if (fromMs < coveredFrom) {
+                long dbTo = Math.min(coveredFrom, toMs);
+                result = new Columns(selected);
+                loadFromDatabase(userId, from, LocalDateTime.ofInstant(Instant.ofEpochMilli(dbTo), clock.getZone()), result);
+                appendAll(out, result, coveredFrom);
+            }
+
+            Map<String, double[]> columns = new LinkedHashMap<>();
+            for (int m = 0; m < selected.length; m++) {
+                columns.put(names.get(m), Arrays.copyOf(result.values[m], result.size));
+            }
+            return new RecentSeriesResponse(userId, from, to, Arrays.copyOf(result.ts, result.size), columns);
+        });
+    }
+
+    private static void appendAll(Columns from, Columns to, long minTs) {
+        double[] row = new double[from.values.length];
+        for (int i = 0; i < from.size; i++) {
+            if (from.ts[i] >= minTs) {
+                for (int m = 0; m < row.length; m++) {
+                    row[m] = from.values[m][i];
+                }
+                to.add(from.ts[i], row);
+            }
+        }
+    }
+
+    private static void decode(Block block, long fromMs, long toMs, Columns out) {
+        if (block.endTs < fromMs || block.startTs >= toMs) {
+            return;
+        }
+        GorillaCodec.TimestampDecoder ts = new GorillaCodec.TimestampDecoder(block.timestamps);
+        GorillaCodec.ValueDecoder[] decoders = new GorillaCodec.ValueDecoder[out.metrics.length];
+        for (int m = 0; m < decoders.length; m++) {
+            decoders[m] = new GorillaCodec.ValueDecoder(block.values[out.metrics[m]]);
+        }
+        double[] row = new double[decoders.length];
+        for (int i = 0; i < block.count; i++) {
+            long t = ts.next();
+            for (int m = 0; m < decoders.length; m++) {
+                row[m] = decoders[m].next();
+            }
+            if (t >= toMs) {
+                return;
+            }
+            if (t >= fromMs) {
+                out.add(t, row);
+            }
+        }
+    }
+
+    private void loadFromDatabase(Long userId, LocalDateTime from, LocalDateTime to, Columns out) {
+        double[] row = new double[out.metrics.length];
+        int minScore = signalQuality.getMinScore();
+        jdbcTemplate.query(
+                "SELECT received_at, CASE WHEN signal_quality < ? THEN NULL ELSE bpm END, " +
+                        "CASE WHEN signal_quality < ? THEN NULL ELSE spo2 END, " +
+                        "CASE WHEN signal_quality < ? THEN NULL ELSE avg_bpm END, " +
+                        "room_temp, humidity, water_temp_c FROM sensor_data " +
+                        "WHERE user_id = ? AND received_at >= ? AND received_at < ? ORDER BY received_at, id",
+                rs -> {
+                    LocalDateTime receivedAt = rs.getObject(1, LocalDateTime.class);
+                    for (int m = 0; m < row.length; m++) {
+                        double v = rs.getDouble(2 + out.metrics[m]);
+                        row[m] = rs.wasNull() ? Double.NaN : v;
+                    }
+                    out.add(toMillis(receivedAt), row);
+                },
+                minScore, minScore, minScore, userId, from, to);
+    }
+
+    // Drops blocks that fell out of the retention window and patients with nothing left
+    @Scheduled(fixedDelayString = "${iot.recent-store.sweep-interval-ms:300000}")
+    public void evictExpired() {
+        long horizon = clock.millis() - retentionMillis;
+        series.forEach((userId, s) -> {
+            synchronized (s) {
+                while (!s.blocks.isEmpty() && s.blocks.get(0).endTs < horizon) {
+                    Block dropped = s.blocks.remove(0);
+                    s.bytes -= dropped.sizeInBytes();
+                    s.coveredFrom = Math.max(s.coveredFrom, dropped.endTs + 1);
+                }
+                if (s.blocks.isEmpty()) {
+                    s.removed = true;
+                    series.remove(userId, s);
+                }
+            }
+        });
+    }
+
+    // Drops every patient; later queries fall back to the database until the store refills
+    public void clear() {
+        series.forEach((userId, s) -> {
+            synchronized (s) {
+                s.removed = true;
+                series.remove(userId, s);
+            }
+        });
+    }
+
+    public long sizeInBytes() {
+        long total = 0;
+        for (Series s : series.values()) {
+            total += s.bytes;
+        }
+        return total;
+    }
+
+    // receivedAt is wall-clock time in the server's zone (SensorData, SensorFrameCodec)
+    private long toMillis(LocalDateTime time) {
+        return time.atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+}
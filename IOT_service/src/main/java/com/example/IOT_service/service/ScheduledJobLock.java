@@ -0,0 +1,58 @@
+package com.example.IOT_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Runs a scheduled job on one IOT_service replica at a time. Every replica fires the same
+ * schedules; the first to take the job's Postgres advisory lock runs it and the others skip
+ * that run. The lock is session-level and held on one pooled connection for the duration of
+ * the job, so it is released even if the replica dies mid-run (the session ends with it).
+ */
+@Component
+@Slf4j
+public class ScheduledJobLock {
+
+    // First key of the two-int advisory lock space, keeps these locks apart from any others
+    private static final int LOCK_CLASS = 0x10_7D_A7;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ScheduledJobLock(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Runs the job if no other replica is running it; returns false when the run was skipped. */
+    public boolean runExclusive(String job, Runnable task) {
+        Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!lock(connection, "pg_try_advisory_lock", job)) {
+                log.debug("Skipping {}: running on another replica", job);
+                return false;
+            }
+            try {
+                task.run();
+            } finally {
+                lock(connection, "pg_advisory_unlock", job);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    private static boolean lock(Connection connection, String function, String job) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT " + function + "(" + LOCK_CLASS + ", hashtext(?))")) {
+            statement.setString(1, job);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.event.SensorAlert;
+import com.example.IOT_service.event.SensorAlert.Metric;
+import com.example.IOT_service.event.SensorAlert.Type;
+import com.example.IOT_service.model.SensorData;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inline per-patient detector for bpm, spo2 and avgBpm, evaluated on every saved reading.
+ *
+ * State lives in flat primitive arrays indexed by {@code slot * METRICS + metric}: a rolling
+ * mean/variance (Welford, with the sample count capped so old data fades out), an EWMA and
+ * the current alarm bits. Thresholds use hysteresis so a value hovering at the limit raises
+ * one alert, not one per sample. Nothing is allocated per reading unless an alert fires.
+ */
+@Component
+@Slf4j
+public class SensorAnomalyDetector implements SensorDataListener {
+
+    private static final int METRICS = 3;
+    private static final int BPM = 0;
+    private static final int SPO2 = 1;
+    private static final int AVG_BPM = 2;
+    private static final Metric[] METRIC_NAMES = {Metric.BPM, Metric.SPO2, Metric.AVG_BPM};
+
+    private static final byte LOW = 1;
+    private static final byte HIGH = 2;
+    private static final byte DEVIATION = 4;
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final ApplicationEventPublisher events;
+    private final SignalQualityScorer signalQuality;
+    private final boolean enabled;
+    private final int maxUsers;
+    private final int baselineWindow;
+    private final int minBaselineSamples;
+    private final double deviationZ;
+    private final double deviationClearZ;
+    private final double ewmaAlpha;
+    private final long idleNanos;
+
+    // Per metric: raise below low / above high, clear once back past lowClear / highClear
+    private final double[] low = new double[METRICS];
+    private final double[] lowClear = new double[METRICS];
+    private final double[] high = new double[METRICS];
+    private final double[] highClear = new double[METRICS];
+    // bpm is the noisy instantaneous value, so its thresholds are checked on the EWMA
+    private final boolean[] thresholdOnEwma = {true, false, false};
+
+    private final int[] count;
+    private final double[] mean;
+    private final double[] variance;
+    private final double[] ewma;
+    private final byte[] alarms;
+    private final long[] lastSeen;
+
+    private final Map<Long, Integer> slots = new ConcurrentHashMap<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public SensorAnomalyDetector(ApplicationEventPublisher events,
+                                 SignalQualityScorer signalQuality,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${iot.anomaly.enabled:true}") boolean enabled,
+                                 @Value("${iot.anomaly.max-users:10000}") int maxUsers,
+                                 @Value("${iot.anomaly.baseline-window:600}") int baselineWindow,
+                                 @Value("${iot.anomaly.min-baseline-samples:60}") int minBaselineSamples,
+                                 @Value("${iot.anomaly.deviation-z:4.0}") double deviationZ,
+                                 @Value("${iot.anomaly.deviation-clear-z:2.0}") double deviationClearZ,
+                                 @Value("${iot.anomaly.ewma-alpha:0.2}") double ewmaAlpha,
+                                 @Value("${iot.anomaly.idle-minutes:60}") long idleMinutes,
+                                 @Value("${iot.anomaly.bpm.low:45}") double bpmLow,
+                                 @Value("${iot.anomaly.bpm.high:130}") double bpmHigh,
+                                 @Value("${iot.anomaly.spo2.low:90}") double spo2Low,
+                                 @Value("${iot.anomaly.hysteresis:3}") double hysteresis) {
+        this.events = events;
+        this.signalQuality = signalQuality;
+        this.enabled = enabled;
+        this.maxUsers = maxUsers;
+        this.baselineWindow = baselineWindow;
+        this.minBaselineSamples = minBaselineSamples;
+        this.deviationZ = deviationZ;
+        this.deviationClearZ = deviationClearZ;
+        this.ewmaAlpha = ewmaAlpha;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+
+        setThresholds(BPM, bpmLow, bpmHigh, hysteresis);
+        setThresholds(SPO2, spo2Low, Double.POSITIVE_INFINITY, hysteresis);
+        setThresholds(AVG_BPM, bpmLow, bpmHigh, hysteresis);
+
+        this.count = new int[maxUsers * METRICS];
+        this.mean = new double[maxUsers * METRICS];
+        this.variance = new double[maxUsers * METRICS];
+        this.ewma = new double[maxUsers * METRICS];
+        this.alarms = new byte[maxUsers * METRICS];
+        this.lastSeen = new long[maxUsers];
+        for (int i = maxUsers - 1; i >= 0; i--) {
+            freeSlots.push(i);
+        }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+
+        Gauge.builder("iot.anomaly.tracked.users", slots, Map::size)
+                .register(meterRegistry);
+    }
+
+    private void setThresholds(int metric, double lowValue, double highValue, double hysteresis) {
+        low[metric] = lowValue;
+        lowClear[metric] = lowValue + hysteresis;
+        high[metric] = highValue;
+        highClear[metric] = highValue - hysteresis;
+    }
+
+    @Override
+    public void onSaved(SensorData data) {
+        Long userId = data.getUserId();
+        // Finger-off or motion-corrupted samples would only raise false alarms
+        if (!enabled || userId == null || signalQuality.isLowQuality(data)) {
+            return;
+        }
+        synchronized (locks[Long.hashCode(userId) & (LOCK_STRIPES - 1)]) {
+            int slot = slotFor(userId);
+            if (slot < 0) {
+                return;
+            }
+            lastSeen[slot] = System.nanoTime();
+            // Zero/negative values mean "no finger on the sensor", not a real reading
+            if (data.getBpm() != null && data.getBpm() > 0) {
+                update(slot, BPM, data.getBpm(), data);
+            }
+            if (data.getSpo2() != null && data.getSpo2() > 0) {
+                update(slot, SPO2, data.getSpo2(), data);
+            }
+            if (data.getAvgBpm() != null && data.getAvgBpm() > 0) {
+                update(slot, AVG_BPM, data.getAvgBpm(), data);
+            }
+        }
+    }
+
+    private void update(int slot, int metric, double x, SensorData data) {
+        int i = slot * METRICS + metric;
+
+        // Threshold state is judged against the baseline from before this sample
+        double baseMean = mean[i];
+        double baseSd = Math.sqrt(variance[i]);
+        boolean baselineReady = count[i] >= minBaselineSamples;
+
+        int n = Math.min(count[i] + 1, baselineWindow);
+        double delta = x - baseMean;
+        mean[i] = baseMean + delta / n;
+        variance[i] += (delta * (x - mean[i]) - variance[i]) / n;
+        count[i] = n;
+        ewma[i] = count[i] == 1 ? x : ewma[i] + ewmaAlpha * (x - ewma[i]);
+
+        double v = thresholdOnEwma[metric] ? ewma[i] : x;
+        byte state = alarms[i];
+
+        if ((state & LOW) == 0 && v < low[metric]) {
+            state |= LOW;
+            fire(data, metric, Type.LOW, true, v, low[metric]);
+        } else if ((state & LOW) != 0 && v >= lowClear[metric]) {
+            state &= ~LOW;
+            fire(data, metric, Type.LOW, false, v, low[metric]);
+        }
+        if ((state & HIGH) == 0 && v > high[metric]) {
+            state |= HIGH;
+            fire(data, metric, Type.HIGH, true, v, high[metric]);
+        } else if ((state & HIGH) != 0 && v <= highClear[metric]) {
+            state &= ~HIGH;
+            fire(data, metric, Type.HIGH, false, v, high[metric]);
+        }
+
+        if (baselineReady && baseSd > 0) {
+            double z = Math.abs(x - baseMean) / baseSd;
+            if ((state & DEVIATION) == 0 && z > deviationZ) {
+                state |= DEVIATION;
+                fire(data, metric, Type.DEVIATION, true, x, baseMean);
+            } else if ((state & DEVIATION) != 0 && z < deviationClearZ) {
+                state &= ~DEVIATION;
+                fire(data, metric, Type.DEVIATION, false, x, baseMean);
+            }
+        }
+        alarms[i] = state;
+    }
+
+    private void fire(SensorData data, int metric, Type type, boolean active, double value, double reference) {
+        try {
+            events.publishEvent(new SensorAlert(data.getUserId(), data.getDeviceId(), METRIC_NAMES[metric],
+                    type, active, value, reference, data.getReceivedAt()));
+        } catch (RuntimeException e) {
+            log.warn("Alert listener failed for userId={}: {}", data.getUserId(), e.getMessage());
+        }
+    }
+
+    // Called under the user's stripe lock
+    private int slotFor(Long userId) {
+        Integer slot = slots.get(userId);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (freeSlots) {
+            slot = freeSlots.poll();
+        }
+        if (slot == null) {
+            return -1;
+        }
+        int base = slot * METRICS;
+        for (int m = 0; m < METRICS; m++) {
+            count[base + m] = 0;
+            mean[base + m] = 0;
+            variance[base + m] = 0;
+            ewma[base + m] = 0;
+            alarms[base + m] = 0;
+        }
+        slots.put(userId, slot);
+        return slot;
+    }
+
+    // Releases the state of patients whose devices stopped reporting
+    @Scheduled(fixedDelayString = "${iot.anomaly.sweep-interval-ms:300000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (Long userId : slots.keySet()) {
+            synchronized (locks[Long.hashCode(userId) & (LOCK_STRIPES - 1)]) {
+                Integer slot = slots.get(userId);
+                if (slot != null && now - lastSeen[slot] > idleNanos) {
+                    slots.remove(userId);
+                    synchronized (freeSlots) {
+                        freeSlots.push(slot);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.codec.SensorArchiveCodec;
+import com.example.IOT_service.model.SensorData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Archived raw readings on local disk: {@code <dir>/user-<userId>/<yyyy-MM-dd>.sda}, one
+ * {@link SensorArchiveCodec} segment per patient and day.
+ */
+@Component
+public class SensorArchiveStore {
+
+    private static final Comparator<SensorData> ORDER = Comparator
+            .comparing(SensorData::getReceivedAt)
+            .thenComparing(SensorData::getId);
+
+    private final Path root;
+
+    public SensorArchiveStore(@Value("${iot.retention.archive-dir:/var/lib/iot/archive}") String archiveDir) {
+        this.root = Paths.get(archiveDir);
+    }
+
+    /**
+     * Adds rows to the segment of that day, merging with what is already archived (a previous
+     * run may have stopped between writing the file and deleting the rows). The new file is
+     * written next to the old one and moved into place atomically.
+     */
+    public synchronized void append(Long userId, LocalDate day, List<SensorData> rows) {
+        Path file = segment(userId, day);
+        try {
+            Files.createDirectories(file.getParent());
+            Map<Long, SensorData> merged = new LinkedHashMap<>();
+            for (SensorData row : readSegment(userId, file)) {
+                merged.put(row.getId(), row);
+            }
+            for (SensorData row : rows) {
+                merged.put(row.getId(), row);
+            }
+            List<SensorData> sorted = new ArrayList<>(merged.values());
+            sorted.sort(ORDER);
+
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                SensorArchiveCodec.write(sorted, out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write archive segment " + file, e);
+        }
+    }
+
+    /** Archived readings of one user with {@code from <= receivedAt < to}, oldest first. */
+    public List<SensorData> read(Long userId, LocalDateTime from, LocalDateTime to) {
+        List<SensorData> result = new ArrayList<>();
+        for (LocalDate day = from.toLocalDate(); day.atStartOfDay().isBefore(to); day = day.plusDays(1)) {
+            Path file = segment(userId, day);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            try {
+                for (SensorData row : readSegment(userId, file)) {
+                    if (!row.getReceivedAt().isBefore(from) && row.getReceivedAt().isBefore(to)) {
+                        result.add(row);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read archive segment " + file, e);
+            }
+        }
+        return result;
+    }
+
+    public boolean hasSegment(Long userId, LocalDate day) {
+        return Files.exists(segment(userId, day));
+    }
+
+    private Path segment(Long userId, LocalDate day) {
+        return root.resolve("user-" + userId).resolve(day + ".sda");
+    }
+
+    private static List<SensorData> readSegment(Long userId, Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return SensorArchiveCodec.read(in, userId);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.codec.SensorExportWriter;
+import com.example.IOT_service.exception.RateLimitExceededException;
+import com.example.IOT_service.model.ExportFormat;
+import com.example.IOT_service.model.SensorData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Raw reading export for one patient and time range as CSV or NDJSON.
+ *
+ * Archived days are written first, one day segment at a time, then the rows still in
+ * sensor_data are read through a forward-only cursor (a read-only transaction with a fetch
+ * size, which is what makes the Postgres driver stream instead of buffering the result) and
+ * written as they arrive. Memory use therefore does not grow with the size of the range.
+ * Each export holds a pooled connection while it runs, so only a few may run at once.
+ */
+@Service
+@Slf4j
+public class SensorDataExportService {
+
+    private static final String SELECT_RANGE =
+            "SELECT id, user_id, device_id, room_temp, humidity, water_temp_c, water_temp_f, ir_value, "
+                    + "bpm, avg_bpm, spo2, received_at, signal_quality FROM sensor_data "
+                    + "WHERE user_id = ? AND received_at >= ? AND received_at < ? ORDER BY received_at, id";
+
+    private static final class Progress {
+        long rows;
+        // Day of the last database row and the ids archived for that day, if it has a segment
+        LocalDate day;
+        Set<Long> archivedIds;
+    }
+
+    private final JdbcTemplate cursorTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final SensorArchiveStore archiveStore;
+    private final ObjectMapper objectMapper;
+    private final int maxRangeDays;
+    private final Semaphore permits;
+
+    private final Counter exportedRows;
+    private final Timer exportTimer;
+
+    public SensorDataExportService(DataSource dataSource,
+                                   PlatformTransactionManager transactionManager,
+                                   SensorArchiveStore archiveStore,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${iot.export.fetch-size:1000}") int fetchSize,
+                                   @Value("${iot.export.max-range-days:366}") int maxRangeDays,
+                                   @Value("${iot.export.max-concurrent:2}") int maxConcurrent) {
+        this.cursorTemplate = new JdbcTemplate(dataSource);
+        this.cursorTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.archiveStore = archiveStore;
+        this.objectMapper = objectMapper;
+        this.maxRangeDays = maxRangeDays;
+        this.permits = new Semaphore(maxConcurrent);
+
+        this.exportedRows = Counter.builder("iot.export.rows")
+                .description("Readings written by raw exports")
+                .register(meterRegistry);
+        this.exportTimer = Timer.builder("iot.export.duration")
+                .register(meterRegistry);
+        Gauge.builder("iot.export.active", permits, p -> maxConcurrent - p.availablePermits())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Validates the request and reserves an export slot; the returned body does the actual
+     * streaming on the MVC async executor. The slot is released when the body finishes, or when
+     * the request's async processing completes without running it (client gone before the
+     * dispatch, task rejected by the executor, timeout).
+     */
+    public StreamingResponseBody export(Long userId, LocalDateTime from, LocalDateTime to, ExportFormat format) {
+        if (!from.isBefore(to)) {
+            throw new RuntimeException("from must be before to");
+        }
+        if (Duration.between(from, to).toDays() > maxRangeDays) {
+            throw new RuntimeException("Export range exceeds maximum of " + maxRangeDays + " days");
+        }
+        if (!permits.tryAcquire()) {
+            throw new RateLimitExceededException("Too many exports in progress", 5);
+        }
+        Runnable release = releaseOnce();
+        releaseOnAsyncCompletion(release);
+
+        return out -> {
+            long start = System.nanoTime();
+            Progress progress = new Progress();
+            try {
+                SensorExportWriter writer = SensorExportWriter.open(format, out, objectMapper);
+                exportArchive(userId, from, to, writer, progress);
+                exportLive(userId, from, to, writer, progress);
+                writer.finish();
+                log.info("Exported {} readings for userId={} ({} to {}, {})",
+                        progress.rows, userId, from, to, format.getLabel());
+            } catch (UncheckedIOException e) {
+                // Usually the client went away mid-download
+                log.warn("Export for userId={} aborted after {} readings: {}", userId, progress.rows, e.getMessage());
+                throw e.getCause();
+            } finally {
+                release.run();
+                exportedRows.increment(progress.rows);
+                exportTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private Runnable releaseOnce() {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        };
+    }
+
+    // afterCompletion runs once the async request is over, whether or not the body ever ran
+    private static void releaseOnAsyncCompletion(Runnable release) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servlet)) {
+            return;
+        }
+        WebAsyncUtils.getAsyncManager(servlet.getRequest()).registerCallableInterceptor(
+                SensorDataExportService.class.getName(), new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                        release.run();
+                    }
+                });
+    }
+
+    private void exportArchive(Long userId, LocalDateTime from, LocalDateTime to,
+                               SensorExportWriter writer, Progress progress) throws IOException {
+        for (LocalDate day = from.toLocalDate(); day.atStartOfDay().isBefore(to); day = day.plusDays(1)) {
+            if (!archiveStore.hasSegment(userId, day)) {
+                continue;
+            }
+            LocalDateTime dayFrom = max(from, day.atStartOfDay());
+            LocalDateTime dayTo = min(to, day.plusDays(1).atStartOfDay());
+            for (SensorData row : archiveStore.read(userId, dayFrom, dayTo)) {
+                writer.write(row);
+                progress.rows++;
+            }
+        }
+    }
+
+    private void exportLive(Long userId, LocalDateTime from, LocalDateTime to,
+                            SensorExportWriter writer, Progress progress) {
+        // A retention run interrupted between archiving a day and deleting it leaves rows in both
+        // places; those were already written with the archive, so skip them here
+        readOnlyTransaction.executeWithoutResult(status -> cursorTemplate.query(SELECT_RANGE, rs -> {
+            SensorData row = SensorDataRetentionService.ROW_MAPPER.mapRow(rs, 0);
+            LocalDate rowDay = row.getReceivedAt().toLocalDate();
+            if (!rowDay.equals(progress.day)) {
+                progress.day = rowDay;
+                progress.archivedIds = archivedIds(userId, rowDay);
+            }
+            if (progress.archivedIds != null && progress.archivedIds.contains(row.getId())) {
+                return;
+            }
+            try {
+                writer.write(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            progress.rows++;
+        }, userId, from, to));
+    }
+
+    private Set<Long> archivedIds(Long userId, LocalDate day) {
+        if (!archiveStore.hasSegment(userId, day)) {
+            return null;
+        }
+        List<SensorData> archived = archiveStore.read(userId, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        Set<Long> ids = new HashSet<>(archived.size() * 2);
+        for (SensorData row : archived) {
+            ids.add(row.getId());
+        }
+        return ids;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.model.SensorData;
+
+/**
+ * Notified by {@link SensorDataService} for every reading after it has been committed.
+ * Implementations run on the ingest path and must not block.
+ */
+public interface SensorDataListener {
+
+    void onSaved(SensorData data);
+}
@@ -0,0 +1,144 @@
+package com.example.IOT_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Maintains the monthly range partitions of sensor_data (see V2__partition_sensor_data.sql).
+ * Partitions are created a few months ahead so inserts rarely land in the default partition,
+ * and old months can be detached as a metadata-only operation instead of a table-wide DELETE.
+ */
+@Service
+@Slf4j
+public class SensorDataPartitionManager {
+
+    private static final String PREFIX = "sensor_data_";
+    private static final String DEFAULT_PARTITION = "sensor_data_default";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ScheduledJobLock jobLock;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int detachAfterMonths;
+
+    public SensorDataPartitionManager(JdbcTemplate jdbcTemplate,
+                                      ScheduledJobLock jobLock,
+                                      TransactionTemplate transactionTemplate,
+                                      @Value("${iot.partitions.months-ahead:2}") int monthsAhead,
+                                      @Value("${iot.partitions.detach-after-months:0}") int detachAfterMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobLock = jobLock;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+        this.detachAfterMonths = detachAfterMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${iot.partitions.cron:0 15 0 * * *}")
+    public void maintain() {
+        // Replicas starting together would otherwise race on the same DDL
+        jobLock.runExclusive("sensor-partitions", this::maintainPartitions);
+    }
+
+    private void maintainPartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(current.plusMonths(i));
+        }
+
+        // 0 disables automatic detaching
+        if (detachAfterMonths > 0) {
+            YearMonth cutoff = current.minusMonths(detachAfterMonths);
+            for (YearMonth month : listPartitions()) {
+                if (month.isBefore(cutoff)) {
+                    detachPartition(month);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the partition for a month. Rows for that month that already landed in the
+     * default partition (device timestamps outside the prepared months) would make a plain
+     * CREATE ... PARTITION OF fail, so they are moved into a new table that is then attached,
+     * all in one transaction. Any failure is rethrown: without the partition, the month's rows
+     * keep piling up in the default partition.
+     */
+    public void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        String from = lowerBound(month);
+        String to = lowerBound(month.plusMonths(1));
+
+        if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name)) {
+            return;
+        }
+        Boolean stranded = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE received_at >= CAST(? AS timestamp) " +
+                        "AND received_at < CAST(? AS timestamp))", Boolean.class, from, to);
+        if (!Boolean.TRUE.equals(stranded)) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name
+                    + " PARTITION OF sensor_data FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            return;
+        }
+
+        Integer moved = transactionTemplate.execute(status -> {
+            // Holds off new rows for the month until it is attached; reads go on
+            jdbcTemplate.execute("LOCK TABLE " + DEFAULT_PARTITION + " IN EXCLUSIVE MODE");
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE sensor_data INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int rows = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                    + " WHERE received_at >= CAST(? AS timestamp) AND received_at < CAST(? AS timestamp) RETURNING *) "
+                    + "INSERT INTO " + name + " SELECT * FROM moved", from, to);
+            jdbcTemplate.execute("ALTER TABLE sensor_data ATTACH PARTITION " + name
+                    + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            return rows;
+        });
+        log.warn("Created partition {} and moved {} rows into it from {}", name, moved, DEFAULT_PARTITION);
+    }
+
+    /**
+     * Detaches a month from sensor_data. The table is kept as a standalone table named
+     * sensor_data_yyyy_MM so it can be archived or dropped separately.
+     */
+    public void detachPartition(YearMonth month) {
+        jdbcTemplate.execute("ALTER TABLE sensor_data DETACH PARTITION " + partitionName(month));
+        log.info("Detached partition {}", partitionName(month));
+    }
+
+    public List<YearMonth> listPartitions() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = 'sensor_data'",
+                String.class);
+        return names.stream()
+                .filter(name -> name.matches(PREFIX + "\\d{4}_\\d{2}"))
+                .map(name -> YearMonth.parse(name.substring(PREFIX.length()), NAME_FORMAT))
+                .sorted()
+                .toList();
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PREFIX + month.format(NAME_FORMAT);
+    }
+
+    private static String lowerBound(YearMonth month) {
+        return month.atDay(1).atStartOfDay().format(BOUND_FORMAT);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.model.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves raw sensor_data rows older than the retention age into the on-disk archive.
+ *
+ * Work is done one (patient, day) at a time: the day's rows are exported to its archive
+ * segment first and only then deleted, in chunks of ids so no single statement holds locks
+ * on a large range. If a run dies in between, the next one re-exports the remaining rows and
+ * the segment merge drops the duplicates. Rollups are not touched, so history at 1m and
+ * coarser keeps working for archived periods.
+ */
+@Service
+@Slf4j
+public class SensorDataRetentionService {
+
+    static final RowMapper<SensorData> ROW_MAPPER = (rs, rowNum) -> new SensorData(
+            rs.getLong("id"),
+            rs.getObject("user_id", Long.class),
+            rs.getString("device_id"),
+            rs.getObject("room_temp", Double.class),
+            rs.getObject("humidity", Double.class),
+            rs.getObject("water_temp_c", Double.class),
+            rs.getObject("water_temp_f", Double.class),
+            rs.getObject("ir_value", Long.class),
+            rs.getObject("bpm", Double.class),
+            rs.getObject("avg_bpm", Integer.class),
+            rs.getObject("spo2", Integer.class),
+            rs.getObject("received_at", LocalDateTime.class),
+            rs.getObject("signal_quality", Integer.class)
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SensorArchiveStore archiveStore;
+    private final ScheduledJobLock jobLock;
+    private final boolean enabled;
+    private final int rawDays;
+    private final int deleteChunkSize;
+    private final int maxSegmentsPerRun;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final Counter archived;
+    private final Counter deleted;
+    private final Timer runTimer;
+
+    public SensorDataRetentionService(JdbcTemplate jdbcTemplate,
+                                      SensorArchiveStore archiveStore,
+                                      ScheduledJobLock jobLock,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${iot.retention.enabled:false}") boolean enabled,
+                                      @Value("${iot.retention.raw-days:90}") int rawDays,
+                                      @Value("${iot.retention.delete-chunk-size:5000}") int deleteChunkSize,
+                                      @Value("${iot.retention.max-segments-per-run:500}") int maxSegmentsPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveStore = archiveStore;
+        this.jobLock = jobLock;
+        this.enabled = enabled;
+        this.rawDays = rawDays;
+        this.deleteChunkSize = deleteChunkSize;
+        this.maxSegmentsPerRun = maxSegmentsPerRun;
+
+        this.archived = Counter.builder("iot.retention.archived.rows").register(meterRegistry);
+        this.deleted = Counter.builder("iot.retention.deleted.rows").register(meterRegistry);
+        this.runTimer = Timer.builder("iot.retention.run")
+                .description("Time to archive and delete expired sensor rows")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${iot.retention.cron:0 30 1 * * *}")
+    public void run() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // One replica archives per run; the others would export and delete the same days
+            jobLock.runExclusive("sensor-retention", () -> runTimer.record(this::archiveExpired));
+        } catch (RuntimeException e) {
+            log.error("Sensor data retention failed: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void archiveExpired() {
+        // Whole days only, so every segment is complete once written
+        LocalDateTime cutoff = LocalDate.now().minusDays(rawDays).atStartOfDay();
+
+        List<Object[]> segments = jdbcTemplate.query(
+                "SELECT user_id, CAST(date_trunc('day', received_at) AS date) AS day FROM sensor_data " +
+                        "WHERE received_at < ? AND user_id IS NOT NULL " +
+                        "GROUP BY 1, 2 ORDER BY 2, 1 LIMIT ?",
+                (rs, rowNum) -> new Object[]{rs.getLong("user_id"), rs.getObject("day", LocalDate.class)},
+                cutoff, maxSegmentsPerRun);
+
+        for (Object[] segment : segments) {
+            archiveDay((Long) segment[0], (LocalDate) segment[1]);
+        }
+        if (!segments.isEmpty()) {
+            log.info("Archived {} patient-days older than {}", segments.size(), cutoff);
+        }
+    }
+
+    void archiveDay(Long userId, LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+
+        List<SensorData> rows = jdbcTemplate.query(
+                "SELECT * FROM sensor_data WHERE user_id = ? AND received_at >= ? AND received_at < ? " +
+                        "ORDER BY received_at, id",
+                ROW_MAPPER, userId, from, to);
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        archiveStore.append(userId, day, rows);
+        archived.increment(rows.size());
+
+        // The received_at bounds let Postgres prune to the one monthly partition
+        for (int i = 0; i < rows.size(); i += deleteChunkSize) {
+            Long[] ids = rows.subList(i, Math.min(i + deleteChunkSize, rows.size())).stream()
+                    .map(SensorData::getId)
+                    .toArray(Long[]::new);
+            int count = jdbcTemplate.update(
+                    "DELETE FROM sensor_data WHERE id = ANY(?) AND received_at >= ? AND received_at < ?",
+                    ps -> {
+                        ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+                        ps.setObject(2, from);
+                        ps.setObject(3, to);
+                    });
+            deleted.increment(count);
+        }
+        log.debug("Archived {} readings of userId={} for {}", rows.size(), userId, day);
+    }
+}
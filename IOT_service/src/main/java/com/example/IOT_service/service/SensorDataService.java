@@ -3,28 +3,68 @@ package com.example.IOT_service.service;
 import com.example.IOT_service.model.SensorData;
 import com.example.IOT_service.repository.SensorDataRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class SensorDataService {
 
     private final SensorDataRepository repository;
+    private final LatestReadingCache latestReadings;
+    private final TransactionTemplate transactionTemplate;
+    private final List<SensorDataListener> listeners;
 
     public SensorData save(SensorData data) {
-        return repository.save(data);
+        SensorData saved = repository.save(data);
+        publish(saved);
+        return saved;
+    }
+
+    // Persist a device batch in one transaction so Hibernate can group the INSERTs into JDBC batches
+    public List<SensorData> saveAll(List<SensorData> batch) {
+        List<SensorData> saved = transactionTemplate.execute(status -> repository.saveAll(batch));
+        // Only publish once the transaction has committed
+        saved.forEach(this::publish);
+        return saved;
     }
 
     // Only return this patient's data
     public List<SensorData> getLatestForUser(Long userId, int limit) {
-        return repository.findLatestForUser(userId, limit);
+        if (limit < 1 || limit > latestReadings.getCapacity()) {
+            return repository.findLatestForUser(userId, limit);
+        }
+
+        List<SensorData> cached = latestReadings.latest(userId, limit);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Cold miss: load a full buffer so later polls with any limit up to capacity are served from memory
+        List<SensorData> rows = repository.findLatestForUser(userId, latestReadings.getCapacity());
+        latestReadings.prime(userId, rows);
+        return rows.subList(0, Math.min(limit, rows.size()));
     }
 
     // Return this patient's latest saved reading only
     public Optional<SensorData> getLatestOne(Long userId) {
-        return repository.findTopByUserIdOrderByReceivedAtDesc(userId);
+        return getLatestForUser(userId, 1).stream().findFirst();
+    }
+
+    private void publish(SensorData saved) {
+        latestReadings.record(saved);
+        for (SensorDataListener listener : listeners) {
+            try {
+                listener.onSaved(saved);
+            } catch (RuntimeException e) {
+                // A failing listener must not fail an upload that has already been stored
+                log.warn("{} failed for reading id={}: {}", listener.getClass().getSimpleName(), saved.getId(), e.getMessage());
+            }
+        }
     }
-}
\ No newline at end of file
+}
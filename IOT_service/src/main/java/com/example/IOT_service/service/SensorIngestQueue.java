@@ -0,0 +1,199 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.exception.IngestQueueFullException;
+import com.example.IOT_service.model.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for device uploads. Request threads only enqueue; a single writer
+ * thread drains readings in batches bounded by size and by time and persists them through
+ * {@link SensorDataService#saveAll}. On shutdown the writer stops after the web server has
+ * stopped accepting requests and flushes everything still queued.
+ */
+@Component
+@Slf4j
+public class SensorIngestQueue implements SmartLifecycle {
+
+    // Stop after the web server (graceful shutdown runs at DEFAULT_PHASE - 1024 / - 2048)
+    private static final int WRITER_PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 500;
+
+    private final SensorDataService sensorDataService;
+    private final BlockingQueue<SensorData> queue;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final long shutdownTimeoutMs;
+
+    private final DistributionSummary batchSize;
+    private final Timer flushLatency;
+    private final Counter rejected;
+    private final Counter dropped;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public SensorIngestQueue(SensorDataService sensorDataService,
+                             MeterRegistry meterRegistry,
+                             @Value("${iot.ingest.write-behind.enabled:true}") boolean enabled,
+                             @Value("${iot.ingest.write-behind.capacity:10000}") int capacity,
+                             @Value("${iot.ingest.write-behind.max-batch-size:500}") int maxBatchSize,
+                             @Value("${iot.ingest.write-behind.max-batch-delay-ms:200}") long maxBatchDelayMs,
+                             @Value("${iot.ingest.write-behind.shutdown-timeout-ms:30000}") long shutdownTimeoutMs) {
+        this.sensorDataService = sensorDataService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMs);
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+
+        Gauge.builder("iot.ingest.queue.depth", queue, BlockingQueue::size)
+                .description("Readings accepted but not yet written")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("iot.ingest.queue.batch.size")
+                .description("Readings written per flush")
+                .register(meterRegistry);
+        this.flushLatency = Timer.builder("iot.ingest.queue.flush")
+                .description("Time to persist one batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("iot.ingest.queue.rejected")
+                .description("Uploads refused because the queue was full")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("iot.ingest.queue.dropped")
+                .description("Queued readings that could not be persisted")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void enqueue(SensorData data) {
+        if (!running || !queue.offer(data)) {
+            rejected.increment();
+            throw new IngestQueueFullException("Ingest queue is full, retry later");
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drainLoop, "sensor-ingest-writer");
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.error("Ingest writer did not finish within {} ms, {} readings still queued",
+                    shutdownTimeoutMs, queue.size());
+            writer.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return WRITER_PHASE;
+    }
+
+    private void drainLoop() {
+        List<SensorData> batch = new ArrayList<>(maxBatchSize);
+
+        // Keep draining after stop() until everything accepted has been written
+        while (running || !queue.isEmpty()) {
+            try {
+                SensorData first = queue.poll(maxBatchDelayNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxBatchDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        break;
+                    }
+                    SensorData next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<SensorData> batch) throws InterruptedException {
+        batchSize.record(batch.size());
+
+        for (int attempt = 1; attempt <= MAX_FLUSH_ATTEMPTS; attempt++) {
+            long start = System.nanoTime();
+            try {
+                sensorDataService.saveAll(batch);
+                flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Ingest flush of {} readings failed (attempt {}/{}): {}",
+                        batch.size(), attempt, MAX_FLUSH_ATTEMPTS, e.getMessage());
+                // The failed transaction may already have assigned sequence ids
+                batch.forEach(data -> data.setId(null));
+                Thread.sleep(RETRY_BACKOFF_MS * attempt);
+            }
+        }
+
+        // Batch keeps failing - isolate the bad rows so the rest are not lost
+        for (SensorData data : batch) {
+            try {
+                data.setId(null);
+                sensorDataService.save(data);
+            } catch (RuntimeException e) {
+                dropped.increment();
+                log.error("Dropping reading for deviceId={}: {}", data.getDeviceId(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.model.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events fan-out of newly saved readings to the viewers of each patient.
+ *
+ * The ingest path only appends to a small per-subscriber buffer (dropping the oldest
+ * reading when it is full) and schedules a drain on the dispatcher pool, so a slow browser
+ * tab can fall behind but can never hold up an upload.
+ */
+@Component
+@Slf4j
+public class SensorLiveStream implements SensorDataListener {
+
+    private static final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final ArrayDeque<SensorData> buffer = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+    }
+
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService dispatcher;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMs;
+    private final Counter dropped;
+
+    public SensorLiveStream(MeterRegistry meterRegistry,
+                            @Value("${iot.live-stream.buffer-size:64}") int bufferSize,
+                            @Value("${iot.live-stream.max-subscribers:1000}") int maxSubscribers,
+                            @Value("${iot.live-stream.timeout-ms:1800000}") long timeoutMs,
+                            @Value("${iot.live-stream.dispatcher-threads:4}") int dispatcherThreads) {
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMs = timeoutMs;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sensor-live-stream-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("iot.live.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .register(meterRegistry);
+        this.dropped = Counter.builder("iot.live.stream.dropped")
+                .description("Readings dropped because a subscriber fell behind")
+                .register(meterRegistry);
+    }
+
+    // Returns null when the subscriber limit has been reached
+    public SseEmitter subscribe(Long userId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+
+        Subscriber subscriber = new Subscriber(userId, new SseEmitter(timeoutMs));
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(e -> remove(subscriber));
+
+        subscribers.compute(userId, (id, viewers) -> {
+            List<Subscriber> list = viewers != null ? viewers : new CopyOnWriteArrayList<>();
+            list.add(subscriber);
+            return list;
+        });
+        return subscriber.emitter;
+    }
+
+    @Override
+    public void onSaved(SensorData data) {
+        List<Subscriber> viewers = subscribers.get(data.getUserId());
+        if (viewers == null) {
+            return;
+        }
+        for (Subscriber subscriber : viewers) {
+            synchronized (subscriber.buffer) {
+                if (subscriber.buffer.size() >= bufferSize) {
+                    subscriber.buffer.pollFirst();
+                    dropped.increment();
+                }
+                subscriber.buffer.addLast(data);
+            }
+            scheduleDrain(subscriber);
+        }
+    }
+
+    // Ends every open stream; EventSource clients reconnect on their own
+    public void disconnectAll() {
+        subscribers.values().forEach(viewers -> viewers.forEach(s -> s.emitter.complete()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        subscribers.values().forEach(viewers -> viewers.forEach(s -> s.emitter.complete()));
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            SensorData next;
+            while ((next = poll(subscriber)) != null) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .name("reading")
+                        .id(String.valueOf(next.getId()))
+                        .data(next));
+            }
+        } catch (Exception e) {
+            // Client went away (the container completes the emitter); leave draining set so
+            // nothing is scheduled for this subscriber again
+            log.debug("Closing live stream for userId={}: {}", subscriber.userId, e.getMessage());
+            remove(subscriber);
+            return;
+        }
+
+        subscriber.draining.set(false);
+        // A reading may have been buffered after the last poll but before the flag was cleared
+        if (!isEmpty(subscriber)) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private SensorData poll(Subscriber subscriber) {
+        synchronized (subscriber.buffer) {
+            return subscriber.buffer.pollFirst();
+        }
+    }
+
+    private boolean isEmpty(Subscriber subscriber) {
+        synchronized (subscriber.buffer) {
+            return subscriber.buffer.isEmpty();
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (id, viewers) -> {
+            if (viewers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return viewers.isEmpty() ? null : viewers;
+        });
+    }
+}
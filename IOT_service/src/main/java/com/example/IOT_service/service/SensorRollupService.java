@@ -0,0 +1,255 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.dto.SensorHistoryPoint;
+import com.example.IOT_service.dto.SensorHistoryResponse;
+import com.example.IOT_service.model.RollupResolution;
+import com.example.IOT_service.model.SensorData;
+import com.example.IOT_service.repository.SensorDataRepository;
+import com.example.IOT_service.repository.SensorRollupRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Maintains the 1m / 15m / 1h rollups in sensor_rollup and serves history queries from them.
+ *
+ * Each run re-aggregates raw rows from the stored watermark (minus a lookback for readings
+ * that were still in the write-behind queue) up to the last complete minute, then rebuilds
+ * the coarser levels from the minute buckets. Readings saved with an older receivedAt than
+ * the next window (backlog uploads) widen the next run so their buckets are rebuilt too.
+ */
+@Service
+@Slf4j
+public class SensorRollupService implements SensorDataListener {
+
+    private static final String WATERMARK = "raw";
+    private static final String RAW = "raw";
+    private static final String LATE = "late";
+
+    private final SensorRollupRepository rollupRepository;
+    private final SensorDataRepository sensorDataRepository;
+    private final SensorArchiveStore archiveStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledJobLock jobLock;
+    private final SignalQualityScorer signalQuality;
+    private final Timer runTimer;
+
+    private final boolean enabled;
+    private final Duration lookback;
+    private final Duration maxWindow;
+
+    private final AtomicReference<LocalDateTime> lateFrom = new AtomicReference<>();
+    private volatile LocalDateTime nextWindowStart;
+
+    public SensorRollupService(SensorRollupRepository rollupRepository,
+                               SensorDataRepository sensorDataRepository,
+                               SensorArchiveStore archiveStore,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               ScheduledJobLock jobLock,
+                               SignalQualityScorer signalQuality,
+                               MeterRegistry meterRegistry,
+                               @Value("${iot.rollup.enabled:true}") boolean enabled,
+                               @Value("${iot.rollup.lookback-minutes:10}") long lookbackMinutes,
+                               @Value("${iot.rollup.max-window-hours:6}") long maxWindowHours) {
+        this.rollupRepository = rollupRepository;
+        this.sensorDataRepository = sensorDataRepository;
+        this.archiveStore = archiveStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.jobLock = jobLock;
+        this.signalQuality = signalQuality;
+        this.enabled = enabled;
+        this.lookback = Duration.ofMinutes(lookbackMinutes);
+        this.maxWindow = Duration.ofHours(maxWindowHours);
+
+        this.runTimer = Timer.builder("iot.rollup.run")
+                .description("Time to refresh the sensor rollups")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onSaved(SensorData data) {
+        LocalDateTime receivedAt = data.getReceivedAt();
+        LocalDateTime windowStart = nextWindowStart;
+        if (receivedAt != null && (windowStart == null || receivedAt.isBefore(windowStart))) {
+            lateFrom.accumulateAndGet(receivedAt, SensorRollupService::earliest);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${iot.rollup.interval-ms:60000}", initialDelayString = "${iot.rollup.interval-ms:60000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!jobLock.runExclusive("sensor-rollup", () -> runTimer.record(this::refreshWindow))) {
+                handOverLateReadings();
+            }
+        } catch (RuntimeException e) {
+            log.error("Sensor rollup failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Another replica ran this refresh, so late readings saved here would never widen its
+     * window. They are left in the shared "late" row for whichever replica runs next.
+     */
+    private void handOverLateReadings() {
+        LocalDateTime late = lateFrom.getAndSet(null);
+        if (late != null) {
+            jdbcTemplate.update("INSERT INTO sensor_rollup_watermark (name, processed_until) VALUES (?, ?) " +
+                    "ON CONFLICT (name) DO UPDATE SET processed_until = " +
+                    "LEAST(sensor_rollup_watermark.processed_until, EXCLUDED.processed_until)", LATE, late);
+        }
+    }
+
+    private void refreshWindow() {
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+
+        LocalDateTime watermark = loadWatermark();
+        if (watermark == null) {
+            // First run: start from the oldest raw row
+            watermark = sensorDataRepository.findOldestReceivedAt();
+            if (watermark == null) {
+                return;
+            }
+        }
+
+        LocalDateTime from = watermark.minus(lookback);
+        // Late readings handed over by other replicas, then our own
+        List<LocalDateTime> handedOver = jdbcTemplate.queryForList(
+                "DELETE FROM sensor_rollup_watermark WHERE name = ? RETURNING processed_until", LocalDateTime.class, LATE);
+        for (LocalDateTime t : handedOver) {
+            lateFrom.accumulateAndGet(t, SensorRollupService::earliest);
+        }
+        LocalDateTime late = lateFrom.getAndSet(null);
+        if (late != null && late.isBefore(from)) {
+            from = late;
+        }
+        // Align to the coarsest level so every bucket touched is rebuilt from complete input
+        from = alignDown(from, RollupResolution.HOUR.getSeconds());
+
+        boolean capped = Duration.between(from, to).compareTo(maxWindow) > 0;
+        if (capped) {
+            to = from.plus(maxWindow);
+            // Continue from here on the next run
+            lateFrom.accumulateAndGet(to, SensorRollupService::earliest);
+        }
+
+        LocalDateTime windowFrom = from;
+        LocalDateTime windowTo = to;
+        transactionTemplate.executeWithoutResult(status -> {
+            int minutes = rollupRepository.rollupRaw(RollupResolution.MINUTE.getSeconds(), windowFrom, windowTo,
+                    signalQuality.getMinScore());
+            rollupRepository.rollupFrom(RollupResolution.MINUTE.getSeconds(),
+                    RollupResolution.QUARTER_HOUR.getSeconds(), windowFrom, windowTo);
+            rollupRepository.rollupFrom(RollupResolution.QUARTER_HOUR.getSeconds(),
+                    RollupResolution.HOUR.getSeconds(), windowFrom, windowTo);
+            saveWatermark(windowTo);
+            log.debug("Rolled up {} minute buckets in [{}, {})", minutes, windowFrom, windowTo);
+        });
+
+        nextWindowStart = alignDown(windowTo.minus(lookback), RollupResolution.HOUR.getSeconds());
+    }
+
+    /**
+     * History for one user. Without an explicit resolution the most detailed level whose
+     * bucket count stays within {@code maxPoints} is used; "raw" returns individual readings,
+     * from the archive and sensor_data combined.
+     */
+    public SensorHistoryResponse getHistory(Long userId, LocalDateTime from, LocalDateTime to,
+                                            String resolution, int maxPoints) {
+        if (!from.isBefore(to)) {
+            throw new RuntimeException("'from' must be before 'to'");
+        }
+        if (maxPoints < 1) {
+            throw new RuntimeException("maxPoints must be positive");
+        }
+
+        if (RAW.equalsIgnoreCase(resolution)) {
+            return getRawHistory(userId, from, to, maxPoints);
+        }
+
+        RollupResolution level = resolution == null || resolution.equalsIgnoreCase("auto")
+                ? pickResolution(from, to, maxPoints)
+                : RollupResolution.fromLabel(resolution);
+
+        List<SensorHistoryPoint> points = rollupRepository
+                .findRange(level.getSeconds(), userId, alignDown(from, level.getSeconds()), to)
+                .stream()
+                .map(SensorHistoryPoint::from)
+                .toList();
+
+        return new SensorHistoryResponse(userId, level.getLabel(), from, to, points);
+    }
+
+    private SensorHistoryResponse getRawHistory(Long userId, LocalDateTime from, LocalDateTime to, int maxPoints) {
+        // Archived days come first; rows present in both (an interrupted retention run) count once
+        Map<Long, SensorData> readings = new LinkedHashMap<>();
+        for (SensorData row : archiveStore.read(userId, from, to)) {
+            readings.put(row.getId(), row);
+        }
+        for (SensorData row : sensorDataRepository.findRangeForUser(userId, from, to, PageRequest.of(0, maxPoints + 1))) {
+            readings.putIfAbsent(row.getId(), row);
+        }
+        if (readings.size() > maxPoints) {
+            throw new RuntimeException("More than " + maxPoints + " readings in range; use a coarser resolution");
+        }
+
+        List<SensorHistoryPoint> points = readings.values().stream()
+                .sorted(Comparator.comparing(SensorData::getReceivedAt).thenComparing(SensorData::getId))
+                .map(SensorHistoryPoint::from)
+                .toList();
+        return new SensorHistoryResponse(userId, RAW, from, to, points);
+    }
+
+    static RollupResolution pickResolution(LocalDateTime from, LocalDateTime to, int maxPoints) {
+        long span = Duration.between(from, to).getSeconds();
+        for (RollupResolution level : RollupResolution.values()) {
+            if ((span + level.getSeconds() - 1) / level.getSeconds() <= maxPoints) {
+                return level;
+            }
+        }
+        return RollupResolution.HOUR;
+    }
+
+    // Buckets use the same origin as date_bin(..., TIMESTAMP '2000-01-01'), which is aligned to every level
+    static LocalDateTime alignDown(LocalDateTime time, int seconds) {
+        long epoch = time.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(epoch - Math.floorMod(epoch, seconds), 0, ZoneOffset.UTC);
+    }
+
+    private LocalDateTime loadWatermark() {
+        List<LocalDateTime> rows = jdbcTemplate.queryForList(
+                "SELECT processed_until FROM sensor_rollup_watermark WHERE name = ?", LocalDateTime.class, WATERMARK);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private void saveWatermark(LocalDateTime until) {
+        jdbcTemplate.update("INSERT INTO sensor_rollup_watermark (name, processed_until) VALUES (?, ?) " +
+                "ON CONFLICT (name) DO UPDATE SET processed_until = " +
+                "GREATEST(sensor_rollup_watermark.processed_until, EXCLUDED.processed_until)", WATERMARK, until);
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a == null || b.isBefore(a) ? b : a;
+    }
+}
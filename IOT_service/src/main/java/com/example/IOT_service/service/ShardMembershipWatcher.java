@@ -0,0 +1,85 @@
+package com.example.IOT_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Watches the set of registered IOT_service replicas. The gateway routes each patient and
+ * device to one replica through a consistent-hash ring over that set, so when a replica
+ * joins or leaves, some patients move and the replica that used to own them would keep
+ * answering from stale per-patient state if they ever came back. On every membership
+ * change the in-memory caches are dropped (they refill from Postgres) and open live
+ * streams are closed so browsers reconnect through the gateway to the new owner.
+ */
+@Component
+@Slf4j
+public class ShardMembershipWatcher {
+
+    private final DiscoveryClient discoveryClient;
+    private final LatestReadingCache latestReadingCache;
+    private final RecentVitalsStore recentVitalsStore;
+    private final DeviceCredentialCache deviceCredentialCache;
+    private final SensorLiveStream liveStream;
+    private final String serviceId;
+    private final Counter rebalances;
+
+    private Set<String> members;
+
+    public ShardMembershipWatcher(DiscoveryClient discoveryClient,
+                                  LatestReadingCache latestReadingCache,
+                                  RecentVitalsStore recentVitalsStore,
+                                  DeviceCredentialCache deviceCredentialCache,
+                                  SensorLiveStream liveStream,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${eureka.instance.virtual-host-name:iot-service}") String serviceId) {
+        this.discoveryClient = discoveryClient;
+        this.latestReadingCache = latestReadingCache;
+        this.recentVitalsStore = recentVitalsStore;
+        this.deviceCredentialCache = deviceCredentialCache;
+        this.liveStream = liveStream;
+        this.serviceId = serviceId;
+        this.rebalances = Counter.builder("iot.shard.rebalances")
+                .description("Replica membership changes that reset per-patient state")
+                .register(meterRegistry);
+    }
+
+    // Published by the Eureka client after each registry fetch
+    @EventListener(HeartbeatEvent.class)
+    public synchronized void onHeartbeat() {
+        Set<String> current = new TreeSet<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+            current.add(instance.getInstanceId() != null
+                    ? instance.getInstanceId()
+                    : instance.getHost() + ":" + instance.getPort());
+        }
+        // An empty view means the registry is unreachable or still warming up, not that every replica left
+        if (current.isEmpty() || current.equals(members)) {
+            return;
+        }
+
+        Set<String> previous = members;
+        members = current;
+        if (previous == null) {
+            log.info("Shard membership for {}: {}", serviceId, current);
+            return;
+        }
+
+        log.info("Shard membership for {} changed from {} to {}; resetting per-patient state",
+                serviceId, previous, current);
+        rebalances.increment();
+        latestReadingCache.clear();
+        recentVitalsStore.clear();
+        deviceCredentialCache.clear();
+        liveStream.disconnectAll();
+    }
+}
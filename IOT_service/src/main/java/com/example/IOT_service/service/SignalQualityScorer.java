@@ -0,0 +1,206 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.model.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Signal-quality index (0-100) of a PPG reading, computed at ingest from the IR photodiode
+ * level and how much bpm jumps from one sample to the next.
+ *
+ * The IR level tells whether a finger is on the sensor at all (the MAX3010x reads well below
+ * finger-threshold without one) and whether the contact is firm or the ADC saturated. Real
+ * heart rate changes smoothly between 1 Hz samples, so an EWMA of the relative beat-to-beat
+ * jump separates motion artefacts from physiology. Readings scoring below min-score are flagged
+ * (kept, but excluded from alerting, charts and rollups) or, in drop mode, not stored.
+ *
+ * The per-device state lives in an AtomicLongArray like {@link DeviceRateLimiter}: each slot
+ * packs a 16-bit deviceId fingerprint, the previous bpm, the jump EWMA and a coarse last-seen
+ * time, so scoring is lock-free and allocates nothing.
+ */
+@Component
+public class SignalQualityScorer {
+
+    public enum Mode {FLAG, DROP}
+
+    private static final int PROBES = 4;
+    private static final double BPM_SCALE = 64.0;      // prev bpm stored as bpm * 64 in 16 bits
+    private static final double JUMP_SCALE = 65535.0;  // jump EWMA stored as a 0..1 fraction in 16 bits
+    private static final double MIN_BPM = 25;
+    private static final double MAX_BPM = 250;
+    private static final int MIN_SPO2 = 70;
+
+    private final boolean enabled;
+    private final Mode mode;
+    private final int minScore;
+    private final long fingerThreshold;
+    private final long fullContact;
+    private final long saturation;
+    private final double maxJump;
+    private final double jumpAlpha;
+    private final long staleSeconds;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long originNanos = System.nanoTime();
+
+    private final DistributionSummary scores;
+    private final Counter lowQuality;
+
+    public SignalQualityScorer(MeterRegistry meterRegistry,
+                               @Value("${iot.signal-quality.enabled:true}") boolean enabled,
+                               @Value("${iot.signal-quality.mode:flag}") String mode,
+                               @Value("${iot.signal-quality.min-score:40}") int minScore,
+                               @Value("${iot.signal-quality.ir.finger-threshold:50000}") long fingerThreshold,
+                               @Value("${iot.signal-quality.ir.full-contact:100000}") long fullContact,
+                               @Value("${iot.signal-quality.ir.saturation:262000}") long saturation,
+                               @Value("${iot.signal-quality.max-jump:0.3}") double maxJump,
+                               @Value("${iot.signal-quality.jump-alpha:0.3}") double jumpAlpha,
+                               @Value("${iot.signal-quality.stale-seconds:30}") long staleSeconds,
+                               @Value("${iot.signal-quality.slots:16384}") int slots) {
+        this.enabled = enabled;
+        this.mode = Mode.valueOf(mode.toUpperCase());
+        this.minScore = minScore;
+        this.fingerThreshold = fingerThreshold;
+        this.fullContact = Math.max(fullContact, fingerThreshold + 1);
+        this.saturation = saturation;
+        this.maxJump = maxJump;
+        this.jumpAlpha = jumpAlpha;
+        this.staleSeconds = staleSeconds;
+
+        int size = Integer.highestOneBit(Math.max(slots - 1, 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+
+        this.scores = DistributionSummary.builder("iot.signal.quality")
+                .description("Signal-quality index of scored readings")
+                .serviceLevelObjectives(minScore)
+                .register(meterRegistry);
+        this.lowQuality = Counter.builder("iot.signal.quality.low")
+                .tag("action", this.mode == Mode.DROP ? "dropped" : "flagged")
+                .description("Readings below the minimum signal quality")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Scores the reading and stores the index on it. Returns false when the reading should
+     * not be stored (drop mode and below min-score). Expects deviceId to be set; readings of
+     * one device must be scored in upload order.
+     */
+    public boolean admit(SensorData data) {
+        if (!enabled) {
+            data.setSignalQuality(null);
+            return true;
+        }
+        int score = score(data.getDeviceId(), data.getIrValue(), data.getBpm(), data.getSpo2());
+        data.setSignalQuality(score);
+        scores.record(score);
+        if (score >= minScore) {
+            return true;
+        }
+        lowQuality.increment();
+        return mode == Mode.FLAG;
+    }
+
+    /** True for readings flagged below min-score; unscored readings (older rows) count as good. */
+    public boolean isLowQuality(SensorData data) {
+        Integer score = data.getSignalQuality();
+        return enabled && score != null && score < minScore;
+    }
+
+    public int getMinScore() {
+        return enabled ? minScore : 0;
+    }
+
+    int score(String deviceId, Long irValue, Double bpm, Integer spo2) {
+        double quality = 1.0;
+        if (irValue != null) {
+            if (irValue < fingerThreshold) {
+                return 0;
+            }
+            if (irValue >= saturation) {
+                quality *= 0.3;
+            } else {
+                // Weak contact between the finger threshold and full contact scores 0.5 to 1
+                double contact = (double) (irValue - fingerThreshold) / (fullContact - fingerThreshold);
+                quality *= 0.5 + 0.5 * Math.min(1.0, contact);
+            }
+        }
+
+        // Zero/negative bpm means the device found no beat; only the IR level says anything then
+        if (bpm == null || bpm <= 0) {
+            return (int) Math.round(100 * quality);
+        }
+        if (bpm < MIN_BPM || bpm > MAX_BPM) {
+            quality *= 0.2;
+        }
+        if (spo2 != null && spo2 > 0 && (spo2 < MIN_SPO2 || spo2 > 100)) {
+            quality *= 0.5;
+        }
+        if (deviceId != null) {
+            double jump = updateJump(deviceId, bpm);
+            quality *= Math.max(0.0, 1.0 - jump / maxJump);
+        }
+        return (int) Math.round(100 * quality);
+    }
+
+    // Folds this sample's relative bpm jump into the device's EWMA and returns the new EWMA
+    private double updateJump(String deviceId, double bpm) {
+        int h = spread(deviceId.hashCode());
+        long fp = ((h >>> 16) & 0xFFFF) | 1; // never 0, so an empty slot never matches
+        long nowSec = ((System.nanoTime() - originNanos) / 1_000_000_000L) & 0xFFFF;
+        long bpmBits = Math.min(0xFFFF, Math.round(bpm * BPM_SCALE));
+
+        while (true) {
+            int slot = -1;
+            long cur = 0;
+            boolean own = false;
+            for (int p = 0; p < PROBES; p++) {
+                int i = (h + p) & mask;
+                long v = slots.get(i);
+                if (v >>> 48 == fp) {
+                    slot = i;
+                    cur = v;
+                    own = true;
+                    break;
+                }
+                if (slot < 0 && (v == 0 || age(v, nowSec) > staleSeconds)) {
+                    slot = i;
+                    cur = v;
+                }
+            }
+            if (slot < 0) {
+                // Busy neighbourhood: score without history rather than evict an active device
+                return 0.0;
+            }
+
+            double jumpEwma = 0.0;
+            if (own && age(cur, nowSec) <= staleSeconds) {
+                double prevBpm = ((cur >>> 32) & 0xFFFF) / BPM_SCALE;
+                double prevEwma = ((cur >>> 16) & 0xFFFF) / JUMP_SCALE;
+                double jump = prevBpm > 0 ? Math.min(1.0, Math.abs(bpm - prevBpm) / prevBpm) : 0.0;
+                jumpEwma = prevEwma + jumpAlpha * (jump - prevEwma);
+            }
+
+            long next = (fp << 48) | (bpmBits << 32) | (Math.round(jumpEwma * JUMP_SCALE) << 16) | nowSec;
+            if (slots.compareAndSet(slot, cur, next)) {
+                return jumpEwma;
+            }
+        }
+    }
+
+    private static long age(long slotValue, long nowSec) {
+        return (nowSec - (slotValue & 0xFFFF)) & 0xFFFF;
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+}
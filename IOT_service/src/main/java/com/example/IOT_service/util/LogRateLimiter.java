@@ -0,0 +1,38 @@
+package com.example.IOT_service.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps a hot log statement at a few lines per second. Callers check {@link #acquire()} before
+ * logging, so suppressed calls cost neither formatting nor argument boxing:
+ *
+ * <pre>
+ * long skipped = limiter.acquire();
+ * if (skipped >= 0) log.info("Saved reading id={} (+{} not logged)", id, skipped);
+ * </pre>
+ */
+public final class LogRateLimiter {
+
+    private final long intervalNanos;
+    private final AtomicLong nextAllowed = new AtomicLong(System.nanoTime());
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public LogRateLimiter(double perSecond) {
+        this.intervalNanos = perSecond <= 0 ? Long.MAX_VALUE : (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+    }
+
+    /** Returns -1 if this call must not log, otherwise how many calls were suppressed since the last one that did. */
+    public long acquire() {
+        if (intervalNanos == Long.MAX_VALUE) {
+            return -1;
+        }
+        long now = System.nanoTime();
+        long next = nextAllowed.get();
+        if (now - next >= 0 && nextAllowed.compareAndSet(next, now + intervalNanos)) {
+            return suppressed.getAndSet(0);
+        }
+        suppressed.incrementAndGet();
+        return -1;
+    }
+}
@@ -0,0 +1,27 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update).
+-- Existing databases are baselined at this version and skip it.
+
+CREATE TABLE devices (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    device_id    VARCHAR(255) NOT NULL UNIQUE,
+    device_token VARCHAR(255) NOT NULL,
+    user_id      BIGINT       NOT NULL,
+    status       VARCHAR(255) NOT NULL
+);
+
+CREATE SEQUENCE sensor_data_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE sensor_data (
+    id           BIGINT PRIMARY KEY,
+    user_id      BIGINT,
+    device_id    VARCHAR(255),
+    room_temp    DOUBLE PRECISION,
+    humidity     DOUBLE PRECISION,
+    water_temp_c DOUBLE PRECISION,
+    water_temp_f DOUBLE PRECISION,
+    ir_value     BIGINT,
+    bpm          DOUBLE PRECISION,
+    avg_bpm      INTEGER,
+    spo2         INTEGER,
+    received_at  TIMESTAMP(6)
+);
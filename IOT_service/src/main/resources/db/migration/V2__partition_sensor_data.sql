@@ -0,0 +1,56 @@
+-- Rebuild sensor_data as a table range-partitioned by month on received_at, with a
+-- composite (user_id, received_at) index for the latest-readings queries.
+-- The primary key has to include the partition key.
+
+CREATE SEQUENCE IF NOT EXISTS sensor_data_seq START WITH 1 INCREMENT BY 50;
+
+ALTER TABLE sensor_data RENAME TO sensor_data_legacy;
+
+CREATE TABLE sensor_data (
+    id           BIGINT       NOT NULL,
+    user_id      BIGINT,
+    device_id    VARCHAR(255),
+    room_temp    DOUBLE PRECISION,
+    humidity     DOUBLE PRECISION,
+    water_temp_c DOUBLE PRECISION,
+    water_temp_f DOUBLE PRECISION,
+    ir_value     BIGINT,
+    bpm          DOUBLE PRECISION,
+    avg_bpm      INTEGER,
+    spo2         INTEGER,
+    received_at  TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id, received_at)
+) PARTITION BY RANGE (received_at);
+
+-- One partition per month from the oldest existing row through two months ahead.
+-- Later months are created by SensorDataPartitionManager.
+DO $$
+DECLARE
+    month_start TIMESTAMP := date_trunc('month', COALESCE((SELECT MIN(received_at) FROM sensor_data_legacy), now()::timestamp));
+    last_month  TIMESTAMP := date_trunc('month', now()::timestamp + INTERVAL '2 months');
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF sensor_data FOR VALUES FROM (%L) TO (%L)',
+                       'sensor_data_' || to_char(month_start, 'YYYY_MM'),
+                       month_start,
+                       month_start + INTERVAL '1 month');
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+-- Catches device timestamps outside the prepared months
+CREATE TABLE sensor_data_default PARTITION OF sensor_data DEFAULT;
+
+INSERT INTO sensor_data (id, user_id, device_id, room_temp, humidity, water_temp_c, water_temp_f,
+                         ir_value, bpm, avg_bpm, spo2, received_at)
+SELECT id, user_id, device_id, room_temp, humidity, water_temp_c, water_temp_f,
+       ir_value, bpm, avg_bpm, spo2, COALESCE(received_at, now()::timestamp)
+FROM sensor_data_legacy;
+
+DROP TABLE sensor_data_legacy;
+
+-- Ids used to come from an identity column; continue the sequence above them
+SELECT setval('sensor_data_seq', GREATEST((SELECT COALESCE(MAX(id), 1) FROM sensor_data),
+                                          (SELECT last_value FROM sensor_data_seq)));
+
+CREATE INDEX idx_sensor_data_user_received ON sensor_data (user_id, received_at DESC);
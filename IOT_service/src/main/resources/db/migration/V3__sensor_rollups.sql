@@ -0,0 +1,36 @@
+-- Per-user aggregates of sensor_data at 1 minute, 15 minute and 1 hour resolution,
+-- maintained incrementally by SensorRollupService. Sums are stored instead of averages
+-- so coarser buckets can be built from finer ones.
+
+CREATE TABLE sensor_rollup (
+    resolution_seconds INTEGER      NOT NULL,
+    user_id            BIGINT       NOT NULL,
+    bucket_start       TIMESTAMP(6) NOT NULL,
+    sample_count       BIGINT       NOT NULL,
+    bpm_count          BIGINT       NOT NULL,
+    bpm_min            DOUBLE PRECISION,
+    bpm_max            DOUBLE PRECISION,
+    bpm_sum            DOUBLE PRECISION,
+    spo2_count         BIGINT       NOT NULL,
+    spo2_min           DOUBLE PRECISION,
+    spo2_max           DOUBLE PRECISION,
+    spo2_sum           DOUBLE PRECISION,
+    room_temp_count    BIGINT       NOT NULL,
+    room_temp_min      DOUBLE PRECISION,
+    room_temp_max      DOUBLE PRECISION,
+    room_temp_sum      DOUBLE PRECISION,
+    humidity_count     BIGINT       NOT NULL,
+    humidity_min       DOUBLE PRECISION,
+    humidity_max       DOUBLE PRECISION,
+    humidity_sum       DOUBLE PRECISION,
+    PRIMARY KEY (resolution_seconds, user_id, bucket_start)
+);
+
+-- How far raw rows have been rolled up
+CREATE TABLE sensor_rollup_watermark (
+    name            VARCHAR(64)  PRIMARY KEY,
+    processed_until TIMESTAMP(6) NOT NULL
+);
+
+-- The rollup job scans sensor_data by time range across all users
+CREATE INDEX idx_sensor_data_received_brin ON sensor_data USING brin (received_at);
@@ -0,0 +1,13 @@
+-- devices.id moves from an identity column to a pooled sequence so bulk provisioning can batch
+-- its inserts. Plain INSERTs without an id keep working through the column default; Hibernate
+-- uses the pooled-lo optimizer, so values handed out by that default never overlap its blocks.
+CREATE SEQUENCE IF NOT EXISTS devices_seq INCREMENT BY 50;
+SELECT setval('devices_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM devices), false);
+
+ALTER TABLE devices ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE devices ALTER COLUMN id SET DEFAULT nextval('devices_seq');
+ALTER SEQUENCE devices_seq OWNED BY devices.id;
+
+-- Keyset-paged listing filtered by owner or status
+CREATE INDEX IF NOT EXISTS idx_devices_user_id ON devices (user_id, id);
+CREATE INDEX IF NOT EXISTS idx_devices_status ON devices (status, id);
@@ -0,0 +1,3 @@
+-- Signal-quality index (0-100) computed at ingest from the IR level and beat-to-beat variability.
+-- Rows stored before scoring existed stay NULL and are treated as good.
+ALTER TABLE sensor_data ADD COLUMN IF NOT EXISTS signal_quality SMALLINT;
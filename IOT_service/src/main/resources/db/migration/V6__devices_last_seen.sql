@@ -0,0 +1,2 @@
+-- Last upload time per device, written in batches by DeviceLivenessTracker (not on every upload)
+ALTER TABLE devices ADD COLUMN IF NOT EXISTS last_seen_at TIMESTAMP(6);
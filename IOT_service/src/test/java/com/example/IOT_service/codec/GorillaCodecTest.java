@@ -0,0 +1,125 @@
+package com.example.IOT_service.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GorillaCodecTest {
+
+    @Test
+    void bitStreamReadsBackEveryWidthAcrossWordBoundaries() {
+        Random random = new Random(1);
+        BitStream stream = new BitStream(1);
+        long[] values = new long[5_000];
+        int[] widths = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            widths[i] = random.nextInt(65);
+            values[i] = widths[i] == 64 ? random.nextLong()
+                    : widths[i] == 0 ? 0 : random.nextLong() & ((1L << widths[i]) - 1);
+            stream.write(values[i], widths[i]);
+        }
+        stream.trim();
+
+        BitStream.Reader reader = new BitStream.Reader(stream);
+        int bits = 0;
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], reader.read(widths[i]), "value " + i + " of width " + widths[i]);
+            bits += widths[i];
+        }
+        assertEquals(bits, stream.bitLength());
+    }
+
+    @Test
+    void timestampsRoundTripInEveryDeltaOfDeltaBucket() {
+        // Deltas chosen so delta-of-deltas hit 0, both ends of each bucket and the 64-bit escape
+        long[] deltas = {1000, 1000, 1000, 937, 1001, 1000, 745, 1001, 1000, -1047, 1001, 1000,
+                1000 + 2049, 1000, 1000 - 2048, 1000, 0, 0, Long.MAX_VALUE / 4, -(Long.MAX_VALUE / 4), 1};
+        long[] ts = new long[deltas.length + 1];
+        ts[0] = 1_700_000_000_000L;
+        for (int i = 0; i < deltas.length; i++) {
+            ts[i + 1] = ts[i] + deltas[i];
+        }
+        assertTimestampsRoundTrip(ts);
+        assertTimestampsRoundTrip(new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE});
+    }
+
+    @Test
+    void randomTimestampsRoundTrip() {
+        Random random = new Random(2);
+        for (int run = 0; run < 200; run++) {
+            long[] ts = new long[random.nextInt(500) + 1];
+            ts[0] = random.nextLong() >> 8;
+            for (int i = 1; i < ts.length; i++) {
+                // Mostly 1 Hz with jitter, occasionally a gap of minutes
+                long delta = random.nextInt(20) == 0 ? random.nextInt(600_000) : 1000 + random.nextInt(41) - 20;
+                ts[i] = ts[i - 1] + delta;
+            }
+            assertTimestampsRoundTrip(ts);
+        }
+    }
+
+    @Test
+    void valuesRoundTripBitForBit() {
+        double[] values = {0.0, 0.0, -0.0, 72.0, 72.0, 72.5, Double.NaN, Double.NaN, 98.0,
+                Double.longBitsToDouble(0x7ff0_0000_0000_0001L), Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE,
+                -Double.MAX_VALUE, 1.0, Double.longBitsToDouble(~Double.doubleToRawLongBits(1.0)), 36.6, 36.6};
+        assertValuesRoundTrip(values);
+    }
+
+    @Test
+    void randomValuesRoundTrip() {
+        Random random = new Random(3);
+        for (int run = 0; run < 200; run++) {
+            double[] values = new double[random.nextInt(500) + 1];
+            for (int i = 0; i < values.length; i++) {
+                switch (random.nextInt(5)) {
+                    case 0 -> values[i] = i > 0 ? values[i - 1] : 0.0;
+                    case 1 -> values[i] = Double.NaN;
+                    case 2 -> values[i] = Double.longBitsToDouble(random.nextLong());
+                    default -> values[i] = Math.round(random.nextGaussian() * 1000) / 100.0 + 75;
+                }
+            }
+            assertValuesRoundTrip(values);
+        }
+    }
+
+    @Test
+    void identicalValuesCostOneBitEach() {
+        BitStream stream = new BitStream(1);
+        GorillaCodec.ValueEncoder encoder = new GorillaCodec.ValueEncoder();
+        encoder.append(stream, 98.0);
+        int first = stream.bitLength();
+        for (int i = 0; i < 100; i++) {
+            encoder.append(stream, 98.0);
+        }
+        assertEquals(first + 100, stream.bitLength());
+    }
+
+    private static void assertTimestampsRoundTrip(long[] ts) {
+        BitStream stream = new BitStream(1);
+        GorillaCodec.TimestampEncoder encoder = new GorillaCodec.TimestampEncoder();
+        for (long t : ts) {
+            encoder.append(stream, t);
+        }
+        GorillaCodec.TimestampDecoder decoder = new GorillaCodec.TimestampDecoder(stream);
+        for (int i = 0; i < ts.length; i++) {
+            assertEquals(ts[i], decoder.next(), "timestamp " + i);
+        }
+    }
+
+    private static void assertValuesRoundTrip(double[] values) {
+        BitStream stream = new BitStream(1);
+        GorillaCodec.ValueEncoder encoder = new GorillaCodec.ValueEncoder();
+        for (double v : values) {
+            encoder.append(stream, v);
+        }
+        GorillaCodec.ValueDecoder decoder = new GorillaCodec.ValueDecoder(stream);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoder.next()),
+                    "value " + i);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.IOT_service.codec;
+
+import com.example.IOT_service.dto.RecentSeriesResponse;
+import com.example.IOT_service.model.SensorData;
+import com.example.IOT_service.service.RecentVitalsStore;
+import com.example.IOT_service.service.SignalQualityScorer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory per patient-day and /series query latency of RecentVitalsStore. Setup feeds one
+ * patient a day of 1 Hz readings (device clock jitter, two-decimal bpm and temperatures, integer
+ * SpO2) and prints the compressed size next to the 56 bytes per reading of raw longs and doubles.
+ * Queries stay inside what the store covers, so Postgres is never touched. Run with
+ * {@code mvn -pl IOT_service test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.IOT_service.codec.RecentVitalsStoreBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecentVitalsStoreBenchmark {
+
+    private static final int READINGS_PER_DAY = 86_400;
+    private static final long USER = 1L;
+
+    private RecentVitalsStore store;
+    private LocalDateTime first;
+    private LocalDateTime end;
+
+    @Setup
+    public void setUp() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        SignalQualityScorer scorer = new SignalQualityScorer(registry, true, "flag", 40,
+                50_000, 100_000, 262_000, 0.3, 0.3, 30, 16_384);
+        // 48 h retention so the day fed below never slides out of coverage while the benchmark runs
+        store = new RecentVitalsStore(new JdbcTemplate(), scorer, registry, true, 48, 3600, 10);
+
+        Random random = new Random(1);
+        end = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        first = end.minusSeconds(READINGS_PER_DAY);
+        double bpm = 72, roomTemp = 22, humidity = 45, waterTemp = 36.6;
+        for (int i = 0; i < READINGS_PER_DAY; i++) {
+            bpm = clamp(bpm + random.nextGaussian() * 0.8, 50, 120);
+            roomTemp = clamp(roomTemp + random.nextGaussian() * 0.01, 18, 28);
+            humidity = clamp(humidity + random.nextGaussian() * 0.05, 30, 60);
+            waterTemp = clamp(waterTemp + random.nextGaussian() * 0.005, 35.5, 38);
+
+            SensorData data = new SensorData();
+            data.setUserId(USER);
+            // Up to 20 ms of device jitter; the first reading is exact so queries from "first" stay in memory
+            data.setReceivedAt(first.plusSeconds(i).plusNanos(i == 0 ? 0 : random.nextInt(20) * 1_000_000L));
+            data.setBpm(cents(bpm));
+            data.setAvgBpm((int) Math.round(bpm));
+            data.setSpo2(95 + random.nextInt(4));
+            data.setRoomTemp(cents(roomTemp));
+            data.setHumidity(cents(humidity));
+            data.setWaterTempC(cents(waterTemp));
+            data.setIrValue(120_000L);
+            data.setSignalQuality(90);
+            store.onSaved(data);
+        }
+
+        long bytes = store.sizeInBytes();
+        System.out.printf("[bench] one patient-day (%d readings): %d bytes, %.2f bytes/reading (raw: %d bytes, 56/reading)%n",
+                READINGS_PER_DAY, bytes, (double) bytes / READINGS_PER_DAY, 56L * READINGS_PER_DAY);
+    }
+
+    @Benchmark
+    public RecentSeriesResponse lastHourAllMetrics() {
+        return store.query(USER, end.minusHours(1), end, List.of());
+    }
+
+    @Benchmark
+    public RecentSeriesResponse lastHourBpm() {
+        return store.query(USER, end.minusHours(1), end, List.of("bpm"));
+    }
+
+    @Benchmark
+    public RecentSeriesResponse fullDayAllMetrics() {
+        return store.query(USER, first, end, List.of());
+    }
+
+    @Benchmark
+    public RecentSeriesResponse fullDayBpm() {
+        return store.query(USER, first, end, List.of("bpm"));
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double cents(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RecentVitalsStoreBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.IOT_service.codec;
+
+import com.example.IOT_service.model.SensorData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding an upload body of {@code frames} readings: binary frames through SensorFrameCodec
+ * against the same readings as a JSON array through Jackson, configured the way Spring MVC
+ * reads @RequestBody. Every field is present, as sent by the bedside devices. Scores are per
+ * body; divide by {@code frames} for per-reading cost. Run with {@code mvn -pl IOT_service
+ * test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.IOT_service.codec.SensorFrameCodecBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorFrameCodecBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int frames;
+
+    private byte[] binary;
+    private byte[] json;
+    private ObjectReader jsonReader;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(1);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<SensorData> readings = new ArrayList<>(frames);
+        ByteBuffer buf = ByteBuffer.allocate(frames * SensorFrameCodec.FRAME_SIZE);
+        for (int i = 0; i < frames; i++) {
+            SensorData data = new SensorData();
+            data.setReceivedAt(start.plusSeconds(i));
+            data.setRoomTemp(cents(random, 18, 28));
+            data.setHumidity(cents(random, 30, 60));
+            data.setWaterTempC(cents(random, 35, 38));
+            data.setWaterTempF(cents(random, 95, 100));
+            data.setBpm(cents(random, 55, 110));
+            data.setIrValue(50_000L + random.nextInt(100_000));
+            data.setAvgBpm(60 + random.nextInt(40));
+            data.setSpo2(92 + random.nextInt(8));
+            readings.add(data);
+            SensorFrameCodec.encode(data, buf);
+        }
+        binary = buf.array();
+
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        json = mapper.writeValueAsBytes(readings);
+        jsonReader = mapper.readerForListOf(SensorData.class);
+        System.out.println("[bench] " + frames + " readings: " + binary.length + " bytes binary, " + json.length + " bytes JSON");
+    }
+
+    @Benchmark
+    public List<SensorData> binaryFrames() {
+        return SensorFrameCodec.decodeAll(binary);
+    }
+
+    @Benchmark
+    public List<SensorData> jackson() throws IOException {
+        return jsonReader.readValue(json);
+    }
+
+    private static double cents(Random random, int min, int max) {
+        return (min * 100 + random.nextInt((max - min) * 100 + 1)) / 100.0;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SensorFrameCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
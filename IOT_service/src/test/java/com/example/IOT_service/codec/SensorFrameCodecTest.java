@@ -0,0 +1,111 @@
+package com.example.IOT_service.codec;
+
+import com.example.IOT_service.model.SensorData;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SensorFrameCodecTest {
+
+    @Test
+    void randomReadingsRoundTrip() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            SensorData data = randomReading(random);
+            ByteBuffer buf = ByteBuffer.allocate(SensorFrameCodec.FRAME_SIZE);
+            SensorFrameCodec.encode(data, buf);
+            assertEquals(SensorFrameCodec.FRAME_SIZE, buf.position());
+            assertReadingEquals(data, SensorFrameCodec.decode(buf.array()));
+        }
+    }
+
+    @Test
+    void batchRoundTripsFrameByFrame() {
+        Random random = new Random(7);
+        List<SensorData> readings = new ArrayList<>();
+        ByteBuffer buf = ByteBuffer.allocate(SensorFrameCodec.FRAME_SIZE * 50);
+        for (int i = 0; i < 50; i++) {
+            SensorData data = randomReading(random);
+            readings.add(data);
+            SensorFrameCodec.encode(data, buf);
+        }
+        List<SensorData> decoded = SensorFrameCodec.decodeAll(buf.array());
+        assertEquals(readings.size(), decoded.size());
+        for (int i = 0; i < readings.size(); i++) {
+            assertReadingEquals(readings.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    void unsignedFieldsKeepTheirFullRange() {
+        SensorData data = new SensorData();
+        data.setIrValue(0xFFFF_FFFFL);
+        data.setAvgBpm(0xFFFF);
+        data.setSpo2(0xFF);
+        ByteBuffer buf = ByteBuffer.allocate(SensorFrameCodec.FRAME_SIZE);
+        SensorFrameCodec.encode(data, buf);
+
+        SensorData decoded = SensorFrameCodec.decode(buf.array());
+        assertEquals(0xFFFF_FFFFL, decoded.getIrValue());
+        assertEquals(0xFFFF, decoded.getAvgBpm());
+        assertEquals(0xFF, decoded.getSpo2());
+        assertNull(decoded.getReceivedAt());
+        assertNull(decoded.getBpm());
+    }
+
+    @Test
+    void rejectsBadLengthsAndVersions() {
+        assertThrows(IllegalArgumentException.class, () -> SensorFrameCodec.decode(new byte[39]));
+        assertThrows(IllegalArgumentException.class, () -> SensorFrameCodec.decodeAll(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> SensorFrameCodec.decodeAll(new byte[81]));
+
+        byte[] frame = new byte[SensorFrameCodec.FRAME_SIZE];
+        frame[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> SensorFrameCodec.decode(frame));
+    }
+
+    private static SensorData randomReading(Random random) {
+        SensorData data = new SensorData();
+        if (random.nextBoolean()) {
+            // Any millisecond within about 30 years of the epoch, as wall time in the server zone
+            long millis = 1_500_000_000_000L + (long) (random.nextDouble() * 1_000_000_000_000L);
+            data.setReceivedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()));
+        }
+        data.setRoomTemp(random.nextBoolean() ? cents(random, -40, 85) : null);
+        data.setHumidity(random.nextBoolean() ? cents(random, 0, 100) : null);
+        data.setWaterTempC(random.nextBoolean() ? cents(random, 0, 100) : null);
+        data.setWaterTempF(random.nextBoolean() ? cents(random, 32, 212) : null);
+        data.setBpm(random.nextBoolean() ? cents(random, 0, 250) : null);
+        data.setIrValue(random.nextBoolean() ? random.nextLong() & 0xFFFF_FFFFL : null);
+        data.setAvgBpm(random.nextBoolean() ? random.nextInt(0x10000) : null);
+        data.setSpo2(random.nextBoolean() ? random.nextInt(0x100) : null);
+        return data;
+    }
+
+    // Sensors report two decimals, which the frame's float32 fields carry exactly after rounding
+    private static double cents(Random random, int min, int max) {
+        return (min * 100 + random.nextInt((max - min) * 100 + 1)) / 100.0;
+    }
+
+    private static void assertReadingEquals(SensorData expected, SensorData actual) {
+        assertEquals(expected.getReceivedAt(), actual.getReceivedAt());
+        assertEquals(expected.getRoomTemp(), actual.getRoomTemp());
+        assertEquals(expected.getHumidity(), actual.getHumidity());
+        assertEquals(expected.getWaterTempC(), actual.getWaterTempC());
+        assertEquals(expected.getWaterTempF(), actual.getWaterTempF());
+        assertEquals(expected.getBpm(), actual.getBpm());
+        assertEquals(expected.getIrValue(), actual.getIrValue());
+        assertEquals(expected.getAvgBpm(), actual.getAvgBpm());
+        assertEquals(expected.getSpo2(), actual.getSpo2());
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.IOT_service.service;
+
+import com.example.IOT_service.dto.RecentSeriesResponse;
+import com.example.IOT_service.model.SensorData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecentVitalsStoreTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final FakeDatabase database = new FakeDatabase();
+    private final RecentVitalsStore store = new RecentVitalsStore(database,
+            new SignalQualityScorer(registry, true, "flag", 40, 50_000, 100_000, 262_000, 0.3, 0.3, 30, 16_384),
+            registry, true, 24, 3600, 100);
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    @Test
+    void inOrderReadingsAreServedFromMemory() {
+        save(now.minusMinutes(10), 70);
+        save(now.minusMinutes(9), 71);
+        save(now.minusMinutes(8), 72);
+
+        RecentSeriesResponse response = store.query(1L, now.minusMinutes(10), now, List.of("bpm"));
+
+        assertArrayEquals(millis(now.minusMinutes(10), now.minusMinutes(9), now.minusMinutes(8)), response.getTimestamps());
+        assertArrayEquals(new double[]{70, 71, 72}, response.getSeries().get("bpm"));
+        assertEquals(0, database.queries);
+    }
+
+    @Test
+    void lateReadingIsServedFromDatabase() {
+        save(now.minusMinutes(10), 70);
+        save(now.minusMinutes(9), 71);
+        save(now.minusMinutes(8), 72);
+        // A buffered upload arriving after newer readings
+        save(now.minusMinutes(9).minusSeconds(30), 99);
+        save(now.minusMinutes(7), 73);
+
+        RecentSeriesResponse response = store.query(1L, now.minusHours(1), now, List.of("bpm"));
+
+        assertArrayEquals(millis(now.minusMinutes(10), now.minusMinutes(9).minusSeconds(30), now.minusMinutes(9),
+                now.minusMinutes(8), now.minusMinutes(7)), response.getTimestamps());
+        assertArrayEquals(new double[]{70, 99, 71, 72, 73}, response.getSeries().get("bpm"));
+        assertEquals(1.0, registry.get("iot.recent.store.out.of.order").counter().count());
+
+        // Ranges after the late reading still come from memory alone
+        int queries = database.queries;
+        assertArrayEquals(new double[]{72, 73}, store.query(1L, now.minusMinutes(8), now, List.of("bpm")).getSeries().get("bpm"));
+        assertEquals(queries, database.queries);
+    }
+
+    // Stores the reading in the "database" and notifies the store, like SensorDataService after commit
+    private void save(LocalDateTime receivedAt, double bpm) {
+        SensorData data = new SensorData();
+        data.setUserId(1L);
+        data.setReceivedAt(receivedAt);
+        data.setBpm(bpm);
+        database.rows.add(data);
+        store.onSaved(data);
+    }
+
+    private static long[] millis(LocalDateTime... times) {
+        long[] out = new long[times.length];
+        for (int i = 0; i < times.length; i++) {
+            out[i] = times[i].atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        return out;
+    }
+
+    /** Answers RecentVitalsStore's range query from a list, with the columns in the same order. */
+    private static final class FakeDatabase extends JdbcTemplate {
+        final List<SensorData> rows = new ArrayList<>();
+        int queries;
+
+        @Override
+        public void query(String sql, RowCallbackHandler handler, Object... args) {
+            queries++;
+            Long userId = (Long) args[3];
+            LocalDateTime from = (LocalDateTime) args[4];
+            LocalDateTime to = (LocalDateTime) args[5];
+            List<SensorData> matching = rows.stream()
+                    .filter(r -> r.getUserId().equals(userId))
+                    .filter(r -> !r.getReceivedAt().isBefore(from) && r.getReceivedAt().isBefore(to))
+                    .sorted(Comparator.comparing(SensorData::getReceivedAt))
+                    .toList();
+            try {
+                for (SensorData row : matching) {
+                    handler.processRow(resultSet(row));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static ResultSet resultSet(SensorData row) {
+            Object[] columns = {row.getReceivedAt(), row.getBpm(), row.getSpo2(), row.getAvgBpm(),
+                    row.getRoomTemp(), row.getHumidity(), row.getWaterTempC()};
+            boolean[] wasNull = new boolean[1];
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, methodArgs) -> {
+                        switch (method.getName()) {
+                            case "getObject":
+                                return columns[(Integer) methodArgs[0] - 1];
+                            case "getDouble":
+                                Object value = columns[(Integer) methodArgs[0] - 1];
+                                wasNull[0] = value == null;
+                                return value == null ? 0.0 : ((Number) value).doubleValue();
+                            case "wasNull":
+                                return wasNull[0];
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+}
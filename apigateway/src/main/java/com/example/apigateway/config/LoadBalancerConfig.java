@@ -0,0 +1,12 @@
+package com.example.apigateway.config;
+
+import com.example.apigateway.routing.IotServiceLoadBalancerConfig;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Configuration;
+
+// IOT_service keeps per-patient state in memory, so its replicas are picked by consistent hash
+// instead of round-robin; the other lb:// routes keep the default balancer
+@Configuration
+@LoadBalancerClient(name = "iot-service", configuration = IotServiceLoadBalancerConfig.class)
+public class LoadBalancerConfig {
+}
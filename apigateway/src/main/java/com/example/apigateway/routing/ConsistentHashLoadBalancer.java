@@ -0,0 +1,170 @@
+package com.example.apigateway.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the IOT_service replica that owns a request's shard key (see {@link ShardKeys}) on a
+ * consistent-hash ring with {@code virtualNodes} points per registered instance. When the
+ * Eureka instance list changes the ring is rebuilt, and only the keys whose nearest point
+ * moved change owner. Requests without a shard key are spread round-robin.
+ */
+public class ConsistentHashLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsistentHashLoadBalancer.class);
+
+    private static final class Ring {
+        final List<ServiceInstance> source;
+        final String signature;
+        final long[] points;
+        final ServiceInstance[] owners;
+
+        Ring(List<ServiceInstance> source, String signature, long[] points, ServiceInstance[] owners) {
+            this.source = source;
+            this.signature = signature;
+            this.points = points;
+            this.owners = owners;
+        }
+    }
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final DeviceUserDirectory directory;
+    private final int virtualNodes;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    private volatile Ring ring;
+
+    public ConsistentHashLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                                      String serviceId,
+                                      DeviceUserDirectory directory,
+                                      int virtualNodes) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.directory = directory;
+        this.virtualNodes = virtualNodes;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> select(instances, shardKey(request)));
+    }
+
+    private Response<ServiceInstance> select(List<ServiceInstance> instances, String key) {
+        if (instances.isEmpty()) {
+            log.warn("No instances available for {}", serviceId);
+            return new EmptyResponse();
+        }
+        if (key == null) {
+            int index = Math.floorMod(roundRobin.getAndIncrement(), instances.size());
+            return new DefaultResponse(instances.get(index));
+        }
+
+        Ring current = ringFor(instances);
+        int index = Arrays.binarySearch(current.points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index == current.points.length) {
+            index = 0;
+        }
+        return new DefaultResponse(current.owners[index]);
+    }
+
+    private String shardKey(Request request) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null) {
+            RequestData data = context.getClientRequest();
+            return ShardKeys.resolve(data.getUrl(), data.getHeaders(), directory);
+        }
+        return null;
+    }
+
+    private Ring ringFor(List<ServiceInstance> instances) {
+        Ring current = ring;
+        // The cached supplier hands out the same list until the registry is refreshed
+        if (current != null && current.source == instances) {
+            return current;
+        }
+
+        List<ServiceInstance> sorted = new ArrayList<>(instances);
+        sorted.sort(Comparator.comparing(ConsistentHashLoadBalancer::idOf));
+        StringBuilder signature = new StringBuilder();
+        for (ServiceInstance instance : sorted) {
+            signature.append(idOf(instance)).append(',');
+        }
+        if (current != null && current.signature.contentEquals(signature)) {
+            ring = new Ring(instances, current.signature, current.points, current.owners);
+            return ring;
+        }
+
+        Ring rebuilt = build(instances, signature.toString(), sorted);
+        ring = rebuilt;
+        log.info("Rebuilt shard ring for {}: {} instances, {} points ({})",
+                serviceId, sorted.size(), rebuilt.points.length, rebuilt.signature);
+        return rebuilt;
+    }
+
+    private Ring build(List<ServiceInstance> source, String signature, List<ServiceInstance> sorted) {
+        int size = sorted.size() * virtualNodes;
+        long[][] entries = new long[size][2];
+        int n = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            String id = idOf(sorted.get(i));
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[n][0] = hash(id + "#" + v);
+                entries[n][1] = i;
+                n++;
+            }
+        }
+        Arrays.sort(entries, Comparator.comparingLong(e -> e[0]));
+
+        long[] points = new long[size];
+        ServiceInstance[] owners = new ServiceInstance[size];
+        for (int j = 0; j < size; j++) {
+            points[j] = entries[j][0];
+            owners[j] = sorted.get((int) entries[j][1]);
+        }
+        return new Ring(source, signature, points, owners);
+    }
+
+    private static String idOf(ServiceInstance instance) {
+        return instance.getInstanceId() != null
+                ? instance.getInstanceId()
+                : instance.getHost() + ":" + instance.getPort();
+    }
+
+    // FNV-1a over the UTF-8 bytes followed by the murmur3 finalizer to spread nearby keys
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53f8a5bL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.apigateway.routing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * deviceId -> userId mapping learned from the X-User-Id header IOT_service puts on upload
+ * responses. Uploads only carry X-Device-Id, but the per-patient state on the replicas is
+ * keyed by userId, so once a device's patient is known its uploads are routed by patient.
+ */
+@Component
+public class DeviceUserDirectory {
+
+    private final Map<String, Long> users = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    public DeviceUserDirectory(@Value("${gateway.iot.device-directory.max-entries:100000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public Long userOf(String deviceId) {
+        return users.get(deviceId);
+    }
+
+    public void learn(String deviceId, Long userId) {
+        if (userId.equals(users.get(deviceId))) {
+            return;
+        }
+        if (users.size() >= maxEntries && !users.containsKey(deviceId)) {
+            Iterator<String> keys = users.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        users.put(deviceId, userId);
+    }
+}
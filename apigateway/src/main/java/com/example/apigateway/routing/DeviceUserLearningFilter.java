@@ -0,0 +1,48 @@
+package com.example.apigateway.routing;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+// Records the patient a device uploads for, as reported by IOT_service, in the DeviceUserDirectory
+@Component
+public class DeviceUserLearningFilter implements GlobalFilter, Ordered {
+
+    private final DeviceUserDirectory directory;
+
+    public DeviceUserLearningFilter(DeviceUserDirectory directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String path = exchange.getRequest().getURI().getRawPath();
+        String deviceId = exchange.getRequest().getHeaders().getFirst(ShardKeys.DEVICE_ID_HEADER);
+        if (deviceId == null || !path.startsWith(ShardKeys.DEVICE_UPLOAD_PREFIX)) {
+            return chain.filter(exchange);
+        }
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.beforeCommit(() -> {
+            String userId = response.getHeaders().getFirst(ShardKeys.USER_ID_HEADER);
+            if (userId != null) {
+                try {
+                    directory.learn(deviceId, Long.valueOf(userId));
+                } catch (NumberFormatException ignored) {
+                    // not a patient id; keep routing this device by deviceId
+                }
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.apigateway.routing;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+// Per-client configuration for lb://iot-service; deliberately not a @Configuration so that
+// component scanning does not apply it to the other services
+public class IotServiceLoadBalancerConfig {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> iotServiceLoadBalancer(Environment environment,
+                                                                       LoadBalancerClientFactory clientFactory,
+                                                                       DeviceUserDirectory directory) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        int virtualNodes = environment.getProperty("gateway.iot.virtual-nodes", Integer.class, 160);
+        return new ConsistentHashLoadBalancer(
+                clientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId, directory, virtualNodes);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.apigateway.routing;
+
+import org.springframework.http.HttpHeaders;
+
+import java.net.URI;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Derives the shard key of an IOT_service request: the patient when it is known (patient
+ * endpoints, or uploads from a device whose patient has been learned), otherwise the device.
+ * Requests with neither, such as device listing or health checks, have no key.
+ */
+final class ShardKeys {
+
+    static final String DEVICE_ID_HEADER = "X-Device-Id";
+    static final String USER_ID_HEADER = "X-User-Id";
+    static final String DEVICE_UPLOAD_PREFIX = "/api/sensordata/device/";
+
+    private static final Pattern PATIENT_PATH = Pattern.compile("^/api/sensordata/patient/(\\d+)(/.*)?$");
+    // Device status is answered live by the replica that receives the device's uploads
+    private static final Pattern DEVICE_STATUS_PATH = Pattern.compile("^/api/sensordata/devices/([^/]+)/status$");
+
+    private ShardKeys() {
+    }
+
+    static String resolve(URI uri, HttpHeaders headers, DeviceUserDirectory directory) {
+        Matcher matcher = PATIENT_PATH.matcher(uri.getRawPath());
+        if (matcher.matches()) {
+            return "user:" + matcher.group(1);
+        }
+
+        String deviceId = headers.getFirst(DEVICE_ID_HEADER);
+        Matcher status = DEVICE_STATUS_PATH.matcher(uri.getRawPath());
+        if (status.matches()) {
+            deviceId = status.group(1);
+        }
+        if (deviceId == null || deviceId.isBlank()) {
+            return null;
+        }
+        Long userId = directory.userOf(deviceId);
+        return userId != null ? "user:" + userId : "device:" + deviceId;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.mainservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+// Reading event published by IOT_service on the sensor-readings topic (ts is epoch millis, UTC)
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SensorReadingEventDTO {
+    private Long id;
+    private Long userId;
+    private String deviceId;
+    private long ts;
+    private Double bpm;
+    private Integer avgBpm;
+    private Integer spo2;
+    private Double roomTemp;
+    private Double humidity;
+    private Double waterTempC;
+}
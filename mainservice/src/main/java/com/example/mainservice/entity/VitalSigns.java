@@ -62,6 +62,10 @@ public class VitalSigns {
     private String temperatureStatus;
     private String bloodSugarStatus;
 
+    // Id of the IOT_service reading this row was derived from (null for manual entries)
+    @Column(unique = true)
+    private Long sourceReadingId;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
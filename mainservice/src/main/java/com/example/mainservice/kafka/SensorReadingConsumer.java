@@ -0,0 +1,36 @@
+package com.example.mainservice.kafka;
+
+import com.example.mainservice.dto.SensorReadingEventDTO;
+import com.example.mainservice.service.SensorVitalsIngestService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Batch consumer for IOT_service reading events. Events are keyed by userId, so each patient's
+ * readings arrive in order within a batch; offsets are committed only after the batch is stored.
+ */
+@Component
+@Profile("kafka")
+@RequiredArgsConstructor
+public class SensorReadingConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensorReadingConsumer.class);
+
+    private final SensorVitalsIngestService ingestService;
+
+    @KafkaListener(
+            topics = "${kafka.topic.sensor-readings:sensor-readings}",
+            groupId = "${kafka.consumer.sensor-readings.group:mainservice-vitals}",
+            batch = "true"
+    )
+    public void onReadings(List<SensorReadingEventDTO> events) {
+        int stored = ingestService.ingest(events);
+        logger.debug("Consumed {} sensor events, stored {} vital sign rows", events.size(), stored);
+    }
+}
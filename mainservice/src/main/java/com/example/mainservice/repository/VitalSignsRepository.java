@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -29,4 +30,8 @@ public interface VitalSignsRepository extends JpaRepository<VitalSigns, Long> {
 
     // Find latest vital signs for a patient
     VitalSigns findFirstByPatientIdOrderByMeasurementDateTimeDesc(Long patientId);
+
+    // Source reading ids already stored, used to skip redelivered Kafka events
+    @Query("SELECT v.sourceReadingId FROM VitalSigns v WHERE v.sourceReadingId IN :ids")
+    List<Long> findExistingSourceReadingIds(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
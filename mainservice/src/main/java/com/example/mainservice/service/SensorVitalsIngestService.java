@@ -0,0 +1,104 @@
+package com.example.mainservice.service;
+
+import com.example.mainservice.dto.SensorReadingEventDTO;
+import com.example.mainservice.entity.VitalSigns;
+import com.example.mainservice.repository.VitalSignsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns streamed device readings into VitalSigns rows for the triage/alert views.
+ * Every reading outside the normal range is stored. Devices report about once a second, so
+ * in-range readings are sampled: at most one per patient per sample interval.
+ * Writes are idempotent on the source reading id, so redelivered batches are harmless.
+ */
+@Service
+@Profile("kafka")
+@RequiredArgsConstructor
+public class SensorVitalsIngestService {
+
+    private final VitalSignsRepository vitalSignsRepository;
+
+    @Value("${kafka.consumer.sensor-readings.sample-interval-seconds:60}")
+    private long sampleIntervalSeconds;
+
+    // patientId -> measurement time of the last sampled in-range reading
+    private final Map<Long, LocalDateTime> lastSampled = new ConcurrentHashMap<>();
+
+    @Transactional
+    public int ingest(List<SensorReadingEventDTO> events) {
+        List<SensorReadingEventDTO> valid = new ArrayList<>(events.size());
+        for (SensorReadingEventDTO event : events) {
+            if (event != null && event.getUserId() != null && event.getId() != null) {
+                valid.add(event);
+            }
+        }
+        if (valid.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> existing = new HashSet<>(vitalSignsRepository.findExistingSourceReadingIds(
+                valid.stream().map(SensorReadingEventDTO::getId).toList()));
+
+        // Records of one key arrive in partition order, so each patient's readings are in time order
+        List<VitalSigns> rows = new ArrayList<>();
+        Map<Long, LocalDateTime> sampled = new HashMap<>();
+        for (SensorReadingEventDTO event : valid) {
+            if (!existing.add(event.getId())) {
+                continue;
+            }
+            VitalSigns vitals = toVitalSigns(event);
+            if (isOutOfRange(vitals)) {
+                rows.add(vitals);
+                continue;
+            }
+            LocalDateTime previous = sampled.getOrDefault(event.getUserId(), lastSampled.get(event.getUserId()));
+            if (previous == null
+                    || !vitals.getMeasurementDateTime().isBefore(previous.plusSeconds(sampleIntervalSeconds))) {
+                rows.add(vitals);
+                sampled.put(event.getUserId(), vitals.getMeasurementDateTime());
+            }
+        }
+        vitalSignsRepository.saveAll(rows);
+        sampled.forEach((patientId, at) -> lastSampled.merge(patientId, at, (a, b) -> a.isAfter(b) ? a : b));
+        return rows.size();
+    }
+
+    private VitalSigns toVitalSigns(SensorReadingEventDTO event) {
+        VitalSigns vitals = new VitalSigns();
+        vitals.setPatientId(event.getUserId());
+        vitals.setSourceReadingId(event.getId());
+        vitals.setMeasurementDateTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getTs()), ZoneOffset.UTC));
+        if (event.getAvgBpm() != null && event.getAvgBpm() > 0) {
+            vitals.setHeartRate(event.getAvgBpm());
+        } else if (event.getBpm() != null && event.getBpm() > 0) {
+            vitals.setHeartRate((int) Math.round(event.getBpm()));
+        }
+        if (event.getSpo2() != null && event.getSpo2() > 0) {
+            vitals.setSpo2(event.getSpo2());
+        }
+        vitals.setNotes("IoT device " + event.getDeviceId());
+        return vitals;
+    }
+
+    // Same bands DoctorService treats as non-LOW risk
+    private boolean isOutOfRange(VitalSigns vitals) {
+        Integer hr = vitals.getHeartRate();
+        Integer spo2 = vitals.getSpo2();
+        return (hr != null && (hr < 60 || hr > 100)) || (spo2 != null && spo2 < 95);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.mainservice.kafka;
+
+import com.example.mainservice.entity.VitalSigns;
+import com.example.mainservice.repository.VitalSignsRepository;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:vitals;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "eureka.client.enabled=false",
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "kafka.topic.sensor-readings=sensor-readings-test",
+        "kafka.consumer.sensor-readings.sample-interval-seconds=60"
+})
+@ActiveProfiles("kafka")
+@EmbeddedKafka(partitions = 1, topics = "sensor-readings-test")
+class SensorReadingConsumerTest {
+
+    private static final String TOPIC = "sensor-readings-test";
+    private static final long PATIENT = 4242L;
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private VitalSignsRepository vitalSignsRepository;
+
+    @Test
+    void storesEveryOutOfRangeReadingAndSamplesTheRest() throws Exception {
+        // One reading per second; the 2nd and 4th are out of range, the rest are normal
+        List<String> events = List.of(
+                event(1, 0, 72, 98),
+                event(2, 1, 140, 98),
+                event(3, 2, 74, 97),
+                event(4, 3, 75, 88),
+                event(5, 4, 73, 98),
+                // A minute later the next in-range reading is due again
+                event(6, 61, 71, 98));
+        send(events);
+        List<VitalSigns> stored = awaitRows(4);
+
+        assertEquals(List.of(1L, 2L, 4L, 6L),
+                stored.stream().map(VitalSigns::getSourceReadingId).sorted().toList());
+        assertTrue(stored.stream().anyMatch(v -> Integer.valueOf(140).equals(v.getHeartRate())));
+        assertTrue(stored.stream().anyMatch(v -> Integer.valueOf(88).equals(v.getSpo2())));
+
+        // Redelivery of the same batch stores nothing new
+        send(events);
+        Thread.sleep(2000);
+        assertEquals(4, vitalSignsRepository.findByPatientIdOrderByMeasurementDateTimeDesc(PATIENT).size());
+    }
+
+    private void send(List<String> events) {
+        Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+        try (KafkaProducer<String, String> producer =
+                     new KafkaProducer<>(props, new StringSerializer(), new StringSerializer())) {
+            for (String event : events) {
+                producer.send(new ProducerRecord<>(TOPIC, String.valueOf(PATIENT), event));
+            }
+            producer.flush();
+        }
+    }
+
+    private List<VitalSigns> awaitRows(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        List<VitalSigns> rows = List.of();
+        while (System.currentTimeMillis() < deadline) {
+            rows = vitalSignsRepository.findByPatientIdOrderByMeasurementDateTimeDesc(PATIENT);
+            if (rows.size() >= expected) {
+                return rows;
+            }
+            Thread.sleep(200);
+        }
+        return rows;
+    }
+
+    private static String event(long id, int second, int bpm, int spo2) {
+        return "{\"id\":" + id + ",\"userId\":" + PATIENT + ",\"deviceId\":\"dev-1\",\"ts\":" + (T0 + second * 1000L)
+                + ",\"avgBpm\":" + bpm + ",\"spo2\":" + spo2 + "}";
+    }
+}
@@ -1,6 +1,7 @@
 import sys
 import os
 import json
+import struct
 import numpy as np
 import tensorflow as tf
 
@@ -154,9 +155,76 @@ def analyze_from_signal(signal_json):
     }
 
 
+def classify_beats(windows):
+    """Abnormal-beat probability of each window. Windows arrive flat (n * WINDOW_SIZE values)
+    and already normalised, so the result matches the JVM backend for the same input."""
+    X = np.asarray(windows, dtype=np.float32).reshape(-1, WINDOW_SIZE, 1)
+    if len(X) == 0:
+        return []
+    return model.predict(X, verbose=0)[:, 0].astype(float).tolist()
+
+
+def read_frame(stream):
+    """Read one length-prefixed frame (4-byte big-endian length, then UTF-8 JSON)."""
+    header = stream.read(4)
+    if len(header) < 4:
+        return None
+    (length,) = struct.unpack(">I", header)
+    payload = stream.read(length)
+    if len(payload) < length:
+        return None
+    return json.loads(payload.decode("utf-8"))
+
+
+def write_frame(stream, message):
+    payload = json.dumps(message).encode("utf-8")
+    stream.write(struct.pack(">I", len(payload)))
+    stream.write(payload)
+    stream.flush()
+
+
+def serve():
+    """Worker mode: keep the model loaded and answer framed requests on stdin/stdout
+    until stdin is closed. Used by the JVM worker pool instead of one process per call."""
+    frames_in = sys.stdin.buffer
+    frames_out = sys.stdout.buffer
+    # Anything printed by libraries must not end up between frames
+    sys.stdout = sys.stderr
+
+    while True:
+        request = read_frame(frames_in)
+        if request is None:
+            break
+        try:
+            op = request.get("op")
+            if op == "ping":
+                result = {"pong": True}
+            elif op == "file":
+                result = analyze_from_files(request["record"])
+            elif op == "signal":
+                result = analyze_from_signal(json.dumps({"signal": request["signal"]}))
+            elif op == "beats":
+                result = {"probabilities": classify_beats(request["windows"])}
+            else:
+                raise ValueError(f"Unknown op: {op}")
+            write_frame(frames_out, {"ok": True, "result": result})
+        except Exception as e:
+            write_frame(frames_out, {"ok": False, "error": f"{type(e).__name__}: {e}"})
+
+
 if __name__ == "__main__":
     mode = sys.argv[1]
 
+    if mode == "serve":
+        serve()
+        sys.exit(0)
+
+    if mode == "beats":
+        # Windows come on stdin; a batch can be far larger than a command-line argument
+        windows = json.load(sys.stdin)["windows"]
+        print(json.dumps({"probabilities": classify_beats(windows)}))
+        sys.exit(0)
+
     if mode == "file":
         record_path = sys.argv[2]
         result = analyze_from_files(record_path)
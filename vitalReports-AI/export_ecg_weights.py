@@ -0,0 +1,97 @@
+"""Export the Keras beat CNN to the flat weights file read by the JVM classifier
+(com.example.vitalReports.inference.BeatCnnModel).
+
+Usage: python export_ecg_weights.py [model.keras] [output.weights]
+
+Format (little-endian): "ECGW", int version, int input length, int input channels,
+int layer count, then per layer an int type, its int parameters and its float32 arrays.
+Dropout is skipped and BatchNormalization is folded into a per-channel scale and shift.
+"""
+import os
+import struct
+import sys
+
+import numpy as np
+import tensorflow as tf
+
+VERSION = 1
+
+CONV1D, DENSE, MAX_POOL, AVG_POOL, FLATTEN, SCALE, GLOBAL_AVG, GLOBAL_MAX, ACTIVATION = range(1, 10)
+ACTIVATIONS = {"linear": 0, "relu": 1, "sigmoid": 2, "tanh": 3, "softmax": 4}
+PADDING = {"valid": 0, "same": 1}
+
+
+def activation_code(layer_or_name):
+    name = layer_or_name if isinstance(layer_or_name, str) else tf.keras.activations.serialize(layer_or_name.activation)
+    if isinstance(name, dict):
+        name = name.get("config", {}).get("name", name.get("class_name"))
+    if name not in ACTIVATIONS:
+        raise ValueError(f"Unsupported activation: {name}")
+    return ACTIVATIONS[name]
+
+
+def ints(out, *values):
+    out.write(struct.pack("<" + "i" * len(values), *values))
+
+
+def floats(out, array):
+    out.write(np.ascontiguousarray(array, dtype="<f4").tobytes())
+
+
+def export(model, out):
+    layers = [layer for layer in model.layers
+              if not isinstance(layer, (tf.keras.layers.InputLayer, tf.keras.layers.Dropout))]
+
+    _, length, channels = model.input_shape
+    out.write(b"ECGW")
+    ints(out, VERSION, length, channels, len(layers))
+
+    for layer in layers:
+        if isinstance(layer, tf.keras.layers.Conv1D):
+            kernel, bias = layer.get_weights() if layer.use_bias else (layer.get_weights()[0], None)
+            filters = kernel.shape[2]
+            ints(out, CONV1D, filters, layer.kernel_size[0], layer.strides[0], layer.dilation_rate[0],
+                 PADDING[layer.padding], activation_code(layer))
+            floats(out, kernel)  # [kernel][in][out]
+            floats(out, bias if bias is not None else np.zeros(filters))
+        elif isinstance(layer, tf.keras.layers.Dense):
+            kernel, bias = layer.get_weights() if layer.use_bias else (layer.get_weights()[0], None)
+            units = kernel.shape[1]
+            ints(out, DENSE, units, activation_code(layer))
+            floats(out, kernel)  # [in][out]
+            floats(out, bias if bias is not None else np.zeros(units))
+        elif isinstance(layer, (tf.keras.layers.MaxPooling1D, tf.keras.layers.AveragePooling1D)):
+            kind = MAX_POOL if isinstance(layer, tf.keras.layers.MaxPooling1D) else AVG_POOL
+            ints(out, kind, layer.pool_size[0], layer.strides[0], PADDING[layer.padding])
+        elif isinstance(layer, tf.keras.layers.Flatten):
+            ints(out, FLATTEN)
+        elif isinstance(layer, tf.keras.layers.BatchNormalization):
+            weights = list(layer.get_weights())
+            gamma = weights.pop(0) if layer.scale else 1.0
+            beta = weights.pop(0) if layer.center else 0.0
+            mean, var = weights
+            scale = gamma / np.sqrt(var + layer.epsilon)
+            ints(out, SCALE)
+            floats(out, np.broadcast_to(scale, mean.shape))
+            floats(out, np.broadcast_to(beta - mean * scale, mean.shape))
+        elif isinstance(layer, tf.keras.layers.GlobalAveragePooling1D):
+            ints(out, GLOBAL_AVG)
+        elif isinstance(layer, tf.keras.layers.GlobalMaxPooling1D):
+            ints(out, GLOBAL_MAX)
+        elif isinstance(layer, tf.keras.layers.Activation):
+            ints(out, ACTIVATION, activation_code(layer))
+        elif isinstance(layer, tf.keras.layers.ReLU):
+            ints(out, ACTIVATION, ACTIVATIONS["relu"])
+        else:
+            raise ValueError(f"Unsupported layer {layer.name} ({type(layer).__name__})")
+
+
+if __name__ == "__main__":
+    script_dir = os.path.dirname(os.path.abspath(__file__))
+    model_path = sys.argv[1] if len(sys.argv) > 1 else os.path.join(script_dir, "ecg_cnn_mitbih.keras")
+    output_path = sys.argv[2] if len(sys.argv) > 2 else os.path.join(script_dir, "ecg_cnn_mitbih.weights")
+
+    model = tf.keras.models.load_model(model_path)
+    with open(output_path, "wb") as f:
+        export(model, f)
+    print(f"Exported {model_path} to {output_path}")
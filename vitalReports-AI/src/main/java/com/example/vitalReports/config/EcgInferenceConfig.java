@@ -0,0 +1,49 @@
+package com.example.vitalReports.config;
+
+import com.example.vitalReports.inference.BeatCnnModel;
+import com.example.vitalReports.inference.EcgBeatClassifier;
+import com.example.vitalReports.inference.PythonBeatClassifier;
+import com.example.vitalReports.service.ECGScriptLocator;
+import com.example.vitalReports.service.ECGWorkerPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Configuration
+public class EcgInferenceConfig {
+
+    /**
+     * Beat classifier selected by ecg.inference.backend: "python" (Keras via ecg_predict.py)
+     * or "jvm" (in-process forward pass over the exported weights file).
+     */
+    @Bean
+    public EcgBeatClassifier ecgBeatClassifier(
+            @Value("${ecg.inference.backend:python}") String backend,
+            @Value("${ecg.inference.weights-path:ecg_cnn_mitbih.weights}") String weightsPath,
+            ECGWorkerPool workerPool,
+            ECGScriptLocator scriptLocator) throws IOException {
+
+        switch (backend.toLowerCase()) {
+            case "python":
+                return new PythonBeatClassifier(workerPool, scriptLocator);
+            case "jvm":
+                Path path = Path.of(weightsPath);
+                File scriptDir = scriptLocator.getWorkingDirectory();
+                if (!Files.exists(path) && !path.isAbsolute() && scriptDir != null) {
+                    // Exported next to the model and script by default
+                    path = scriptDir.toPath().resolve(weightsPath);
+                }
+                BeatCnnModel model = BeatCnnModel.load(path);
+                System.out.println("[ECG] JVM beat classifier loaded from " + path
+                        + " (window " + model.windowSize() + ")");
+                return model;
+            default:
+                throw new IllegalArgumentException("Unknown ecg.inference.backend: " + backend);
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package com.example.vitalReports.controller;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.vitalReports.domain.model.ECGBatchRequest;
+import com.example.vitalReports.domain.model.ECGBatchResponse;
 import com.example.vitalReports.domain.model.ECGPredictionResponse;
+import com.example.vitalReports.service.ECGJobExecutor;
 import com.example.vitalReports.service.ECGPredictionService;
+import com.example.vitalReports.service.ECGWorkerPool;
+import com.example.vitalReports.wfdb.WfdbFormatException;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.List;
 import java.util.Map;
 
@@ -16,9 +25,11 @@ import java.util.Map;
 public class ECGController {
 
     private final ECGPredictionService ecgPredictionService;
+    private final ECGJobExecutor jobExecutor;
 
-    public ECGController(ECGPredictionService ecgPredictionService) {
+    public ECGController(ECGPredictionService ecgPredictionService, ECGJobExecutor jobExecutor) {
         this.ecgPredictionService = ecgPredictionService;
+        this.jobExecutor = jobExecutor;
     }
 
     /**
@@ -34,8 +45,14 @@ public class ECGController {
         }
 
         try {
-            ECGPredictionResponse result = ecgPredictionService.analyzeFiles(datFile, heaFile);
+            ECGPredictionResponse result = jobExecutor.execute("analyze",
+                    () -> ecgPredictionService.analyzeFiles(datFile, heaFile));
             return ResponseEntity.ok(result);
+        } catch (ECGJobExecutor.QueueFullException | ECGWorkerPool.WorkersBusyException e) {
+            return busy(e);
+        } catch (WfdbFormatException e) {
+            // Malformed or truncated upload
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid WFDB record: " + e.getMessage()));
         } catch (Exception e) {
             System.err.println("[ECG ERROR] " + e.getMessage());
             e.printStackTrace();
@@ -58,12 +75,58 @@ public class ECGController {
         }
 
         try {
-            ECGPredictionResponse result = ecgPredictionService.predictECG(signal);
+            ECGPredictionResponse result = jobExecutor.execute("predict",
+                    () -> ecgPredictionService.predictECG(signal));
             return ResponseEntity.ok(result);
+        } catch (ECGJobExecutor.QueueFullException | ECGWorkerPool.WorkersBusyException e) {
+            return busy(e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             System.err.println("[ECG ERROR] " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "ECG prediction failed: " + e.getMessage()));
         }
     }
+
+    /**
+     * Batch endpoint: many windows in one model call. Accepts JSON {"windows": [...]} with the
+     * windows packed back to back, or application/octet-stream of little-endian float32.
+     */
+    @PostMapping(value = "/predict/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> predictBatch(@RequestBody ECGBatchRequest body) {
+        return runBatch(body.getWindows());
+    }
+
+    @PostMapping(value = "/predict/batch", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> predictBatchBinary(@RequestBody byte[] body) {
+        if (body.length % Float.BYTES != 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Body must be little-endian float32 samples"));
+        }
+        float[] windows = new float[body.length / Float.BYTES];
+        ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(windows);
+        return runBatch(windows);
+    }
+
+    private ResponseEntity<?> runBatch(float[] windows) {
+        try {
+            ECGBatchResponse result = jobExecutor.execute("batch",
+                    () -> ecgPredictionService.predictBatch(windows));
+            return ResponseEntity.ok(result);
+        } catch (ECGJobExecutor.QueueFullException | ECGWorkerPool.WorkersBusyException e) {
+            return busy(e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("[ECG ERROR] " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "ECG batch prediction failed: " + e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> busy(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(Map.of("error", e.getMessage()));
+    }
 }
@@ -0,0 +1,18 @@
+package com.example.vitalReports.domain.model;
+
+public class ECGBatchRequest {
+
+    // Windows packed back to back: count * windowSize samples
+    private float[] windows;
+
+    public ECGBatchRequest() {
+    }
+
+    public float[] getWindows() {
+        return windows;
+    }
+
+    public void setWindows(float[] windows) {
+        this.windows = windows;
+    }
+}
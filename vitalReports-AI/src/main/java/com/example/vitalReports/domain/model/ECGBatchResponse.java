@@ -0,0 +1,52 @@
+package com.example.vitalReports.domain.model;
+
+public class ECGBatchResponse {
+
+    private final String backend;
+    private final int windowSize;
+    private final int count;
+    private final int abnormal;
+    // One entry per window, in request order
+    private final String[] predictions;
+    private final float[] probabilities;
+
+    public ECGBatchResponse(String backend, int windowSize, String[] predictions, float[] probabilities) {
+        this.backend = backend;
+        this.windowSize = windowSize;
+        this.count = predictions.length;
+        this.predictions = predictions;
+        this.probabilities = probabilities;
+
+        int abnormalCount = 0;
+        for (String prediction : predictions) {
+            if ("Abnormal".equals(prediction)) {
+                abnormalCount++;
+            }
+        }
+        this.abnormal = abnormalCount;
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getAbnormal() {
+        return abnormal;
+    }
+
+    public String[] getPredictions() {
+        return predictions;
+    }
+
+    public float[] getProbabilities() {
+        return probabilities;
+    }
+}
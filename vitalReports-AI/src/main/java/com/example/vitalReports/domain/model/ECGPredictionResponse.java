@@ -1,12 +1,11 @@
 package com.example.vitalReports.domain.model;
 
-import java.util.List;
-
 public class ECGPredictionResponse {
 
     private String prediction;
     private double probability;
-    private List<Double> waveform;
+    // Primitive array: a 10 s strip is thousands of samples, serialised as a plain JSON array
+    private float[] waveform;
     private int fs;
     private int meanHR;
     private double SDNN;
@@ -36,11 +35,11 @@ public class ECGPredictionResponse {
         this.probability = probability;
     }
 
-    public List<Double> getWaveform() {
+    public float[] getWaveform() {
         return waveform;
     }
 
-    public void setWaveform(List<Double> waveform) {
+    public void setWaveform(float[] waveform) {
         this.waveform = waveform;
     }
 
@@ -0,0 +1,428 @@
+package com.example.vitalReports.inference;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forward pass of the beat CNN in plain Java, over weights exported from the Keras model by
+ * export_ecg_weights.py. Activations are channels-last float arrays ([position][channel]),
+ * the same layout Keras uses, so Flatten is a no-op and Dense/Conv1D weights are used as
+ * exported. Inner loops run over the output channels, which are contiguous in both the
+ * weights and the accumulator, so the JIT can vectorise them.
+ *
+ * The model is immutable; each calling thread gets its own pair of activation buffers.
+ */
+public final class BeatCnnModel implements EcgBeatClassifier {
+
+    private static final int VERSION = 1;
+
+    private static final int CONV1D = 1, DENSE = 2, MAX_POOL = 3, AVG_POOL = 4, FLATTEN = 5,
+            SCALE = 6, GLOBAL_AVG = 7, GLOBAL_MAX = 8, ACTIVATION = 9;
+
+    private static final int LINEAR = 0, RELU = 1, SIGMOID = 2, TANH = 3, SOFTMAX = 4;
+
+    private final int inputLength;
+    private final int inputChannels;
+    private final Layer[] layers;
+    private final int outputSize;
+    private final ThreadLocal<float[][]> buffers;
+
+    private BeatCnnModel(int inputLength, int inputChannels, Layer[] layers) {
+        this.inputLength = inputLength;
+        this.inputChannels = inputChannels;
+        this.layers = layers;
+
+        int largest = inputLength * inputChannels;
+        for (Layer layer : layers) {
+            largest = Math.max(largest, layer.length * layer.channels);
+        }
+        this.outputSize = layers[layers.length - 1].length * layers[layers.length - 1].channels;
+        int bufferSize = largest;
+        this.buffers = ThreadLocal.withInitial(() -> new float[][]{new float[bufferSize], new float[bufferSize]});
+    }
+
+    public static BeatCnnModel load(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return load(in);
+        }
+    }
+
+    public static BeatCnnModel load(InputStream stream) throws IOException {
+        Reader in = new Reader(stream);
+        if (!"ECGW".equals(in.magic())) {
+            throw new IOException("Not an ECG weights file");
+        }
+        int version = in.i();
+        if (version != VERSION) {
+            throw new IOException("Unsupported weights version " + version);
+        }
+        int inputLength = in.i();
+        int inputChannels = in.i();
+        int count = in.i();
+
+        int length = inputLength;
+        int channels = inputChannels;
+
+        List<Layer> layers = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            int type = in.i();
+            Layer layer = switch (type) {
+                case CONV1D -> {
+                    int filters = in.i(), kernel = in.i(), stride = in.i(), dilation = in.i();
+                    boolean same = in.i() == 1;
+                    int activation = in.i();
+                    yield new Conv1D(length, channels, filters, kernel, stride, dilation, same, activation,
+                            in.floats(kernel * channels * filters), in.floats(filters));
+                }
+                case DENSE -> {
+                    if (length != 1) {
+                        // Keras would apply it per position; the exported models flatten first
+                        throw new IOException("Dense layer " + n + " needs a Flatten or global pooling before it");
+                    }
+                    int units = in.i(), activation = in.i();
+                    int inputs = length * channels;
+                    yield new Dense(inputs, units, activation, in.floats(inputs * units), in.floats(units));
+                }
+                case MAX_POOL, AVG_POOL -> new Pool1D(length, channels, in.i(), in.i(), in.i() == 1, type == MAX_POOL);
+                case FLATTEN -> new Reshape(1, length * channels);
+                case SCALE -> new Scale(length, channels, in.floats(channels), in.floats(channels));
+                case GLOBAL_AVG, GLOBAL_MAX -> new GlobalPool(length, channels, type == GLOBAL_MAX);
+                case ACTIVATION -> new Activation(length, channels, in.i());
+                default -> throw new IOException("Unknown layer type " + type + " at layer " + n);
+            };
+            layers.add(layer);
+            length = layer.length;
+            channels = layer.channels;
+        }
+        if (layers.isEmpty()) {
+            throw new IOException("Weights file has no layers");
+        }
+        return new BeatCnnModel(inputLength, inputChannels, layers.toArray(new Layer[0]));
+    }
+
+    @Override
+    public int windowSize() {
+        return inputLength * inputChannels;
+    }
+
+    /** Values per window in the last layer's output; the first is used as the probability. */
+    public int outputSize() {
+        return outputSize;
+    }
+
+    @Override
+    public float[] classify(float[] windows, int count) {
+        int window = windowSize();
+        if (windows.length < count * window) {
+            throw new IllegalArgumentException("Expected " + count + " windows of " + window + " samples");
+        }
+        float[] probabilities = new float[count];
+        float[][] buf = buffers.get();
+        for (int w = 0; w < count; w++) {
+            System.arraycopy(windows, w * window, buf[0], 0, window);
+            int current = 0;
+            for (Layer layer : layers) {
+                layer.forward(buf[current], buf[1 - current]);
+                current = 1 - current;
+            }
+            probabilities[w] = buf[current][0];
+        }
+        return probabilities;
+    }
+
+    @Override
+    public String backend() {
+        return "jvm";
+    }
+
+    // Layers
+
+    private abstract static class Layer {
+        final int inputLength, inputChannels;
+        final int length, channels;
+
+        Layer(int inputLength, int inputChannels, int length, int channels) {
+            this.inputLength = inputLength;
+            this.inputChannels = inputChannels;
+            this.length = length;
+            this.channels = channels;
+        }
+
+        abstract void forward(float[] in, float[] out);
+    }
+
+    private static final class Conv1D extends Layer {
+        private final int kernel, stride, dilation, padLeft, activation;
+        private final float[] weights; // [kernel][in][out]
+        private final float[] bias;
+
+        Conv1D(int inLength, int inChannels, int filters, int kernel, int stride, int dilation, boolean same,
+               int activation, float[] weights, float[] bias) {
+            super(inLength, inChannels, outLength(inLength, (kernel - 1) * dilation + 1, stride, same), filters);
+            this.kernel = kernel;
+            this.stride = stride;
+            this.dilation = dilation;
+            this.padLeft = padLeft(inLength, length, (kernel - 1) * dilation + 1, stride, same);
+            this.activation = activation;
+            this.weights = weights;
+            this.bias = bias;
+        }
+
+        @Override
+        void forward(float[] in, float[] out) {
+            int inC = inputChannels, outC = channels;
+            for (int t = 0; t < length; t++) {
+                int o = t * outC;
+                System.arraycopy(bias, 0, out, o, outC);
+                for (int k = 0; k < kernel; k++) {
+                    int pos = t * stride + k * dilation - padLeft;
+                    if (pos < 0 || pos >= inputLength) {
+                        continue;
+                    }
+                    int wBase = k * inC * outC;
+                    for (int c = 0; c < inC; c++) {
+                        float x = in[pos * inC + c];
+                        int w = wBase + c * outC;
+                        for (int f = 0; f < outC; f++) {
+                            out[o + f] += x * weights[w + f];
+                        }
+                    }
+                }
+                activate(out, o, outC, activation);
+            }
+        }
+    }
+
+    private static final class Dense extends Layer {
+        private final int activation;
+        private final float[] weights; // [in][out]
+        private final float[] bias;
+
+        Dense(int inputs, int units, int activation, float[] weights, float[] bias) {
+            super(1, inputs, 1, units);
+            this.activation = activation;
+            this.weights = weights;
+            this.bias = bias;
+        }
+
+        @Override
+        void forward(float[] in, float[] out) {
+            int units = channels;
+            System.arraycopy(bias, 0, out, 0, units);
+            for (int i = 0; i < inputChannels; i++) {
+                float x = in[i];
+                if (x == 0f) {
+                    continue; // common after ReLU
+                }
+                int w = i * units;
+                for (int u = 0; u < units; u++) {
+                    out[u] += x * weights[w + u];
+                }
+            }
+            activate(out, 0, units, activation);
+        }
+    }
+
+    private static final class Pool1D extends Layer {
+        private final int pool, stride, padLeft;
+        private final boolean max;
+
+        Pool1D(int inLength, int channels, int pool, int stride, boolean same, boolean max) {
+            super(inLength, channels, outLength(inLength, pool, stride, same), channels);
+            this.pool = pool;
+            this.stride = stride;
+            this.padLeft = padLeft(inLength, length, pool, stride, same);
+            this.max = max;
+        }
+
+        @Override
+        void forward(float[] in, float[] out) {
+            int c = channels;
+            for (int t = 0; t < length; t++) {
+                int from = Math.max(0, t * stride - padLeft);
+                int to = Math.min(inputLength, t * stride - padLeft + pool);
+                int o = t * c;
+                System.arraycopy(in, from * c, out, o, c);
+                for (int p = from + 1; p < to; p++) {
+                    int i = p * c;
+                    for (int ch = 0; ch < c; ch++) {
+                        out[o + ch] = max ? Math.max(out[o + ch], in[i + ch]) : out[o + ch] + in[i + ch];
+                    }
+                }
+                if (!max) {
+                    // Padding is not counted, as in TensorFlow
+                    float n = to - from;
+                    for (int ch = 0; ch < c; ch++) {
+                        out[o + ch] /= n;
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class GlobalPool extends Layer {
+        private final boolean max;
+
+        GlobalPool(int inLength, int channels, boolean max) {
+            super(inLength, channels, 1, channels);
+            this.max = max;
+        }
+
+        @Override
+        void forward(float[] in, float[] out) {
+            System.arraycopy(in, 0, out, 0, channels);
+            for (int t = 1; t < inputLength; t++) {
+                int i = t * channels;
+                for (int ch = 0; ch < channels; ch++) {
+                    out[ch] = max ? Math.max(out[ch], in[i + ch]) : out[ch] + in[i + ch];
+                }
+            }
+            if (!max) {
+                for (int ch = 0; ch < channels; ch++) {
+                    out[ch] /= inputLength;
+                }
+            }
+        }
+    }
+
+    // Flatten: channels-last data is already laid out the way Keras flattens it
+    private static final class Reshape extends Layer {
+        Reshape(int length, int channels) {
+            super(length, channels, length, channels);
+        }
+
+        @Override
+        void forward(float[] in, float[] out) {
+            System.arraycopy(in, 0, out, 0, length * channels);
+        }
+    }
+
+    // Folded BatchNormalization
+    private static final class Scale extends Layer {
+        private final float[] scale, shift;
+
+        Scale(int length, int channels, float[] scale, float[] shift) {
+            super(length, channels, length, channels);
+            this.scale = scale;
+            this.shift = shift;
+        }
+
+        @Override
+        void forward(float[] in, float[] out) {
+            for (int t = 0; t < length; t++) {
+                int o = t * channels;
+                for (int ch = 0; ch < channels; ch++) {
+                    out[o + ch] = in[o + ch] * scale[ch] + shift[ch];
+                }
+            }
+        }
+    }
+
+    private static final class Activation extends Layer {
+        private final int activation;
+
+        Activation(int length, int channels, int activation) {
+            super(length, channels, length, channels);
+            this.activation = activation;
+        }
+
+        @Override
+        void forward(float[] in, float[] out) {
+            System.arraycopy(in, 0, out, 0, length * channels);
+            for (int t = 0; t < length; t++) {
+                activate(out, t * channels, channels, activation);
+            }
+        }
+    }
+
+    private static void activate(float[] v, int from, int n, int activation) {
+        switch (activation) {
+            case LINEAR -> {
+            }
+            case RELU -> {
+                for (int i = from; i < from + n; i++) {
+                    v[i] = Math.max(0f, v[i]);
+                }
+            }
+            case SIGMOID -> {
+                for (int i = from; i < from + n; i++) {
+                    v[i] = (float) (1.0 / (1.0 + Math.exp(-v[i])));
+                }
+            }
+            case TANH -> {
+                for (int i = from; i < from + n; i++) {
+                    v[i] = (float) Math.tanh(v[i]);
+                }
+            }
+            case SOFTMAX -> {
+                float max = Float.NEGATIVE_INFINITY;
+                for (int i = from; i < from + n; i++) {
+                    max = Math.max(max, v[i]);
+                }
+                double sum = 0;
+                for (int i = from; i < from + n; i++) {
+                    v[i] = (float) Math.exp(v[i] - max);
+                    sum += v[i];
+                }
+                for (int i = from; i < from + n; i++) {
+                    v[i] /= (float) sum;
+                }
+            }
+            default -> throw new IllegalStateException("Unknown activation " + activation);
+        }
+    }
+
+    // Keras output length: "same" keeps ceil(L / stride), "valid" only fits whole windows
+    private static int outLength(int inLength, int window, int stride, boolean same) {
+        return same ? (inLength + stride - 1) / stride : (inLength - window) / stride + 1;
+    }
+
+    private static int padLeft(int inLength, int outLength, int window, int stride, boolean same) {
+        if (!same) {
+            return 0;
+        }
+        return Math.max((outLength - 1) * stride + window - inLength, 0) / 2;
+    }
+
+    // Little-endian reader for the exported file
+    private static final class Reader {
+        private final DataInputStream in;
+        private final byte[] scratch = new byte[4];
+
+        Reader(InputStream stream) {
+            this.in = new DataInputStream(new BufferedInputStream(stream));
+        }
+
+        String magic() throws IOException {
+            in.readFully(scratch);
+            return new String(scratch, StandardCharsets.US_ASCII);
+        }
+
+        int i() throws IOException {
+            in.readFully(scratch);
+            return ByteBuffer.wrap(scratch).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        }
+
+        float[] floats(int n) throws IOException {
+            byte[] bytes = new byte[n * 4];
+            try {
+                in.readFully(bytes);
+            } catch (EOFException e) {
+                throw new IOException("Weights file ends early, expected " + n + " more values");
+            }
+            float[] values = new float[n];
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+            return values;
+        }
+    }
+}
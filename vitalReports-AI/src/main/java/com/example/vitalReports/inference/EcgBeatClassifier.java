@@ -0,0 +1,22 @@
+package com.example.vitalReports.inference;
+
+/**
+ * Runs the MIT-BIH beat CNN on fixed-size beat windows centred on an R-peak.
+ * Implementations are thread-safe.
+ */
+public interface EcgBeatClassifier {
+
+    /** Samples per window (180 for the MIT-BIH model at 360 Hz). */
+    int windowSize();
+
+    /**
+     * Classifies windows packed back to back in one array, already normalised the way the
+     * model was trained (divided by the peak absolute amplitude).
+     *
+     * @return the abnormal-beat probability of each window, in input order
+     */
+    float[] classify(float[] windows, int count);
+
+    /** Name reported in responses and logs, e.g. "jvm" or "python". */
+    String backend();
+}
@@ -0,0 +1,89 @@
+package com.example.vitalReports.inference;
+
+import com.example.vitalReports.service.ECGScriptLocator;
+import com.example.vitalReports.service.ECGWorkerPool;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Classifies beats with the Keras model in ecg_predict.py: on a pooled worker when one is
+ * running, otherwise in a one-shot "beats" process that reads the windows from stdin.
+ */
+public class PythonBeatClassifier implements EcgBeatClassifier {
+
+    private static final int WINDOW_SIZE = 180;
+
+    private final ECGWorkerPool workerPool;
+    private final ECGScriptLocator scriptLocator;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public PythonBeatClassifier(ECGWorkerPool workerPool, ECGScriptLocator scriptLocator) {
+        this.workerPool = workerPool;
+        this.scriptLocator = scriptLocator;
+    }
+
+    @Override
+    public int windowSize() {
+        return WINDOW_SIZE;
+    }
+
+    @Override
+    public float[] classify(float[] windows, int count) {
+        float[] packed = windows.length == count * WINDOW_SIZE ? windows : Arrays.copyOf(windows, count * WINDOW_SIZE);
+        JsonNode result;
+        try {
+            result = workerPool.execute(Map.of("op", "beats", "windows", packed));
+        } catch (ECGWorkerPool.WorkerUnavailableException e) {
+            result = classifyInProcess(packed);
+        }
+
+        JsonNode probabilities = result.path("probabilities");
+        if (probabilities.size() != count) {
+            throw new RuntimeException("ECG model returned " + probabilities.size() + " results for " + count + " windows");
+        }
+        float[] out = new float[count];
+        for (int i = 0; i < count; i++) {
+            out[i] = (float) probabilities.get(i).asDouble();
+        }
+        return out;
+    }
+
+    private JsonNode classifyInProcess(float[] windows) {
+        try {
+            ProcessBuilder pb = scriptLocator.processBuilder("beats");
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+            Process process = pb.start();
+
+            try (OutputStream stdin = process.getOutputStream()) {
+                objectMapper.writeValue(stdin, Map.of("windows", windows));
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (InputStream stdout = process.getInputStream()) {
+                stdout.transferTo(output);
+            }
+
+            int exitCode = process.waitFor();
+            if (exitCode != 0 || output.size() == 0) {
+                throw new RuntimeException("ECG beat classification failed (exit code " + exitCode + ")");
+            }
+            return objectMapper.readTree(output.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException("ECG beat classification failed: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during ECG beat classification");
+        }
+    }
+
+    @Override
+    public String backend() {
+        return "python";
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.vitalReports.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for ECG analysis. At most max-concurrent jobs run at once, up to
+ * queue-capacity more wait in line, and anything beyond that is turned away at once with
+ * {@link QueueFullException} (503) instead of piling up decoded records and model calls until
+ * the container runs out of memory. The request thread waits for its job's result.
+ */
+@Component
+public class ECGJobExecutor {
+
+    public static class QueueFullException extends RuntimeException {
+        public QueueFullException(String message) {
+            super(message);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Job<T> {
+        T run() throws Exception;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final long timeoutMs;
+
+    public ECGJobExecutor(MeterRegistry meterRegistry,
+                          @Value("${ecg.job.max-concurrent:4}") int maxConcurrent,
+                          @Value("${ecg.job.queue-capacity:16}") int queueCapacity,
+                          @Value("${ecg.job.timeout-ms:120000}") long timeoutMs) {
+        this.meterRegistry = meterRegistry;
+        this.timeoutMs = timeoutMs;
+
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> new Thread(r, "ecg-job-" + threadId.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("ecg.job.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("ECG jobs running")
+                .register(meterRegistry);
+        Gauge.builder("ecg.job.queued", executor, e -> e.getQueue().size())
+                .description("ECG jobs waiting for a slot")
+                .register(meterRegistry);
+        Gauge.builder("ecg.job.capacity", executor, ThreadPoolExecutor::getMaximumPoolSize)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the job on the ECG pool and waits for it; name tags the metrics (analyze, predict, batch).
+     *
+     * @throws QueueFullException when every slot and queue place is taken
+     */
+    public <T> T execute(String name, Job<T> job) throws Exception {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                timer("ecg.job.wait", name).record(started - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    return job.run();
+                } finally {
+                    timer("ecg.job.run", name).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Counter.builder("ecg.job.rejected").tag("job", name).register(meterRegistry).increment();
+            throw new QueueFullException("ECG analysis is at capacity, try again shortly");
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw (Error) cause;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RuntimeException("ECG " + name + " timed out after " + timeoutMs + " ms");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    private Timer timer(String metric, String name) {
+        return Timer.builder(metric)
+                .tag("job", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
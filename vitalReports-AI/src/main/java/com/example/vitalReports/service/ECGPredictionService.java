@@ -1,66 +1,89 @@
 package com.example.vitalReports.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.vitalReports.domain.model.ECGBatchResponse;
 import com.example.vitalReports.domain.model.ECGPredictionResponse;
+import com.example.vitalReports.inference.EcgBeatClassifier;
+import com.example.vitalReports.wfdb.WfdbHeader;
+import com.example.vitalReports.wfdb.WfdbReader;
+import com.example.vitalReports.wfdb.WfdbUnsupportedException;
 
 import java.io.BufferedReader;
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Runs the MIT-BIH beat CNN. Windows go to the configured {@link EcgBeatClassifier}. Uploaded
+ * records are decoded and segmented in the JVM by {@link ECGRecordAnalyzer}; records it cannot
+ * decode (or all of them, with ecg.analysis.in-process=false) run through ecg_predict.py on a
+ * warm worker of {@link ECGWorkerPool}, or in a one-shot process while no worker is running.
+ */
 @Service
 public class ECGPredictionService {
 
-    @Value("${ecg.python.path:python}")
-    private String pythonPath;
-
-    @Value("${ecg.script.path:ecg_predict.py}")
-    private String scriptPath;
+    private final ECGScriptLocator scriptLocator;
+    private final ECGWorkerPool workerPool;
+    private final EcgBeatClassifier beatClassifier;
+    private final ECGRecordAnalyzer recordAnalyzer;
+    private final int maxBatchWindows;
+    private final boolean inProcessAnalysis;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    public ECGPredictionService(ECGScriptLocator scriptLocator,
+                                ECGWorkerPool workerPool,
+                                EcgBeatClassifier beatClassifier,
+                                ECGRecordAnalyzer recordAnalyzer,
+                                @Value("${ecg.batch.max-windows:10000}") int maxBatchWindows,
+                                @Value("${ecg.analysis.in-process:true}") boolean inProcessAnalysis) {
+        this.scriptLocator = scriptLocator;
+        this.workerPool = workerPool;
+        this.beatClassifier = beatClassifier;
+        this.recordAnalyzer = recordAnalyzer;
+        this.maxBatchWindows = maxBatchWindows;
+        this.inProcessAnalysis = inProcessAnalysis;
+    }
+
     /**
-     * Resolve the script path to an absolute path.
+     * Analyze ECG from uploaded .dat + .hea files.
      */
-    private String resolveScriptPath() {
-        File scriptFile = new File(scriptPath);
-        if (scriptFile.isAbsolute() && scriptFile.exists()) {
-            return scriptFile.getAbsolutePath();
-        }
-
-        File cwdFile = new File(System.getProperty("user.dir"), scriptPath);
-        if (cwdFile.exists()) {
-            return cwdFile.getAbsolutePath();
-        }
-
-        String[] searchPaths = { ".", "..", System.getProperty("user.dir") };
-        for (String base : searchPaths) {
-            File f = new File(base, scriptPath);
-            if (f.exists()) {
-                return f.getAbsolutePath();
+    public ECGPredictionResponse analyzeFiles(MultipartFile datFile, MultipartFile heaFile) throws Exception {
+        if (inProcessAnalysis) {
+            try {
+                return analyzeStreams(datFile, heaFile);
+            } catch (WfdbUnsupportedException e) {
+                // e.g. a storage format other than 212/16; wfdb in Python reads them all
+                System.out.println("[ECG] " + e.getMessage() + ", analysing with Python instead");
             }
         }
-
-        return scriptPath;
+        return analyzeFilesWithPython(datFile, heaFile);
     }
 
-    private File getWorkingDirectory() {
-        String resolved = resolveScriptPath();
-        return new File(resolved).getParentFile();
+    // Decodes the signal straight from the upload streams: no temp files, no subprocess
+    private ECGPredictionResponse analyzeStreams(MultipartFile datFile, MultipartFile heaFile) throws IOException {
+        WfdbHeader header;
+        try (InputStream in = heaFile.getInputStream()) {
+            header = WfdbHeader.parse(in);
+        }
+        float[] ecg;
+        try (InputStream in = datFile.getInputStream()) {
+            // First signal, the MLII lead in MIT-BIH records
+            ecg = WfdbReader.readSignal(header, in, 0);
+        }
+        return recordAnalyzer.analyze(ecg, header.getFs());
     }
 
-    /**
-     * Analyze ECG from uploaded .dat + .hea files.
-     */
-    public ECGPredictionResponse analyzeFiles(MultipartFile datFile, MultipartFile heaFile) throws Exception {
+    private ECGPredictionResponse analyzeFilesWithPython(MultipartFile datFile, MultipartFile heaFile) throws Exception {
 
         Path tempDir = Files.createTempDirectory("ecg_upload_");
 
@@ -70,22 +93,38 @@ public class ECGPredictionService {
         Path datPath = tempDir.resolve(recordName + ".dat");
         Path heaPath = tempDir.resolve(recordName + ".hea");
 
-        datFile.transferTo(datPath.toFile());
-        heaFile.transferTo(heaPath.toFile());
+        try {
+            datFile.transferTo(datPath.toFile());
+            heaFile.transferTo(heaPath.toFile());
 
-        String recordPath = tempDir.resolve(recordName).toString();
+            String recordPath = tempDir.resolve(recordName).toString();
+            System.out.println("[ECG] Record path: " + recordPath);
 
-        String absoluteScriptPath = resolveScriptPath();
-        File workDir = getWorkingDirectory();
+            try {
+                JsonNode result = workerPool.execute(Map.of("op", "file", "record", recordPath));
+                return objectMapper.treeToValue(result, ECGPredictionResponse.class);
+            } catch (ECGWorkerPool.WorkerUnavailableException e) {
+                return analyzeFilesInProcess(recordPath);
+            }
+        } finally {
+            // Cleanup
+            try {
+                Files.deleteIfExists(datPath);
+                Files.deleteIfExists(heaPath);
+                Files.deleteIfExists(tempDir);
+            } catch (Exception ignored) {
+            }
+        }
+    }
 
-        System.out.println("[ECG] Script path: " + absoluteScriptPath);
-        System.out.println("[ECG] Working dir: " + workDir);
-        System.out.println("[ECG] Record path: " + recordPath);
+    private ECGPredictionResponse analyzeFilesInProcess(String recordPath) throws Exception {
 
-        ProcessBuilder pb = new ProcessBuilder(pythonPath, absoluteScriptPath, "file", recordPath);
-        pb.directory(workDir);
+        ProcessBuilder pb = scriptLocator.processBuilder("file", recordPath);
         pb.redirectErrorStream(false);
 
+        System.out.println("[ECG] Script path: " + scriptLocator.resolveScriptPath());
+        System.out.println("[ECG] Working dir: " + pb.directory());
+
         Process process = pb.start();
 
         BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
@@ -110,14 +149,6 @@ public class ECGPredictionService {
             System.out.println("[ECG] Stderr: " + errorOutput);
         }
 
-        // Cleanup
-        try {
-            Files.deleteIfExists(datPath);
-            Files.deleteIfExists(heaPath);
-            Files.deleteIfExists(tempDir);
-        } catch (Exception ignored) {
-        }
-
         if (exitCode != 0 || output.isEmpty()) {
             throw new RuntimeException("ECG analysis failed (exit code " + exitCode + "): " + errorOutput);
         }
@@ -128,37 +159,66 @@ public class ECGPredictionService {
     /**
      * Original mode: predict from a raw signal array (180 samples).
      */
-    public ECGPredictionResponse predictECG(List<Double> signal) throws Exception {
-
-        Map<String, Object> input = new HashMap<>();
-        input.put("signal", signal);
-        String jsonInput = objectMapper.writeValueAsString(input);
+    public ECGPredictionResponse predictECG(List<Double> signal) {
+        int window = beatClassifier.windowSize();
+        if (signal.size() != window) {
+            throw new IllegalArgumentException("Signal must have " + window + " samples, got " + signal.size());
+        }
 
-        String absoluteScriptPath = resolveScriptPath();
-        File workDir = getWorkingDirectory();
+        float[] samples = new float[window];
+        for (int i = 0; i < window; i++) {
+            samples[i] = signal.get(i).floatValue();
+        }
+        normalize(samples, 0, window);
 
-        ProcessBuilder pb = new ProcessBuilder(pythonPath, absoluteScriptPath, "signal", jsonInput);
-        pb.directory(workDir);
-        pb.redirectErrorStream(false);
+        double prob = beatClassifier.classify(samples, 1)[0];
 
-        Process process = pb.start();
+        ECGPredictionResponse response = new ECGPredictionResponse();
+        response.setPrediction(label(prob));
+        response.setProbability(Math.round(prob * 10000) / 10000.0);
+        return response;
+    }
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        String resultLine = reader.readLine();
+    /**
+     * Classifies many windows packed back to back in one model call. Each window is scaled
+     * like a single /predict signal, in place. Results are in input order.
+     */
+    public ECGBatchResponse predictBatch(float[] windows) {
+        int window = beatClassifier.windowSize();
+        if (windows == null || windows.length == 0 || windows.length % window != 0) {
+            throw new IllegalArgumentException("Windows must be a non-empty multiple of " + window + " samples");
+        }
+        int count = windows.length / window;
+        if (count > maxBatchWindows) {
+            throw new IllegalArgumentException("At most " + maxBatchWindows + " windows per batch, got " + count);
+        }
 
-        BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-        StringBuilder errorOutput = new StringBuilder();
-        String errorLine;
-        while ((errorLine = errorReader.readLine()) != null) {
-            errorOutput.append(errorLine).append("\n");
+        for (int w = 0; w < count; w++) {
+            normalize(windows, w * window, window);
         }
+        float[] probabilities = beatClassifier.classify(windows, count);
 
-        int exitCode = process.waitFor();
+        String[] predictions = new String[count];
+        for (int w = 0; w < count; w++) {
+            predictions[w] = label(probabilities[w]);
+        }
+        return new ECGBatchResponse(beatClassifier.backend(), window, predictions, probabilities);
+    }
 
-        if (exitCode != 0 || resultLine == null) {
-            throw new RuntimeException("ECG prediction failed (exit code " + exitCode + "): " + errorOutput);
+    // Same scaling as training: divide by the peak absolute amplitude
+    private static void normalize(float[] samples, int from, int n) {
+        float peak = 0f;
+        for (int i = from; i < from + n; i++) {
+            peak = Math.max(peak, Math.abs(samples[i]));
         }
+        if (peak > 0f) {
+            for (int i = from; i < from + n; i++) {
+                samples[i] /= peak;
+            }
+        }
+    }
 
-        return objectMapper.readValue(resultLine, ECGPredictionResponse.class);
+    private static String label(double probability) {
+        return probability > 0.5 ? "Abnormal" : "Normal";
     }
 }
@@ -0,0 +1,256 @@
+package com.example.vitalReports.service;
+
+import com.example.vitalReports.domain.model.ECGPredictionResponse;
+import com.example.vitalReports.inference.EcgBeatClassifier;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Whole-record ECG analysis in the JVM, the same steps as analyze_from_files in
+ * ecg_predict.py: R-peak detection, one window per beat through the beat classifier, HRV
+ * metrics from the RR intervals and the first 10 s of waveform for the chart.
+ *
+ * R-peaks are found like scipy.signal.find_peaks on the z-scored signal (height, minimum
+ * distance of 200 ms, prominence), retried with lower thresholds when fewer than five are
+ * found. Prominence uses previous/next-greater scans with a stack, so it stays linear in the
+ * record length.
+ */
+@Component
+public class ECGRecordAnalyzer {
+
+    private static final int WAVEFORM_SECONDS = 10;
+    private static final int NO_BEATS_WAVEFORM = 3600;
+
+    private final EcgBeatClassifier beatClassifier;
+
+    public ECGRecordAnalyzer(EcgBeatClassifier beatClassifier) {
+        this.beatClassifier = beatClassifier;
+    }
+
+    public ECGPredictionResponse analyze(float[] ecg, double fs) {
+        int[] rPeaks = detectRPeaks(ecg, fs);
+
+        int window = beatClassifier.windowSize();
+        int half = window / 2;
+        float[] beats = new float[rPeaks.length * window];
+        int count = 0;
+        float peak = 0f;
+        for (int r : rPeaks) {
+            int start = r - half;
+            if (start < 0 || r + half > ecg.length) {
+                continue;
+            }
+            System.arraycopy(ecg, start, beats, count * window, window);
+            for (int i = start; i < start + window; i++) {
+                peak = Math.max(peak, Math.abs(ecg[i]));
+            }
+            count++;
+        }
+
+        ECGPredictionResponse response = new ECGPredictionResponse();
+        response.setFs((int) fs);
+
+        if (count == 0) {
+            response.setPrediction("No beats detected");
+            response.setProbability(0.0);
+            response.setWaveform(Arrays.copyOf(ecg, Math.min(ecg.length, NO_BEATS_WAVEFORM)));
+            response.setStatus("Unable to analyze");
+            response.setRationale("No valid beats were detected in the uploaded ECG.");
+            return response;
+        }
+
+        // One scale for the whole record, as in the Python path
+        if (peak > 0f) {
+            for (int i = 0; i < count * window; i++) {
+                beats[i] /= peak;
+            }
+        }
+        float[] probabilities = beatClassifier.classify(beats, count);
+
+        int abnormal = 0;
+        double sum = 0;
+        for (float p : probabilities) {
+            if (p > 0.5f) {
+                abnormal++;
+            }
+            sum += p;
+        }
+        int normal = count - abnormal;
+        double avgProb = sum / count;
+
+        // HRV metrics from the RR intervals of all detected peaks, in ms
+        double[] rr = new double[Math.max(rPeaks.length - 1, 0)];
+        for (int i = 1; i < rPeaks.length; i++) {
+            rr[i - 1] = (rPeaks[i] - rPeaks[i - 1]) / fs * 1000;
+        }
+        if (rr.length > 0) {
+            response.setMeanHR((int) (60000 / mean(rr)));
+        }
+        if (rr.length > 1) {
+            double meanRr = mean(rr);
+            double variance = 0;
+            double successive = 0;
+            for (int i = 0; i < rr.length; i++) {
+                variance += (rr[i] - meanRr) * (rr[i] - meanRr);
+                if (i > 0) {
+                    successive += (rr[i] - rr[i - 1]) * (rr[i] - rr[i - 1]);
+                }
+            }
+            response.setSDNN(round(Math.sqrt(variance / rr.length), 100));
+            response.setRMSSD(round(Math.sqrt(successive / (rr.length - 1)), 100));
+        }
+
+        String status;
+        String rationale;
+        if ((double) abnormal / count > 0.3) {
+            status = "Abnormal";
+            rationale = String.format(Locale.ROOT,
+                    "CNN detected %d abnormal beats out of %d total. Mean probability: %.2f. "
+                            + "Possible arrhythmia \u2014 further review recommended.", abnormal, count, avgProb);
+        } else {
+            status = "Normal";
+            rationale = String.format(Locale.ROOT,
+                    "CNN classified %d/%d beats as normal. Mean probability: %.2f. "
+                            + "ECG appears within normal limits.", normal, count, avgProb);
+        }
+
+        response.setPrediction(status);
+        response.setProbability(round(avgProb, 10000));
+        response.setWaveform(Arrays.copyOf(ecg, Math.min(ecg.length, (int) (fs * WAVEFORM_SECONDS))));
+        response.setBeats(count);
+        response.setStatus(status);
+        response.setRationale(rationale);
+        return response;
+    }
+
+    int[] detectRPeaks(float[] ecg, double fs) {
+        int n = ecg.length;
+        double sum = 0;
+        for (float v : ecg) {
+            sum += v;
+        }
+        double mean = sum / n;
+        double squares = 0;
+        for (float v : ecg) {
+            squares += (v - mean) * (v - mean);
+        }
+        double std = Math.sqrt(squares / n);
+        if (std == 0 || Double.isNaN(std)) {
+            return new int[0];
+        }
+
+        float[] norm = new float[n];
+        for (int i = 0; i < n; i++) {
+            norm[i] = (float) ((ecg[i] - mean) / std);
+        }
+
+        // At least 200 ms apart (300 bpm max)
+        int minDistance = Math.max(1, (int) (0.2 * fs));
+        int[] peaks = findPeaks(norm, 0.5f, minDistance, 0.5f);
+        if (peaks.length < 5) {
+            peaks = findPeaks(norm, 0.3f, minDistance, 0.3f);
+        }
+        return peaks;
+    }
+
+    // scipy.signal.find_peaks with height, distance and prominence, applied in that order
+    static int[] findPeaks(float[] x, float height, int distance, float prominence) {
+        int n = x.length;
+
+        // Local maxima; a flat top counts once, at its middle
+        int[] peaks = new int[n / 2 + 1];
+        int count = 0;
+        int i = 1;
+        while (i < n - 1) {
+            if (x[i - 1] < x[i]) {
+                int ahead = i + 1;
+                while (ahead < n - 1 && x[ahead] == x[i]) {
+                    ahead++;
+                }
+                if (x[ahead] < x[i]) {
+                    int mid = (i + ahead - 1) / 2;
+                    if (x[mid] >= height) {
+                        peaks[count++] = mid;
+                    }
+                    i = ahead;
+                }
+            }
+            i++;
+        }
+        peaks = Arrays.copyOf(peaks, count);
+
+        // Minimum distance: keep the highest peaks first, drop neighbours that are too close
+        boolean[] keep = new boolean[count];
+        Arrays.fill(keep, true);
+        int[] positions = peaks;
+        Integer[] order = new Integer[count];
+        for (int k = 0; k < count; k++) {
+            order[k] = k;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(k -> x[positions[k]]));
+        for (int o = count - 1; o >= 0; o--) {
+            int j = order[o];
+            if (!keep[j]) {
+                continue;
+            }
+            for (int k = j - 1; k >= 0 && peaks[j] - peaks[k] < distance; k--) {
+                keep[k] = false;
+            }
+            for (int k = j + 1; k < count && peaks[k] - peaks[j] < distance; k++) {
+                keep[k] = false;
+            }
+        }
+
+        // Prominence: height above the higher of the lowest points between the peak and the
+        // nearest strictly higher sample on either side (or the signal edge)
+        float[] leftMin = minToPreviousGreater(x, false);
+        float[] rightMin = minToPreviousGreater(x, true);
+        int kept = 0;
+        for (int k = 0; k < count; k++) {
+            int p = peaks[k];
+            if (keep[k] && x[p] - Math.max(leftMin[p], rightMin[p]) >= prominence) {
+                peaks[kept++] = p;
+            }
+        }
+        return Arrays.copyOf(peaks, kept);
+    }
+
+    /**
+     * For every sample, the minimum over the samples from it back to (not including) the
+     * nearest strictly greater one, scanning leftwards, or rightwards when reversed.
+     */
+    private static float[] minToPreviousGreater(float[] x, boolean reversed) {
+        int n = x.length;
+        float[] result = new float[n];
+        int[] stack = new int[n];
+        float[] segmentMin = new float[n];
+        int top = -1;
+        for (int step = 0; step < n; step++) {
+            int i = reversed ? n - 1 - step : step;
+            float min = x[i];
+            while (top >= 0 && x[stack[top]] <= x[i]) {
+                min = Math.min(min, segmentMin[top]);
+                top--;
+            }
+            stack[++top] = i;
+            segmentMin[top] = min;
+            result[i] = min;
+        }
+        return result;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double v : values) {
+            sum += v;
+        }
+        return sum / values.length;
+    }
+
+    private static double round(double value, int scale) {
+        return Math.round(value * scale) / (double) scale;
+    }
+}
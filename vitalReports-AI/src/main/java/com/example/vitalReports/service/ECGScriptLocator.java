@@ -0,0 +1,66 @@
+package com.example.vitalReports.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locates ecg_predict.py and builds the command lines that run it, both for the one-shot
+ * modes and for the long-lived workers of {@link ECGWorkerPool}.
+ */
+@Component
+public class ECGScriptLocator {
+
+    @Value("${ecg.python.path:python}")
+    private String pythonPath;
+
+    @Value("${ecg.script.path:ecg_predict.py}")
+    private String scriptPath;
+
+    /**
+     * Resolve the script path to an absolute path.
+     */
+    public String resolveScriptPath() {
+        File scriptFile = new File(scriptPath);
+        if (scriptFile.isAbsolute() && scriptFile.exists()) {
+            return scriptFile.getAbsolutePath();
+        }
+
+        File cwdFile = new File(System.getProperty("user.dir"), scriptPath);
+        if (cwdFile.exists()) {
+            return cwdFile.getAbsolutePath();
+        }
+
+        String[] searchPaths = { ".", "..", System.getProperty("user.dir") };
+        for (String base : searchPaths) {
+            File f = new File(base, scriptPath);
+            if (f.exists()) {
+                return f.getAbsolutePath();
+            }
+        }
+
+        return scriptPath;
+    }
+
+    public File getWorkingDirectory() {
+        String resolved = resolveScriptPath();
+        return new File(resolved).getParentFile();
+    }
+
+    /**
+     * A process builder for "python ecg_predict.py &lt;args&gt;" in the script's directory.
+     */
+    public ProcessBuilder processBuilder(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(pythonPath);
+        command.add(resolveScriptPath());
+        command.addAll(List.of(args));
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(getWorkingDirectory());
+        return pb;
+    }
+}
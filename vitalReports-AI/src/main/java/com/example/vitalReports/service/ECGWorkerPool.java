@@ -0,0 +1,323 @@
+package com.example.vitalReports.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of long-lived "ecg_predict.py serve" processes, so TensorFlow is imported and the
+ * Keras model loaded once per worker instead of once per request.
+ *
+ * Requests and responses are JSON frames behind a 4-byte big-endian length on the worker's
+ * stdin/stdout. A worker serves one request at a time; callers borrow an idle one from a
+ * queue. Each call is guarded by a watchdog that kills the process when it overruns the
+ * request timeout. Workers that crash, time out or fail the periodic ping are replaced, with
+ * an increasing delay while new ones keep failing to start (e.g. TensorFlow missing).
+ */
+@Component
+public class ECGWorkerPool {
+
+    /**
+     * No worker is running (pool disabled or none started yet), so the caller should use the
+     * one-shot process instead.
+     */
+    public static class WorkerUnavailableException extends RuntimeException {
+        public WorkerUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Every worker stayed busy for the whole borrow timeout; more jobs are admitted than there
+     * are workers, so the caller should answer 503 and let the client retry.
+     */
+    public static class WorkersBusyException extends RuntimeException {
+        public WorkersBusyException(String message) {
+            super(message);
+        }
+    }
+
+    private static final Map<String, Object> PING = Map.of("op", "ping");
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+    private static final long MAX_RESTART_DELAY_MS = 60_000;
+
+    private static final class Worker {
+        final int id;
+        final Process process;
+        final DataOutputStream requests;
+        final DataInputStream responses;
+        volatile boolean ready;
+        volatile boolean timedOut;
+
+        Worker(int id, Process process) {
+            this.id = id;
+            this.process = process;
+            this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+    }
+
+    private final ECGScriptLocator scriptLocator;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final boolean enabled;
+    private final int size;
+    private final long borrowTimeoutMs;
+    private final long requestTimeoutMs;
+    private final long startupTimeoutMs;
+    private final long healthCheckIntervalMs;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger ready = new AtomicInteger();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicInteger startFailures = new AtomicInteger();
+    private volatile boolean closed;
+
+    // Watchdogs and the health-check trigger; anything that blocks on a worker runs on the starter
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemon("ecg-pool-timer"));
+    private final ExecutorService starter = Executors.newCachedThreadPool(daemon("ecg-pool-worker"));
+
+    private final Counter restarts;
+
+    public ECGWorkerPool(ECGScriptLocator scriptLocator,
+                         MeterRegistry meterRegistry,
+                         @Value("${ecg.worker.enabled:true}") boolean enabled,
+                         @Value("${ecg.worker.pool-size:2}") int size,
+                         @Value("${ecg.worker.borrow-timeout-ms:30000}") long borrowTimeoutMs,
+                         @Value("${ecg.worker.request-timeout-ms:60000}") long requestTimeoutMs,
+                         @Value("${ecg.worker.startup-timeout-ms:120000}") long startupTimeoutMs,
+                         @Value("${ecg.worker.health-check-interval-ms:30000}") long healthCheckIntervalMs) {
+        this.scriptLocator = scriptLocator;
+        this.enabled = enabled && size > 0;
+        this.size = size;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.startupTimeoutMs = startupTimeoutMs;
+        this.healthCheckIntervalMs = healthCheckIntervalMs;
+
+        Gauge.builder("ecg.workers.ready", ready, AtomicInteger::get)
+                .description("Python ECG workers with the model loaded")
+                .register(meterRegistry);
+        Gauge.builder("ecg.workers.idle", idle, BlockingQueue::size)
+                .register(meterRegistry);
+        this.restarts = Counter.builder("ecg.workers.restarts")
+                .description("ECG workers replaced after a crash, timeout or failed health check")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            System.out.println("[ECG] Worker pool disabled, every request spawns a process");
+            return;
+        }
+        // Started in the background: loading TensorFlow takes seconds per worker
+        for (int i = 0; i < size; i++) {
+            starter.execute(this::spawn);
+        }
+        scheduler.scheduleWithFixedDelay(() -> starter.execute(this::healthCheck),
+                healthCheckIntervalMs, healthCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        scheduler.shutdownNow();
+        starter.shutdownNow();
+        for (Worker worker : workers) {
+            try {
+                // A closed stdin ends the serve loop
+                worker.requests.close();
+            } catch (IOException ignored) {
+            }
+            worker.process.destroy();
+        }
+    }
+
+    /**
+     * Sends one request ({"op": ..., ...}) to an idle worker and returns its result.
+     *
+     * @throws WorkerUnavailableException when no worker is running
+     * @throws WorkersBusyException when all workers stay busy for the borrow timeout
+     * @throws RuntimeException when the worker fails or the script reports an error
+     */
+    public JsonNode execute(Map<String, Object> request) {
+        Worker worker = borrow();
+        JsonNode response;
+        try {
+            response = call(worker, request, requestTimeoutMs);
+        } catch (IOException e) {
+            retire(worker, true);
+            if (worker.timedOut) {
+                throw new RuntimeException("ECG worker timed out after " + requestTimeoutMs + " ms");
+            }
+            throw new RuntimeException("ECG worker " + worker.id + " failed: " + e.getMessage(), e);
+        }
+        release(worker);
+
+        if (!response.path("ok").asBoolean()) {
+            throw new RuntimeException(response.path("error").asText("ECG worker returned an error"));
+        }
+        return response.get("result");
+    }
+
+    private Worker borrow() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMs);
+        while (true) {
+            if (!enabled || ready.get() == 0) {
+                throw new WorkerUnavailableException("No ECG worker is running");
+            }
+            Worker worker;
+            try {
+                worker = idle.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for an ECG worker");
+            }
+            if (worker == null) {
+                throw new WorkersBusyException("All ECG workers are busy, try again shortly");
+            }
+            if (worker.process.isAlive()) {
+                return worker;
+            }
+            System.err.println("[ECG] Worker " + worker.id + " exited with code " + worker.process.exitValue());
+            retire(worker, true);
+        }
+    }
+
+    private void release(Worker worker) {
+        if (closed) {
+            retire(worker, false);
+        } else {
+            idle.add(worker);
+        }
+    }
+
+    private JsonNode call(Worker worker, Map<String, Object> request, long timeoutMs) throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(request);
+        ScheduledFuture<?> watchdog = scheduler.schedule(() -> {
+            worker.timedOut = true;
+            worker.process.destroyForcibly();
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            worker.requests.writeInt(payload.length);
+            worker.requests.write(payload);
+            worker.requests.flush();
+
+            int length = worker.responses.readInt();
+            if (length < 0 || length > MAX_FRAME_BYTES) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            byte[] frame = new byte[length];
+            worker.responses.readFully(frame);
+            return objectMapper.readTree(frame);
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+
+    private void spawn() {
+        if (closed) {
+            return;
+        }
+        Worker worker = null;
+        try {
+            ProcessBuilder pb = scriptLocator.processBuilder("serve");
+            // TensorFlow logs a lot on stderr; send it to ours so the pipe never fills up
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+            worker = new Worker(nextId.incrementAndGet(), pb.start());
+            workers.add(worker);
+
+            // The first answer only comes once the model is loaded
+            JsonNode pong = call(worker, PING, startupTimeoutMs);
+            if (!pong.path("ok").asBoolean()) {
+                throw new IOException(pong.path("error").asText("unexpected ping response"));
+            }
+            worker.ready = true;
+            ready.incrementAndGet();
+            startFailures.set(0);
+            System.out.println("[ECG] Worker " + worker.id + " ready (pid " + worker.process.pid() + ")");
+            release(worker);
+        } catch (IOException e) {
+            if (worker != null) {
+                retire(worker, false);
+            }
+            int failures = startFailures.incrementAndGet();
+            long delay = Math.min(MAX_RESTART_DELAY_MS, 1000L << Math.min(failures - 1, 6));
+            System.err.println("[ECG] Worker failed to start: " + e.getMessage() + "; retrying in " + delay + " ms");
+            if (!closed) {
+                scheduler.schedule(() -> starter.execute(this::spawn), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void retire(Worker worker, boolean replace) {
+        if (!workers.remove(worker)) {
+            return;
+        }
+        if (worker.ready) {
+            ready.decrementAndGet();
+        }
+        worker.process.destroyForcibly();
+        if (replace && !closed) {
+            restarts.increment();
+            starter.execute(this::spawn);
+        }
+    }
+
+    // Pings every idle worker once; busy ones are checked by their own request
+    private void healthCheck() {
+        for (int i = 0, n = idle.size(); i < n; i++) {
+            Worker worker = idle.poll();
+            if (worker == null) {
+                break;
+            }
+            try {
+                if (!worker.process.isAlive()) {
+                    throw new IOException("exited with code " + worker.process.exitValue());
+                }
+                JsonNode pong = call(worker, PING, Math.min(requestTimeoutMs, 10_000));
+                if (!pong.path("ok").asBoolean()) {
+                    throw new IOException("unexpected ping response");
+                }
+                release(worker);
+            } catch (IOException e) {
+                System.err.println("[ECG] Worker " + worker.id + " failed health check: " + e.getMessage());
+                retire(worker, true);
+            }
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.vitalReports.wfdb;
+
+import java.io.IOException;
+
+/**
+ * A WFDB header or signal file that is malformed or truncated, or (as
+ * {@link WfdbUnsupportedException}) uses a layout this reader does not decode.
+ */
+public class WfdbFormatException extends IOException {
+
+    public WfdbFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.vitalReports.wfdb;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsed WFDB header (.hea) of a single-segment record: the record line and one line per
+ * signal. See the WFDB "header(5)" format; comment lines start with '#'.
+ */
+public class WfdbHeader {
+
+    private static final double DEFAULT_FS = 250;
+    private static final double DEFAULT_GAIN = 200;
+
+    // format[xsamp][:skew][+offset]
+    private static final Pattern FORMAT = Pattern.compile("(\\d+)(?:x\\d+)?(?::\\d+)?(?:\\+(\\d+))?");
+    // adcgain[(baseline)][/units]
+    private static final Pattern GAIN = Pattern.compile("([-+0-9.eE]+)(?:\\((-?\\d+)\\))?(?:/(\\S+))?");
+
+    public static class Signal {
+        private final String fileName;
+        private final int format;
+        private final long byteOffset;
+        private final double gain;
+        private final int baseline;
+        private final String units;
+        private final String description;
+
+        Signal(String fileName, int format, long byteOffset, double gain, int baseline, String units, String description) {
+            this.fileName = fileName;
+            this.format = format;
+            this.byteOffset = byteOffset;
+            this.gain = gain;
+            this.baseline = baseline;
+            this.units = units;
+            this.description = description;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public int getFormat() {
+            return format;
+        }
+
+        public long getByteOffset() {
+            return byteOffset;
+        }
+
+        public double getGain() {
+            return gain;
+        }
+
+        public int getBaseline() {
+            return baseline;
+        }
+
+        public String getUnits() {
+            return units;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final String recordName;
+    private final double fs;
+    private final long samplesPerSignal;
+    private final List<Signal> signals;
+
+    private WfdbHeader(String recordName, double fs, long samplesPerSignal, List<Signal> signals) {
+        this.recordName = recordName;
+        this.fs = fs;
+        this.samplesPerSignal = samplesPerSignal;
+        this.signals = signals;
+    }
+
+    public static WfdbHeader parse(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        String[] record = null;
+        List<Signal> signals = new ArrayList<>();
+        int expected = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (record == null) {
+                record = fields;
+                if (record[0].contains("/")) {
+                    throw new WfdbUnsupportedException("Multi-segment records are not supported");
+                }
+                expected = record.length > 1 ? parseInt(record[1], "signal count") : 0;
+            } else if (signals.size() < expected) {
+                signals.add(parseSignal(fields));
+            }
+        }
+
+        if (record == null) {
+            throw new WfdbFormatException("Empty header");
+        }
+        if (signals.isEmpty() || signals.size() < expected) {
+            throw new WfdbFormatException("Header declares " + expected + " signals but describes " + signals.size());
+        }
+
+        // fs[/counterfreq][(basecount)]
+        double fs = record.length > 2 ? parseDouble(record[2].split("[/(]")[0], "sampling frequency") : DEFAULT_FS;
+        long samples = record.length > 3 ? (long) parseDouble(record[3], "sample count") : 0;
+        return new WfdbHeader(record[0], fs > 0 ? fs : DEFAULT_FS, samples, signals);
+    }
+
+    private static Signal parseSignal(String[] fields) throws WfdbFormatException {
+        if (fields.length < 2) {
+            throw new WfdbFormatException("Signal line without a format: " + String.join(" ", fields));
+        }
+        Matcher format = FORMAT.matcher(fields[1]);
+        if (!format.matches()) {
+            throw new WfdbFormatException("Bad signal format: " + fields[1]);
+        }
+
+        double gain = DEFAULT_GAIN;
+        Integer baseline = null;
+        String units = "mV";
+        if (fields.length > 2) {
+            Matcher g = GAIN.matcher(fields[2]);
+            if (!g.matches()) {
+                throw new WfdbFormatException("Bad ADC gain: " + fields[2]);
+            }
+            double parsed = parseDouble(g.group(1), "ADC gain");
+            gain = parsed != 0 ? parsed : DEFAULT_GAIN;
+            baseline = g.group(2) != null ? Integer.valueOf(g.group(2)) : null;
+            units = g.group(3) != null ? g.group(3) : units;
+        }
+        // Without an explicit baseline the ADC zero is used
+        int adcZero = fields.length > 4 ? parseInt(fields[4], "ADC zero") : 0;
+        String description = fields.length > 8
+                ? String.join(" ", List.of(fields).subList(8, fields.length)) : "";
+
+        return new Signal(fields[0], Integer.parseInt(format.group(1)),
+                format.group(2) != null ? Long.parseLong(format.group(2)) : 0,
+                gain, baseline != null ? baseline : adcZero, units, description);
+    }
+
+    private static int parseInt(String value, String what) throws WfdbFormatException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new WfdbFormatException("Bad " + what + ": " + value);
+        }
+    }
+
+    private static double parseDouble(String value, String what) throws WfdbFormatException {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new WfdbFormatException("Bad " + what + ": " + value);
+        }
+    }
+
+    public String getRecordName() {
+        return recordName;
+    }
+
+    public double getFs() {
+        return fs;
+    }
+
+    /** Samples per signal from the record line, or 0 when the header leaves it out. */
+    public long getSamplesPerSignal() {
+        return samplesPerSignal;
+    }
+
+    public List<Signal> getSignals() {
+        return signals;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.vitalReports.wfdb;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes one signal of a WFDB signal file (.dat) straight from a stream into a float array
+ * in physical units, (adc - baseline) / gain, the same values wfdb.rdrecord puts in p_signal.
+ *
+ * Signals stored in the same file are interleaved sample by sample; only the requested one is
+ * kept. Formats 212 (two 12-bit samples in three bytes, used by MIT-BIH) and 16 (16-bit
+ * little-endian) are supported. The stream is read in fixed chunks, so nothing but the output
+ * array grows with the record length.
+ */
+public final class WfdbReader {
+
+    private static final int CHUNK = 65532; // whole 3-byte and 2-byte groups
+    private static final int INITIAL_CAPACITY = 1 << 20;
+
+    private WfdbReader() {
+    }
+
+    public static float[] readSignal(WfdbHeader header, InputStream dat, int index) throws IOException {
+        List<WfdbHeader.Signal> signals = header.getSignals();
+        if (index < 0 || index >= signals.size()) {
+            throw new WfdbFormatException("Record has no signal " + index);
+        }
+        WfdbHeader.Signal signal = signals.get(index);
+
+        List<WfdbHeader.Signal> inFile = signals.stream()
+                .filter(s -> s.getFileName().equals(signal.getFileName()))
+                .toList();
+        int format = signal.getFormat();
+        if (format != 212 && format != 16) {
+            throw new WfdbUnsupportedException("Unsupported WFDB format " + format);
+        }
+        if (inFile.stream().anyMatch(s -> s.getFormat() != format)) {
+            throw new WfdbUnsupportedException("Signals in " + signal.getFileName() + " use different formats");
+        }
+
+        Sink sink = new Sink(header.getSamplesPerSignal(), inFile.size(), inFile.indexOf(signal),
+                signal.getGain(), signal.getBaseline(), format == 212 ? -2048 : -32768);
+
+        try {
+            dat.skipNBytes(inFile.get(0).getByteOffset());
+        } catch (EOFException e) {
+            throw new WfdbFormatException("Signal file is shorter than its byte offset " + inFile.get(0).getByteOffset());
+        }
+        byte[] chunk = new byte[CHUNK];
+        int read;
+        while (!sink.full() && (read = dat.readNBytes(chunk, 0, CHUNK)) > 0) {
+            if (format == 212) {
+                for (int i = 0; i + 2 < read && !sink.full(); i += 3) {
+                    int b0 = chunk[i] & 0xFF, b1 = chunk[i + 1] & 0xFF, b2 = chunk[i + 2] & 0xFF;
+                    // Sign-extend the two 12-bit values
+                    sink.accept(((b0 | (b1 & 0x0F) << 8) << 20) >> 20);
+                    sink.accept(((b2 | (b1 & 0xF0) << 4) << 20) >> 20);
+                }
+            } else {
+                for (int i = 0; i + 1 < read && !sink.full(); i += 2) {
+                    sink.accept((short) ((chunk[i] & 0xFF) | (chunk[i + 1] << 8)));
+                }
+            }
+        }
+
+        if (sink.count == 0) {
+            throw new WfdbFormatException("Signal file holds no samples");
+        }
+        if (header.getSamplesPerSignal() > 0 && sink.count < header.getSamplesPerSignal()) {
+            throw new WfdbFormatException("Signal file ends after " + sink.count + " of "
+                    + header.getSamplesPerSignal() + " samples");
+        }
+        return sink.samples();
+    }
+
+    private static final class Sink {
+        private final long limit;
+        private final int channels;
+        private final int channel;
+        private final float gain;
+        private final int baseline;
+        private final int invalid;
+
+        private float[] out;
+        private int count;
+        private int position;
+        private float last;
+
+        Sink(long limit, int channels, int channel, double gain, int baseline, int invalid) {
+            this.limit = limit > 0 ? limit : Long.MAX_VALUE;
+            this.channels = channels;
+            this.channel = channel;
+            this.gain = (float) gain;
+            this.baseline = baseline;
+            this.invalid = invalid;
+            this.out = new float[(int) Math.min(this.limit, INITIAL_CAPACITY)];
+        }
+
+        boolean full() {
+            return count >= limit;
+        }
+
+        void accept(int adc) {
+            if (position == channel && count < limit) {
+                if (count == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                // WFDB's "invalid sample" marker becomes NaN in wfdb-python; hold the previous value instead
+                if (adc != invalid) {
+                    last = (adc - baseline) / gain;
+                }
+                out[count++] = last;
+            }
+            if (++position == channels) {
+                position = 0;
+            }
+        }
+
+        float[] samples() {
+            return count == out.length ? out : Arrays.copyOf(out, count);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.vitalReports.wfdb;
+
+/**
+ * A well-formed WFDB record in a layout this reader does not decode (another storage format,
+ * multi-segment records), unlike a malformed or truncated upload. wfdb in Python reads these.
+ */
+public class WfdbUnsupportedException extends WfdbFormatException {
+
+    public WfdbUnsupportedException(String message) {
+        super(message);
+    }
+}
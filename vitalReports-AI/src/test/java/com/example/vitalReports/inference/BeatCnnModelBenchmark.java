@@ -0,0 +1,109 @@
+package com.example.vitalReports.inference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Beats per second of the JVM forward pass. Scores are reported per beat
+ * (ops/s = beats/s); the single-beat case is what /predict pays, the batch case what
+ * /analyze and /predict/batch pay per beat.
+ *
+ * Uses the exported model when ECG_WEIGHTS points at one, otherwise a random-weight network
+ * shaped like the beat CNN (180 samples, three conv blocks, two dense layers). Run with
+ * {@code mvn -pl vitalReports-AI test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.vitalReports.inference.BeatCnnModelBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeatCnnModelBenchmark {
+
+    private static final int BATCH = 256;
+
+    private BeatCnnModel model;
+    private float[] one;
+    private float[] batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        String weights = System.getenv("ECG_WEIGHTS");
+        model = weights != null ? BeatCnnModel.load(Path.of(weights)) : syntheticModel(new Random(1)).load();
+
+        Random random = new Random(2);
+        batch = new float[BATCH * model.windowSize()];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = (float) random.nextGaussian() * 0.3f;
+        }
+        one = new float[model.windowSize()];
+        System.arraycopy(batch, 0, one, 0, one.length);
+    }
+
+    @Benchmark
+    public float[] singleBeat() {
+        return model.classify(one, 1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public float[] batchOfBeats() {
+        return model.classify(batch, BATCH);
+    }
+
+    // Each thread has its own activation buffers, so throughput should scale with cores
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BATCH)
+    public float[] batchOfBeatsFourThreads() {
+        return model.classify(batch, BATCH);
+    }
+
+    static BeatCnnModelTest.Weights syntheticModel(Random random) {
+        int length = 180;
+        BeatCnnModelTest.Weights w = new BeatCnnModelTest.Weights(length, 1);
+        int channels = 1;
+        for (int filters : new int[]{32, 64, 128}) {
+            w.conv(filters, 5, 1, 1, true, BeatCnnModelTest.Weights.RELU,
+                    random(random, 5 * channels * filters, 5 * channels), random(random, filters, 1))
+                    .scale(random(random, filters, 1), random(random, filters, 1))
+                    .pool(true, 2, 2, false);
+            channels = filters;
+            length /= 2;
+        }
+        int flat = length * channels;
+        return w.flatten()
+                .dense(64, BeatCnnModelTest.Weights.RELU, random(random, flat * 64, flat), random(random, 64, 1))
+                .dense(1, BeatCnnModelTest.Weights.SIGMOID, random(random, 64, 64), random(random, 1, 1));
+    }
+
+    // He-style scale so activations neither vanish nor blow up through the layers
+    private static float[] random(Random random, int n, int fanIn) {
+        float[] values = new float[n];
+        double scale = Math.sqrt(2.0 / fanIn);
+        for (int i = 0; i < n; i++) {
+            values[i] = (float) (random.nextGaussian() * scale);
+        }
+        return values;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BeatCnnModelBenchmark.class.getSimpleName()).build()).run();
+    }
+}
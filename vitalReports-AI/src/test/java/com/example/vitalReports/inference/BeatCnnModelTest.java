@@ -0,0 +1,270 @@
+package com.example.vitalReports.inference;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Hand-built ECGW files with outputs worked out by hand. classify() returns the first value of
+ * the last layer, so whole tensors are read back one element at a time through an appended
+ * Flatten and a one-hot Dense layer.
+ */
+class BeatCnnModelTest {
+
+    private static final float EPS = 1e-6f;
+
+    @Test
+    void conv1dValidWithDilation() throws IOException {
+        // Taps x[t] and x[t + 2]: window 3, so 5 - 3 + 1 = 3 outputs
+        Weights w = new Weights(5, 1).conv(1, 2, 1, 2, false, Weights.LINEAR, new float[]{1, -1}, new float[]{0.5f});
+        assertArrayEquals(new float[]{-2.5f, -5.5f, -11.5f}, outputs(w, 3, 1, 2, 4, 8, 16), EPS);
+    }
+
+    @Test
+    void conv1dSamePadsBothSidesAndAppliesRelu() throws IOException {
+        // Kernel 3 over 4 samples: one zero on each side; weights are [k][in][out]
+        float[] kernel = {
+                1, 1,   // k = 0: filter 0, filter 1
+                0, 1,   // k = 1
+                -1, 1}; // k = 2
+        Weights w = new Weights(4, 1).conv(2, 3, 1, 1, true, Weights.RELU, kernel, new float[]{0, -1});
+        // Channels last: [t0f0, t0f1, t1f0, ...]; filter 0 is x[t-1] - x[t+1], filter 1 the 3-sum minus 1
+        assertArrayEquals(new float[]{0, 2, 0, 5, 0, 8, 3, 6}, outputs(w, 8, 1, 2, 3, 4), EPS);
+    }
+
+    @Test
+    void conv1dSameWithStride() throws IOException {
+        // ceil(5 / 2) = 3 outputs, padding 2 split 1 left / 1 right
+        Weights w = new Weights(5, 1).conv(1, 3, 2, 1, true, Weights.LINEAR, new float[]{1, 1, 1}, new float[]{0});
+        assertArrayEquals(new float[]{3, 9, 9}, outputs(w, 3, 1, 2, 3, 4, 5), EPS);
+    }
+
+    @Test
+    void conv1dMixesInputChannels() throws IOException {
+        // Two input channels, kernel 1: out = 2 * a - b + 1
+        Weights w = new Weights(2, 2).conv(1, 1, 1, 1, false, Weights.LINEAR, new float[]{2, -1}, new float[]{1});
+        assertArrayEquals(new float[]{2, 6}, outputs(w, 2, 1, 1, 3, 1), EPS);
+    }
+
+    @Test
+    void maxAndAveragePooling() throws IOException {
+        Weights max = new Weights(5, 1).pool(true, 2, 2, false);
+        assertArrayEquals(new float[]{3, 5}, outputs(max, 2, 1, 3, 2, 5, 4), EPS);
+
+        // "same": 3 windows, the last one covers only the final sample and is not averaged with padding
+        Weights avg = new Weights(5, 1).pool(false, 2, 2, true);
+        assertArrayEquals(new float[]{2, 3.5f, 4}, outputs(avg, 3, 1, 3, 2, 5, 4), EPS);
+    }
+
+    @Test
+    void globalPoolingPerChannel() throws IOException {
+        assertArrayEquals(new float[]{2, 3}, outputs(new Weights(2, 2).globalPool(false), 2, 1, 2, 3, 4), EPS);
+        assertArrayEquals(new float[]{3, 4}, outputs(new Weights(2, 2).globalPool(true), 2, 1, 2, 3, 4), EPS);
+    }
+
+    @Test
+    void foldedBatchNormScalesAndShiftsEachChannel() throws IOException {
+        Weights w = new Weights(2, 2).scale(new float[]{2, -1}, new float[]{0.5f, 1});
+        assertArrayEquals(new float[]{2.5f, -1, 6.5f, -3}, outputs(w, 4, 1, 2, 3, 4), EPS);
+    }
+
+    @Test
+    void standaloneActivations() throws IOException {
+        assertArrayEquals(new float[]{(float) Math.tanh(-1), 0, (float) Math.tanh(2)},
+                outputs(new Weights(3, 1).activation(Weights.TANH), 3, -1, 0, 2), EPS);
+
+        double e = Math.exp(1);
+        assertArrayEquals(new float[]{(float) (1 / (1 + e)), (float) (e / (1 + e))},
+                outputs(new Weights(1, 2).activation(Weights.SOFTMAX), 2, 1, 2), EPS);
+    }
+
+    @Test
+    void denseWithSigmoid() throws IOException {
+        // 1 + 1 - 2 - 1 = -1
+        Weights w = new Weights(3, 1).flatten()
+                .dense(1, Weights.SIGMOID, new float[]{1, 2, -1}, new float[]{-1});
+        BeatCnnModel model = w.load();
+        assertEquals(3, model.windowSize());
+        assertEquals(1, model.outputSize());
+        assertEquals(sigmoid(-1), model.classify(new float[]{1, 0.5f, 2}, 1)[0], EPS);
+    }
+
+    @Test
+    void smallNetworkEndToEnd() throws IOException {
+        // conv [1, 1] -> [0, 1, 2]; BN *2 - 1 -> [-1, 1, 3]; relu -> [0, 1, 3]; max pool 2/1 -> [1, 3];
+        // dense 0.5 * 1 - 0.25 * 3 + 0.1 = -0.15; sigmoid
+        Weights w = new Weights(4, 1)
+                .conv(1, 2, 1, 1, false, Weights.LINEAR, new float[]{1, 1}, new float[]{0})
+                .scale(new float[]{2}, new float[]{-1})
+                .activation(Weights.RELU)
+                .pool(true, 2, 1, false)
+                .flatten()
+                .dense(1, Weights.SIGMOID, new float[]{0.5f, -0.25f}, new float[]{0.1f});
+        BeatCnnModel model = w.load();
+
+        // Three windows in one call, each scored independently
+        float[] windows = {1, -1, 2, 0, 0, 0, 0, 0, 4, 0, 0, 0};
+        float[] p = model.classify(windows, 3);
+        assertEquals(sigmoid(-0.15), p[0], EPS);
+        assertEquals(sigmoid(0.1), p[1], EPS);
+        // conv [4, 0, 0]; BN [7, -1, -1]; relu [7, 0, 0]; pool [7, 0]; dense 3.5 + 0.1
+        assertEquals(sigmoid(3.6), p[2], EPS);
+    }
+
+    @Test
+    void rejectsBrokenFiles() {
+        assertThrows(IOException.class, () -> BeatCnnModel.load(new ByteArrayInputStream("NOPE".getBytes())));
+        // Dense straight after a conv output of length > 1
+        assertThrows(IOException.class, () -> new Weights(2, 1)
+                .dense(1, Weights.LINEAR, new float[]{1}, new float[]{0}).load());
+        // Fewer weights than the header promises
+        assertThrows(IOException.class, () -> new Weights(4, 1)
+                .conv(2, 3, 1, 1, true, Weights.LINEAR, new float[]{1, 2}, new float[0]).load());
+        assertThrows(IllegalArgumentException.class, () -> new Weights(3, 1).flatten()
+                .dense(1, Weights.LINEAR, new float[]{1, 1, 1}, new float[]{0}).load().classify(new float[5], 2));
+    }
+
+    @Test
+    void matchesKerasOnExportedModel() throws IOException {
+        // Written by src/test/resources/inference/make_beat_cnn_parity.py: export_ecg_weights.py output
+        // for a seeded beat-CNN-shaped Keras model (same padding, folded BatchNorm, Dropout) and TF's predict
+        InputStream weights = BeatCnnModelTest.class.getResourceAsStream("/inference/beat_cnn_parity.weights");
+        InputStream expected = BeatCnnModelTest.class.getResourceAsStream("/inference/beat_cnn_parity.json");
+        assumeTrue(weights != null && expected != null, "parity fixture not generated, see make_beat_cnn_parity.py");
+
+        BeatCnnModel model;
+        JsonNode fixture;
+        try (weights; expected) {
+            model = BeatCnnModel.load(weights);
+            fixture = new ObjectMapper().readTree(expected);
+        }
+        int n = fixture.get("windows").size();
+        float[] windows = new float[n * model.windowSize()];
+        for (int w = 0; w < n; w++) {
+            JsonNode window = fixture.get("windows").get(w);
+            assertEquals(model.windowSize(), window.size());
+            for (int i = 0; i < window.size(); i++) {
+                windows[w * model.windowSize() + i] = (float) window.get(i).asDouble();
+            }
+        }
+
+        float[] p = model.classify(windows, n);
+        for (int w = 0; w < n; w++) {
+            assertEquals(fixture.get("probabilities").get(w).asDouble(), p[w], 1e-5, "window " + w);
+        }
+    }
+
+    private static float sigmoid(double x) {
+        return (float) (1 / (1 + Math.exp(-x)));
+    }
+
+    // Every element of the network's output, read through a one-hot Dense layer per element
+    private static float[] outputs(Weights network, int size, float... input) throws IOException {
+        float[] out = new float[size];
+        for (int i = 0; i < size; i++) {
+            float[] oneHot = new float[size];
+            oneHot[i] = 1;
+            BeatCnnModel model = network.copy().flatten().dense(1, Weights.LINEAR, oneHot, new float[]{0}).load();
+            out[i] = model.classify(input, 1)[0];
+        }
+        return out;
+    }
+
+    /** Writes the ECGW format read by BeatCnnModel.load (little-endian ints and floats). */
+    static final class Weights {
+        static final int LINEAR = 0, RELU = 1, SIGMOID = 2, TANH = 3, SOFTMAX = 4;
+
+        private final int inputLength, inputChannels;
+        private final List<float[]> layers = new ArrayList<>();
+
+        Weights(int inputLength, int inputChannels) {
+            this.inputLength = inputLength;
+            this.inputChannels = inputChannels;
+        }
+
+        Weights copy() {
+            Weights copy = new Weights(inputLength, inputChannels);
+            copy.layers.addAll(layers);
+            return copy;
+        }
+
+        Weights conv(int filters, int kernel, int stride, int dilation, boolean same, int activation,
+                     float[] weights, float[] bias) {
+            return layer(new float[]{1, filters, kernel, stride, dilation, same ? 1 : 0, activation}, weights, bias);
+        }
+
+        Weights dense(int units, int activation, float[] weights, float[] bias) {
+            return layer(new float[]{2, units, activation}, weights, bias);
+        }
+
+        Weights pool(boolean max, int pool, int stride, boolean same) {
+            return layer(new float[]{max ? 3 : 4, pool, stride, same ? 1 : 0});
+        }
+
+        Weights flatten() {
+            return layer(new float[]{5});
+        }
+
+        Weights scale(float[] scale, float[] shift) {
+            return layer(new float[]{6}, scale, shift);
+        }
+
+        Weights globalPool(boolean max) {
+            return layer(new float[]{max ? 8 : 7});
+        }
+
+        Weights activation(int activation) {
+            return layer(new float[]{9, activation});
+        }
+
+        // Header ints are marked by a leading count so they are written as ints, the rest as floats
+        private Weights layer(float[] ints, float[]... floats) {
+            int size = 1 + ints.length + Arrays.stream(floats).mapToInt(f -> f.length).sum();
+            float[] encoded = new float[size];
+            encoded[0] = ints.length;
+            System.arraycopy(ints, 0, encoded, 1, ints.length);
+            int pos = 1 + ints.length;
+            for (float[] f : floats) {
+                System.arraycopy(f, 0, encoded, pos, f.length);
+                pos += f.length;
+            }
+            layers.add(encoded);
+            return this;
+        }
+
+        byte[] bytes() {
+            int size = 4 + 4 * 4 + layers.stream().mapToInt(l -> (l.length - 1) * 4).sum();
+            ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            buf.put("ECGW".getBytes()).putInt(1).putInt(inputLength).putInt(inputChannels).putInt(layers.size());
+            for (float[] layer : layers) {
+                int ints = (int) layer[0];
+                for (int i = 1; i < layer.length; i++) {
+                    if (i <= ints) {
+                        buf.putInt((int) layer[i]);
+                    } else {
+                        buf.putFloat(layer[i]);
+                    }
+                }
+            }
+            return buf.array();
+        }
+
+        BeatCnnModel load() throws IOException {
+            return BeatCnnModel.load(new ByteArrayInputStream(bytes()));
+        }
+    }
+}
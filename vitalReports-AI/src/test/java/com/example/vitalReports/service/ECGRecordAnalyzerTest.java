@@ -0,0 +1,40 @@
+package com.example.vitalReports.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class ECGRecordAnalyzerTest {
+
+    // Expected indices are scipy.signal.find_peaks output for the same arguments
+    private static final float[] X = {0, 1, 1, 1, 0, 2, 0, 0.5f, 0.4f, 3, 0};
+
+    @Test
+    void flatTopCountsOnceAtItsMiddle() {
+        assertArrayEquals(new int[]{2, 5, 7, 9}, ECGRecordAnalyzer.findPeaks(X, 0f, 1, 0f));
+        // Even-length plateau: scipy takes the left of the two middle samples
+        assertArrayEquals(new int[]{2}, ECGRecordAnalyzer.findPeaks(new float[]{0, 1, 1, 1, 1, 0}, 0f, 1, 0f));
+        // Plateaus running into the edge are not peaks
+        assertArrayEquals(new int[0], ECGRecordAnalyzer.findPeaks(new float[]{0, 1, 1}, 0f, 1, 0f));
+    }
+
+    @Test
+    void heightFiltersLowPeaks() {
+        assertArrayEquals(new int[]{5, 9}, ECGRecordAnalyzer.findPeaks(X, 1.5f, 1, 0f));
+    }
+
+    @Test
+    void distanceKeepsTheHigherOfNeighbouringPeaks() {
+        assertArrayEquals(new int[]{2, 5, 9}, ECGRecordAnalyzer.findPeaks(X, 0f, 3, 0f));
+        assertArrayEquals(new int[]{5, 9}, ECGRecordAnalyzer.findPeaks(X, 0f, 4, 0f));
+        assertArrayEquals(new int[]{2, 9}, ECGRecordAnalyzer.findPeaks(X, 0f, 5, 0f));
+    }
+
+    @Test
+    void prominenceUsesTheHigherOfTheTwoBases() {
+        // Peak 7 (0.5) sits 0.1 above its right base 0.4 on the way to the higher peak 9
+        assertArrayEquals(new int[]{2, 5, 9}, ECGRecordAnalyzer.findPeaks(X, 0f, 1, 0.5f));
+        assertArrayEquals(new int[]{2, 5, 7, 9}, ECGRecordAnalyzer.findPeaks(X, 0f, 1, 0.05f));
+        assertArrayEquals(new int[]{5, 9}, ECGRecordAnalyzer.findPeaks(X, 0f, 1, 1.5f));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.vitalReports.service;
+
+import com.example.vitalReports.domain.model.ECGPredictionResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a Python-analysed upload through a pooled worker against spawning
+ * "ecg_predict.py file" per request, both through ECGPredictionService with in-process
+ * analysis off. Uses stub_ecg_predict.py, so it runs offline and without TensorFlow.
+ *
+ * modelLoadSeconds is how long the stub pretends to spend importing TensorFlow and loading
+ * the model; the spawn path pays it on every request, the pool once per worker. 0 measures
+ * interpreter startup alone. Run with {@code mvn -pl vitalReports-AI test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.example.vitalReports.service.ECGWorkerPoolBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ECGWorkerPoolBenchmark {
+
+    @Param({"0", "2"})
+    public double modelLoadSeconds;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private ECGWorkerPool pool;
+    private ECGWorkerPool noPool;
+    private ECGPredictionService pooled;
+    private ECGPredictionService spawning;
+
+    private MockMultipartFile dat;
+    private MockMultipartFile hea;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        StubEcgScript script = new StubEcgScript(modelLoadSeconds);
+        pool = new ECGWorkerPool(script, registry, true, 1, 30_000, 60_000, 120_000, 30_000);
+        pool.start();
+        StubEcgScript.awaitReady(registry, 1, 120_000);
+        noPool = new ECGWorkerPool(script, new SimpleMeterRegistry(), false, 0, 0, 0, 0, 30_000);
+
+        // The beat classifier and record analyzer are only used by in-process analysis
+        pooled = new ECGPredictionService(script, pool, null, null, 10_000, false);
+        spawning = new ECGPredictionService(script, noPool, null, null, 10_000, false);
+
+        hea = new MockMultipartFile("hea", "100.hea", "text/plain",
+                "100 1 360 3600\n100.dat 212 200 11 1024 0 0 0 MLII\n".getBytes(StandardCharsets.US_ASCII));
+        dat = new MockMultipartFile("dat", "100.dat", "application/octet-stream", new byte[3600 * 3 / 2]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+        noPool.shutdown();
+    }
+
+    @Benchmark
+    public ECGPredictionResponse pooledWorker() throws Exception {
+        return pooled.analyzeFiles(dat, hea);
+    }
+
+    @Benchmark
+    public ECGPredictionResponse spawnPerRequest() throws Exception {
+        return spawning.analyzeFiles(dat, hea);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ECGWorkerPoolBenchmark.class.getSimpleName()).build()).run();
+    }
+}
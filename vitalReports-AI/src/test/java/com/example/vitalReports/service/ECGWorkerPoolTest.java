@@ -0,0 +1,139 @@
+package com.example.vitalReports.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the pool against stub_ecg_predict.py, so the framing and worker lifecycle are tested
+ * without TensorFlow. Skipped when no Python interpreter is on the PATH.
+ */
+class ECGWorkerPoolTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private ECGWorkerPool pool;
+
+    @BeforeEach
+    void requirePython() {
+        assumeTrue(StubEcgScript.pythonAvailable(), "no " + StubEcgScript.PYTHON + " on the PATH");
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void framesRoundTripLargeAndNonAsciiPayloads() throws Exception {
+        start(1, 5_000, 60_000);
+
+        // Several pipe buffers' worth, with multi-byte characters so bytes != chars
+        String payload = "µV ♥ ".repeat(200_000);
+        assertEquals(payload, pool.execute(Map.of("op", "echo", "payload", payload)).asText());
+
+        JsonNode result = pool.execute(Map.of("op", "beats", "windows", new float[3 * 180]));
+        assertEquals(3, result.get("probabilities").size());
+    }
+
+    @Test
+    void scriptErrorsKeepTheWorker() throws Exception {
+        start(1, 5_000, 60_000);
+        int pid = pool.execute(Map.of("op", "pid")).asInt();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> pool.execute(Map.of("op", "nope")));
+        assertTrue(e.getMessage().contains("Unknown op"), e.getMessage());
+
+        assertEquals(pid, pool.execute(Map.of("op", "pid")).asInt());
+        assertEquals(0, restarts());
+    }
+
+    @Test
+    void crashedWorkerIsReplaced() throws Exception {
+        start(1, 5_000, 60_000);
+        int pid = pool.execute(Map.of("op", "pid")).asInt();
+
+        assertThrows(RuntimeException.class, () -> pool.execute(Map.of("op", "crash")));
+        assertEquals(1, restarts());
+
+        StubEcgScript.awaitReady(registry, 1, 10_000);
+        assertNotEquals(pid, pool.execute(Map.of("op", "pid")).asInt());
+    }
+
+    @Test
+    void overrunningRequestIsKilledAndReplaced() throws Exception {
+        start(1, 500, 60_000);
+        int pid = pool.execute(Map.of("op", "pid")).asInt();
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> pool.execute(Map.of("op", "sleep", "seconds", 30)));
+        assertTrue(e.getMessage().contains("timed out"), e.getMessage());
+        assertEquals(1, restarts());
+
+        StubEcgScript.awaitReady(registry, 1, 10_000);
+        assertNotEquals(pid, pool.execute(Map.of("op", "pid")).asInt());
+    }
+
+    @Test
+    void healthCheckReplacesIdleWorkerThatDied() throws Exception {
+        start(1, 5_000, 100);
+        long pid = pool.execute(Map.of("op", "pid")).asLong();
+
+        ProcessHandle.of(pid).ifPresent(ProcessHandle::destroyForcibly);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (restarts() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, restarts());
+        StubEcgScript.awaitReady(registry, 1, 10_000);
+        assertNotEquals(pid, pool.execute(Map.of("op", "pid")).asLong());
+    }
+
+    @Test
+    void callerGivesUpWhenEveryWorkerStaysBusy() throws Exception {
+        pool = new ECGWorkerPool(new StubEcgScript(0), registry, true, 1, 200, 5_000, 10_000, 60_000);
+        pool.start();
+        StubEcgScript.awaitReady(registry, 1, 10_000);
+
+        Thread sleeper = new Thread(() -> pool.execute(Map.of("op", "sleep", "seconds", 2)));
+        sleeper.start();
+        // Let the sleeper borrow the only worker
+        Thread.sleep(300);
+
+        assertThrows(ECGWorkerPool.WorkersBusyException.class, () -> pool.execute(Map.of("op", "pid")));
+        sleeper.join();
+        assertEquals(0, restarts());
+    }
+
+    @Test
+    void disabledPoolSendsCallersToTheOneShotProcess() {
+        pool = new ECGWorkerPool(new StubEcgScript(0), registry, false, 2, 1_000, 1_000, 1_000, 60_000);
+        pool.start();
+
+        assertThrows(ECGWorkerPool.WorkerUnavailableException.class, () -> pool.execute(Map.of("op", "ping")));
+    }
+
+    private void start(int size, long requestTimeoutMs, long healthCheckIntervalMs) throws InterruptedException {
+        pool = new ECGWorkerPool(new StubEcgScript(0), registry, true, size,
+                5_000, requestTimeoutMs, 10_000, healthCheckIntervalMs);
+        pool.start();
+        StubEcgScript.awaitReady(registry, size, 10_000);
+    }
+
+    private double restarts() {
+        return registry.get("ecg.workers.restarts").counter().count();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.vitalReports.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Points the script locator at src/test/resources/stub_ecg_predict.py, which speaks the same
+ * protocol as ecg_predict.py without TensorFlow. The interpreter is "python3" unless the
+ * ecg.python.path system property says otherwise.
+ */
+final class StubEcgScript extends ECGScriptLocator {
+
+    static final String PYTHON = System.getProperty("ecg.python.path", "python3");
+
+    private final Path script;
+    private final double modelLoadSeconds;
+
+    StubEcgScript(double modelLoadSeconds) {
+        try {
+            this.script = Path.of(StubEcgScript.class.getResource("/stub_ecg_predict.py").toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+        this.modelLoadSeconds = modelLoadSeconds;
+    }
+
+    @Override
+    public String resolveScriptPath() {
+        return script.toString();
+    }
+
+    @Override
+    public ProcessBuilder processBuilder(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(PYTHON);
+        command.add(resolveScriptPath());
+        command.addAll(List.of(args));
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(getWorkingDirectory());
+        pb.environment().put("STUB_MODEL_LOAD_SECONDS", Double.toString(modelLoadSeconds));
+        return pb;
+    }
+
+    static boolean pythonAvailable() {
+        try {
+            Process process = new ProcessBuilder(PYTHON, "--version")
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Workers start in the background; waits until the pool reports this many ready
+    static void awaitReady(MeterRegistry registry, int workers, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (registry.get("ecg.workers.ready").gauge().value() < workers) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("ECG workers not ready after " + timeoutMs + " ms");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.vitalReports.wfdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static com.example.vitalReports.wfdb.WfdbReaderTest.header;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WfdbHeaderTest {
+
+    @Test
+    void parsesMitBihRecord() throws IOException {
+        WfdbHeader header = header(
+                "# MIT-BIH Arrhythmia Database",
+                "100 2 360 650000 0:0:0 0/0/0",
+                "100.dat 212 200 11 1024 995 -22131 0 MLII",
+                "100.dat 212 200 11 1024 1011 20052 0 V5",
+                "# 69 M 1085 1629 x1");
+
+        assertEquals("100", header.getRecordName());
+        assertEquals(360.0, header.getFs());
+        assertEquals(650000, header.getSamplesPerSignal());
+        assertEquals(2, header.getSignals().size());
+
+        WfdbHeader.Signal mlii = header.getSignals().get(0);
+        assertEquals("100.dat", mlii.getFileName());
+        assertEquals(212, mlii.getFormat());
+        assertEquals(0, mlii.getByteOffset());
+        assertEquals(200.0, mlii.getGain());
+        // No "(baseline)" after the gain: the ADC zero is used
+        assertEquals(1024, mlii.getBaseline());
+        assertEquals("mV", mlii.getUnits());
+        assertEquals("MLII", mlii.getDescription());
+        assertEquals("V5", header.getSignals().get(1).getDescription());
+    }
+
+    @Test
+    void explicitBaselineWinsOverAdcZero() throws IOException {
+        WfdbHeader header = header("rec 1 250/1000(0) 100", "rec.dat 16x2:1+512 400.5(-12)/uV 16 7 0 0 0 lead I");
+
+        WfdbHeader.Signal signal = header.getSignals().get(0);
+        assertEquals(250.0, header.getFs());
+        assertEquals(16, signal.getFormat());
+        assertEquals(512, signal.getByteOffset());
+        assertEquals(400.5, signal.getGain());
+        assertEquals(-12, signal.getBaseline());
+        assertEquals("uV", signal.getUnits());
+        assertEquals("lead I", signal.getDescription());
+    }
+
+    @Test
+    void fallsBackToDefaultsForMissingFields() throws IOException {
+        WfdbHeader header = header("rec 1", "rec.dat 212");
+
+        WfdbHeader.Signal signal = header.getSignals().get(0);
+        assertEquals(250.0, header.getFs());
+        assertEquals(0, header.getSamplesPerSignal());
+        assertEquals(200.0, signal.getGain());
+        assertEquals(0, signal.getBaseline());
+
+        // A zero gain means "uncalibrated" in WFDB and also gets the default
+        assertEquals(200.0, header("rec 1 360", "rec.dat 212 0 12 5").getSignals().get(0).getGain());
+        assertEquals(5, header("rec 1 360", "rec.dat 212 0 12 5").getSignals().get(0).getBaseline());
+    }
+
+    @Test
+    void rejectsMalformedHeaders() {
+        assertThrows(WfdbFormatException.class, () -> header("# only a comment"));
+        assertThrows(WfdbFormatException.class, () -> header("rec 2 360", "rec.dat 212"));
+        assertThrows(WfdbFormatException.class, () -> header("rec x 360", "rec.dat 212"));
+        assertThrows(WfdbFormatException.class, () -> header("rec 1 360", "rec.dat 212 abc"));
+        assertThrows(WfdbFormatException.class, () -> header("rec 1 360", "rec.dat"));
+        assertThrows(WfdbUnsupportedException.class, () -> header("multi/2 1 360", "rec.dat 212"));
+    }
+}
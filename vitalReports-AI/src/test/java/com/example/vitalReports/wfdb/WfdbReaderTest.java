@@ -0,0 +1,136 @@
+package com.example.vitalReports.wfdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WfdbReaderTest {
+
+    @Test
+    void format212UnpacksAndSignExtendsBothSamples() throws IOException {
+        int[] adc = {0, 1, -1, 2047, -2047, 1000, -1000, 0x0AB, -0x0AB, 512};
+        WfdbHeader header = header("rec 1 360 " + adc.length, "rec.dat 212 1(0)/mV 12 0");
+
+        float[] signal = WfdbReader.readSignal(header, new ByteArrayInputStream(pack212(adc)), 0);
+
+        assertArrayEquals(toFloats(adc), signal);
+    }
+
+    @Test
+    void format212PacksFirstSampleInLowNibbleOfMiddleByte() throws IOException {
+        // 0x123 and 0x456: byte0 = 0x23, byte1 = 0x4 << 4 | 0x1, byte2 = 0x56
+        WfdbHeader header = header("rec 1 360 2", "rec.dat 212 1(0)/mV");
+        byte[] dat = {0x23, 0x41, 0x56};
+
+        assertArrayEquals(new float[]{0x123, 0x456}, WfdbReader.readSignal(header, new ByteArrayInputStream(dat), 0));
+    }
+
+    @Test
+    void interleavedChannelsAfterByteOffsetAreSeparated() throws IOException {
+        // Two signals in one format-16 file behind a 4-byte prelude; gain 200, baselines 1024 and -10
+        WfdbHeader header = header("rec 2 250 3",
+                "rec.dat 16+4 200(1024)/mV 16 0 0 0 0 MLII",
+                "rec.dat 16+4 200(-10)/mV 16 0 0 0 0 V5");
+        byte[] dat = concat(new byte[]{9, 9, 9, 9}, pack16(1224, 190, 1024, -10, 824, -210));
+
+        assertArrayEquals(new float[]{1.0f, 0.0f, -1.0f}, WfdbReader.readSignal(header, new ByteArrayInputStream(dat), 0));
+        assertArrayEquals(new float[]{1.0f, 0.0f, -1.0f}, WfdbReader.readSignal(header, new ByteArrayInputStream(dat), 1));
+    }
+
+    @Test
+    void invalidSampleMarkerHoldsThePreviousValue() throws IOException {
+        WfdbHeader format16 = header("rec 1 250 4", "rec.dat 16 2(0)/mV");
+        float[] signal16 = WfdbReader.readSignal(format16, new ByteArrayInputStream(pack16(4, -32768, -32768, 6)), 0);
+        assertArrayEquals(new float[]{2, 2, 2, 3}, signal16);
+
+        WfdbHeader format212 = header("rec 1 360 4", "rec.dat 212 2(0)/mV");
+        float[] signal212 = WfdbReader.readSignal(format212, new ByteArrayInputStream(pack212(new int[]{-8, -2048, 8, 2})), 0);
+        assertArrayEquals(new float[]{-4, -4, 4, 1}, signal212);
+    }
+
+    @Test
+    void stopsAtTheSampleCountFromTheHeader() throws IOException {
+        WfdbHeader header = header("rec 1 250 2", "rec.dat 16 1(0)/mV");
+        assertArrayEquals(new float[]{5, 6}, WfdbReader.readSignal(header, new ByteArrayInputStream(pack16(5, 6, 7, 8)), 0));
+    }
+
+    @Test
+    void truncatedOrEmptyFilesAreFormatErrors() throws IOException {
+        WfdbHeader offset = header("rec 1 250", "rec.dat 16+100 1(0)/mV");
+        assertThrows(WfdbFormatException.class,
+                () -> WfdbReader.readSignal(offset, new ByteArrayInputStream(new byte[10]), 0));
+
+        WfdbHeader plain = header("rec 1 250", "rec.dat 16 1(0)/mV");
+        assertThrows(WfdbFormatException.class,
+                () -> WfdbReader.readSignal(plain, new ByteArrayInputStream(new byte[1]), 0));
+    }
+
+    @Test
+    void fileEndingBeforeTheHeaderSampleCountIsAFormatError() throws IOException {
+        WfdbHeader format16 = header("rec 1 250 650000", "rec.dat 16 1(0)/mV");
+        WfdbFormatException e = assertThrows(WfdbFormatException.class,
+                () -> WfdbReader.readSignal(format16, new ByteArrayInputStream(pack16(1, 2, 3)), 0));
+        assertEquals("Signal file ends after 3 of 650000 samples", e.getMessage());
+
+        // Two interleaved signals: 3 frames in the file, 4 promised
+        WfdbHeader format212 = header("rec 2 360 4", "rec.dat 212 1(0)/mV", "rec.dat 212 1(0)/mV");
+        assertThrows(WfdbFormatException.class,
+                () -> WfdbReader.readSignal(format212, new ByteArrayInputStream(pack212(new int[]{1, 2, 3, 4, 5, 6})), 1));
+    }
+
+    @Test
+    void otherStorageFormatsAreUnsupported() throws IOException {
+        WfdbHeader header = header("rec 1 250", "rec.dat 80 1(0)/mV");
+        assertThrows(WfdbUnsupportedException.class,
+                () -> WfdbReader.readSignal(header, new ByteArrayInputStream(new byte[10]), 0));
+        assertThrows(WfdbFormatException.class,
+                () -> WfdbReader.readSignal(header, new ByteArrayInputStream(new byte[10]), 1));
+    }
+
+    static WfdbHeader header(String... lines) throws IOException {
+        return WfdbHeader.parse(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static byte[] pack212(int[] adc) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < adc.length; i += 2) {
+            int a = adc[i] & 0xFFF;
+            int b = i + 1 < adc.length ? adc[i + 1] & 0xFFF : 0;
+            out.write(a & 0xFF);
+            out.write((a >> 8) | ((b >> 8) << 4));
+            out.write(b & 0xFF);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] pack16(int... adc) {
+        byte[] out = new byte[adc.length * 2];
+        for (int i = 0; i < adc.length; i++) {
+            out[2 * i] = (byte) adc[i];
+            out[2 * i + 1] = (byte) (adc[i] >> 8);
+        }
+        return out;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = new byte[a.length + b.length];
+        System.arraycopy(a, 0, out, 0, a.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    private static float[] toFloats(int[] values) {
+        float[] out = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            out[i] = values[i];
+        }
+        return out;
+    }
+}
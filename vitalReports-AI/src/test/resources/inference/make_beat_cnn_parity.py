@@ -0,0 +1,86 @@
+"""Regenerates the BeatCnnModel parity fixture next to this file: a seeded, randomly
+initialised Keras model shaped like the beat CNN, exported with export_ecg_weights.py, and
+TensorFlow's predictions for a few windows.
+
+Usage (from vitalReports-AI, with TensorFlow installed):
+    python src/test/resources/inference/make_beat_cnn_parity.py
+
+Writes beat_cnn_parity.weights and beat_cnn_parity.json ({"windows": [[...]], "probabilities": [...]}),
+which BeatCnnModelTest compares against BeatCnnModel.classify.
+"""
+import json
+import os
+import sys
+
+import numpy as np
+import tensorflow as tf
+
+HERE = os.path.dirname(os.path.abspath(__file__))
+sys.path.insert(0, os.path.abspath(os.path.join(HERE, "..", "..", "..", "..")))
+from export_ecg_weights import export  # noqa: E402
+
+WINDOW_SIZE = 180
+WINDOWS = 6
+
+
+def build_model():
+    layers = tf.keras.layers
+    model = tf.keras.Sequential([
+        tf.keras.Input(shape=(WINDOW_SIZE, 1)),
+        layers.Conv1D(8, 5, padding="same", activation="relu"),
+        layers.BatchNormalization(),
+        layers.MaxPooling1D(2),
+        layers.Conv1D(8, 5, padding="same", activation="relu"),
+        layers.BatchNormalization(),
+        layers.MaxPooling1D(2),
+        layers.Dropout(0.5),
+        layers.Conv1D(8, 3, strides=2, padding="same", activation="relu"),
+        layers.BatchNormalization(),
+        layers.MaxPooling1D(2),
+        layers.Flatten(),
+        layers.Dense(16, activation="relu"),
+        layers.Dropout(0.5),
+        layers.Dense(1, activation="sigmoid"),
+    ])
+    # Fresh BatchNormalization layers are the identity; give them statistics so the folding
+    # (including epsilon) actually changes the outputs
+    rng = np.random.default_rng(7)
+    for layer in model.layers:
+        if isinstance(layer, layers.BatchNormalization):
+            n = layer.get_weights()[0].shape[0]
+            layer.set_weights([
+                rng.uniform(0.5, 1.5, n).astype("float32"),   # gamma
+                rng.uniform(-0.2, 0.2, n).astype("float32"),  # beta
+                rng.uniform(-0.1, 0.3, n).astype("float32"),  # moving mean
+                rng.uniform(0.01, 0.5, n).astype("float32"),  # moving variance, small so epsilon matters
+            ])
+    return model
+
+
+def windows():
+    # Beat-like bumps plus noise, each scaled to max |x| = 1 like the service does
+    rng = np.random.default_rng(11)
+    t = np.arange(WINDOW_SIZE)
+    out = []
+    for _ in range(WINDOWS):
+        centre = rng.uniform(60, 120)
+        width = rng.uniform(3, 12)
+        x = np.exp(-((t - centre) / width) ** 2) + rng.normal(0, 0.1, WINDOW_SIZE)
+        out.append((x / np.max(np.abs(x))).astype("float32"))
+    return np.stack(out)
+
+
+if __name__ == "__main__":
+    tf.keras.utils.set_random_seed(7)
+    model = build_model()
+    X = windows()
+    probabilities = model.predict(X.reshape(-1, WINDOW_SIZE, 1), verbose=0)[:, 0]
+
+    with open(os.path.join(HERE, "beat_cnn_parity.weights"), "wb") as f:
+        export(model, f)
+    with open(os.path.join(HERE, "beat_cnn_parity.json"), "w") as f:
+        json.dump({
+            "windows": [[float(v) for v in w] for w in X],
+            "probabilities": [float(p) for p in probabilities],
+        }, f)
+    print(f"Wrote parity fixture for {WINDOWS} windows to {HERE}")
@@ -0,0 +1,117 @@
+"""Stand-in for ecg_predict.py in tests and benchmarks: the same command line and the same
+framed "serve" protocol, but no TensorFlow, so it runs anywhere with a plain Python 3.
+
+STUB_MODEL_LOAD_SECONDS delays startup the way importing TensorFlow and loading the model
+would. Besides the real ops, serve mode understands a few used by the tests:
+  echo   returns the request's "payload" unchanged
+  pid    returns the process id
+  sleep  waits "seconds" before answering
+  crash  exits without answering
+"""
+import json
+import os
+import struct
+import sys
+import time
+
+WINDOW_SIZE = 180
+
+time.sleep(float(os.environ.get("STUB_MODEL_LOAD_SECONDS", "0")))
+
+
+def analyze_from_files(record_path):
+    with open(record_path + ".hea") as f:
+        fields = f.readline().split()
+    fs = int(float(fields[2].split("/")[0])) if len(fields) > 2 else 250
+    return {
+        "prediction": "Normal",
+        "probability": 0.1,
+        "waveform": [0.0] * 10,
+        "fs": fs,
+        "meanHR": 72,
+        "sdnn": 0,
+        "rmssd": 0,
+        "beats": 1,
+        "status": "Normal",
+        "rationale": "stub"
+    }
+
+
+def analyze_from_signal(signal):
+    return {"prediction": "Normal", "probability": 0.1}
+
+
+def classify_beats(windows):
+    return [0.1] * (len(windows) // WINDOW_SIZE)
+
+
+def read_frame(stream):
+    header = stream.read(4)
+    if len(header) < 4:
+        return None
+    (length,) = struct.unpack(">I", header)
+    payload = stream.read(length)
+    if len(payload) < length:
+        return None
+    return json.loads(payload.decode("utf-8"))
+
+
+def write_frame(stream, message):
+    payload = json.dumps(message).encode("utf-8")
+    stream.write(struct.pack(">I", len(payload)))
+    stream.write(payload)
+    stream.flush()
+
+
+def serve():
+    frames_in = sys.stdin.buffer
+    frames_out = sys.stdout.buffer
+
+    while True:
+        request = read_frame(frames_in)
+        if request is None:
+            break
+        try:
+            op = request.get("op")
+            if op == "ping":
+                result = {"pong": True}
+            elif op == "file":
+                result = analyze_from_files(request["record"])
+            elif op == "signal":
+                result = analyze_from_signal(request["signal"])
+            elif op == "beats":
+                result = {"probabilities": classify_beats(request["windows"])}
+            elif op == "echo":
+                result = request["payload"]
+            elif op == "pid":
+                result = os.getpid()
+            elif op == "sleep":
+                time.sleep(request["seconds"])
+                result = {}
+            elif op == "crash":
+                os._exit(3)
+            else:
+                raise ValueError(f"Unknown op: {op}")
+            write_frame(frames_out, {"ok": True, "result": result})
+        except Exception as e:
+            write_frame(frames_out, {"ok": False, "error": f"{type(e).__name__}: {e}"})
+
+
+if __name__ == "__main__":
+    mode = sys.argv[1]
+
+    if mode == "serve":
+        serve()
+        sys.exit(0)
+
+    if mode == "beats":
+        windows = json.load(sys.stdin)["windows"]
+        print(json.dumps({"probabilities": classify_beats(windows)}))
+        sys.exit(0)
+
+    if mode == "file":
+        result = analyze_from_files(sys.argv[2])
+    else:
+        result = analyze_from_signal(json.loads(sys.argv[2])["signal"])
+
+    print(json.dumps(result))